@@ -0,0 +1,47 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the selected benchmarks twice: once in throughput mode (ops/s) and once in sample
+ * mode (p50/p99/... latency in µs), both with the GC profiler attached so every result
+ * carries {@code gc.alloc.rate.norm} (bytes allocated per op). Any regular JMH command line
+ * options are accepted, e.g. {@code SetBenchmarks -f 2 -p members=100}.
+ */
+public final class BenchmarkRunner {
+
+  private BenchmarkRunner() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    run(commandLine, Mode.Throughput, TimeUnit.SECONDS, "throughput");
+    run(commandLine, Mode.SampleTime, TimeUnit.MICROSECONDS, "latency");
+  }
+
+  private static void run(CommandLineOptions commandLine, Mode mode, TimeUnit timeUnit, String name)
+      throws RunnerException {
+    Options options = new OptionsBuilder()
+        .parent(commandLine)
+        .mode(mode)
+        .timeUnit(timeUnit)
+        .addProfiler(GCProfiler.class)
+        .jvmArgsAppend(
+            "-Dredis.host=" + System.getProperty("redis.host", "localhost"),
+            "-Dredis.port=" + System.getProperty("redis.port", "6379"),
+            "-Dredis.standin=" + System.getProperty("redis.standin", ""))
+        .resultFormat(ResultFormatType.JSON)
+        .result("target/jmh-" + name + ".json")
+        .build();
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,155 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ListOperations;
+
+import com.redis.redis.sixtwo.BlockingListConsumers;
+import com.redis.redis.sixtwo.ThreadMode;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+
+/**
+ * {@code consumers} lists each with a consumer parked in BRPOP, on platform or virtual
+ * threads. Each op pushes one item onto a list and waits for its handler, the time from LPUSH
+ * to dispatch; the footprint of the parked consumers (live platform threads, heap after GC,
+ * resident set) is printed once they are all waiting.
+ *
+ * {@code VIRTUAL} needs the fork to run on Java 21 ({@code -Pbenchmarks,jdk21}). 5,000
+ * consumers hold 5,000 connections: the server's {@code maxclients} and both sides' open file
+ * limits must allow that.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class BlockingConsumersBenchmark {
+
+  @Param({ "5000" })
+  int consumers;
+
+  @Param({ "PLATFORM", "VIRTUAL" })
+  ThreadMode threadMode;
+
+  private RedisTarget redis;
+  private ListOperations<String, String> listOps;
+  private RedisClient client;
+  private BlockingListConsumers blockingConsumers;
+  private String[] lists;
+  private final Map<String, CompletableFuture<String>> waiting = new ConcurrentHashMap<>();
+  private int next;
+
+  @Setup
+  public void setUp() throws InterruptedException {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    listOps = redis.template().opsForList();
+    client = RedisClient.create(
+        RedisURI.create(redis.connectionFactory().getHostName(), redis.connectionFactory().getPort()));
+
+    lists = new String[consumers];
+    for (int i = 0; i < consumers; i++) {
+      lists[i] = "bench:blocking:" + i;
+    }
+    Footprint before = Footprint.measure();
+    blockingConsumers = BlockingListConsumers.builder(client, "bench", (list, item) -> {
+      CompletableFuture<String> dispatched = waiting.remove(list);
+      if (dispatched != null) {
+        dispatched.complete(item);
+      }
+    }).lists(lists).threadMode(threadMode).build();
+    blockingConsumers.start();
+
+    long deadline = System.currentTimeMillis() + 60_000;
+    while (blockingConsumers.metrics().getActiveConnections() < consumers && System.currentTimeMillis() < deadline) {
+      Thread.sleep(100);
+    }
+    Footprint parked = Footprint.measure();
+    System.out.printf("%n%d %s consumers parked: %s%n", consumers, threadMode, parked.minus(before));
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println(blockingConsumers.metrics());
+    blockingConsumers.close();
+    client.shutdown();
+    redis.close();
+  }
+
+  @Benchmark
+  public String dispatch() {
+    String list = lists[next++ % lists.length];
+    CompletableFuture<String> dispatched = new CompletableFuture<>();
+    waiting.put(list, dispatched);
+    listOps.leftPush(list, "job");
+    return dispatched.join();
+  }
+
+  private static final class Footprint {
+
+    final long threads;
+    final long heapBytes;
+    final long residentBytes;
+
+    Footprint(long threads, long heapBytes, long residentBytes) {
+      this.threads = threads;
+      this.heapBytes = heapBytes;
+      this.residentBytes = residentBytes;
+    }
+
+    static Footprint measure() {
+      System.gc();
+      return new Footprint(ManagementFactory.getThreadMXBean().getThreadCount(),
+          ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed(), residentSetSize());
+    }
+
+    Footprint minus(Footprint baseline) {
+      return new Footprint(threads - baseline.threads, heapBytes - baseline.heapBytes,
+          residentBytes - baseline.residentBytes);
+    }
+
+    /**
+     * VmRSS from {@code /proc/self/status}, 0 where there is none.
+     */
+    private static long residentSetSize() {
+      try {
+        for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+          if (line.startsWith("VmRSS:")) {
+            return Long.parseLong(line.replaceAll("\\D", "")) * 1024;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        // not Linux
+      }
+      return 0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("platformThreads=%+d heap=%+,dKB rss=%+,dKB", threads, heapBytes / 1024,
+          residentBytes / 1024);
+    }
+  }
+}
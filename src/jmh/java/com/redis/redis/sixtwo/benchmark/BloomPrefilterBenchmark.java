@@ -0,0 +1,85 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.SetOperations;
+
+import com.redis.redis.sixtwo.BloomPrefilter;
+
+/**
+ * SMISMEMBER of {@code members} random members against a block list of {@code size} entries,
+ * where only {@code hitPercent} percent of the probes are listed, through
+ * {@link BloomPrefilter} and straight to Redis.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BloomPrefilterBenchmark {
+
+  private static final String KEY = "bench:bloom:blocked";
+
+  @Param({ "100000" })
+  int size;
+
+  @Param({ "1", "10" })
+  int members;
+
+  @Param({ "0", "1", "10" })
+  int hitPercent;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> setOps;
+  private BloomPrefilter prefilter;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    setOps = redis.template().opsForSet();
+    String[] batch = new String[1000];
+    for (int i = 0; i < size; i += batch.length) {
+      for (int j = 0; j < batch.length; j++) {
+        batch[j] = "blocked-" + (i + j);
+      }
+      setOps.add(KEY, batch);
+    }
+    prefilter = BloomPrefilter.builder(redis.template(), KEY).build().start();
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println(prefilter.metrics());
+    prefilter.close();
+    redis.close();
+  }
+
+  @Benchmark
+  public Map<Object, Boolean> direct() {
+    return setOps.isMember(KEY, (Object[]) probes());
+  }
+
+  @Benchmark
+  public Map<String, Boolean> prefiltered() {
+    return prefilter.isMember(probes());
+  }
+
+  private String[] probes() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String[] probes = new String[members];
+    for (int i = 0; i < members; i++) {
+      probes[i] = random.nextInt(100) < hitPercent ? "blocked-" + random.nextInt(size) : "visitor-" + random.nextLong();
+    }
+    return probes;
+  }
+}
@@ -0,0 +1,73 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.redis.redis.sixtwo.BulkLoader;
+
+/**
+ * Loads {@code rows} sorted set rows spread over 10 keys per op, with {@link BulkLoader} at
+ * different chunk sizes and with one ZADD per row.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BulkLoaderBenchmark {
+
+  @Param({ "100000" })
+  int rows;
+
+  @Param({ "100", "1000", "10000" })
+  int chunkSize;
+
+  @Param({ "4" })
+  int maxInFlight;
+
+  private RedisTarget redis;
+  private BulkLoader loader;
+  private ZSetOperations<String, String> zSetOps;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    redis = RedisTarget.connect();
+    loader = new BulkLoader(redis.template(), chunkSize, maxInFlight);
+    zSetOps = redis.template().opsForZSet();
+  }
+
+  @Setup(Level.Iteration)
+  public void flush() {
+    redis.flushAll();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    redis.close();
+  }
+
+  @Benchmark
+  public long bulkLoader() {
+    return loader.loadSortedSets(IntStream.range(0, rows) //
+        .mapToObj(i -> BulkLoader.Row.scored("bench:bulk:" + (i % 10), "player-" + i, i))) //
+        .getRows();
+  }
+
+  @Benchmark
+  public long zaddPerRow() {
+    for (int i = 0; i < rows; i++) {
+      zSetOps.add("bench:single:" + (i % 10), "player-" + i, i);
+    }
+    return rows;
+  }
+}
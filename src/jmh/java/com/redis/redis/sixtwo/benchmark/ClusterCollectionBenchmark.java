@@ -0,0 +1,84 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.BulkLoader;
+import com.redis.redis.sixtwo.ClusterCollectionOperations;
+
+/**
+ * ZINTER/ZDIFF of two sorted sets of {@code size} members, half overlapping, through
+ * {@link ClusterCollectionOperations} with slot planning on: hash-tagged keys run the native
+ * command, untagged keys take the parallel fetch and client-side merge.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ClusterCollectionBenchmark {
+
+  private static final String TAGGED_1 = ClusterCollectionOperations.hashTag("bench:cluster:game1", "bench");
+  private static final String TAGGED_2 = ClusterCollectionOperations.hashTag("bench:cluster:game2", "bench");
+  private static final String SPREAD_1 = "bench:cluster:game1";
+  private static final String SPREAD_2 = "bench:cluster:game2";
+
+  @Param({ "100", "10000" })
+  int size;
+
+  private RedisTarget redis;
+  private ClusterCollectionOperations ops;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    BulkLoader loader = new BulkLoader(redis.template());
+    for (String key : List.of(TAGGED_1, SPREAD_1)) {
+      loader.loadSortedSets(IntStream.range(0, size).mapToObj(i -> BulkLoader.Row.scored(key, "player-" + i, i)));
+    }
+    for (String key : List.of(TAGGED_2, SPREAD_2)) {
+      loader.loadSortedSets(
+          IntStream.range(size / 2, size + size / 2).mapToObj(i -> BulkLoader.Row.scored(key, "player-" + i, i)));
+    }
+    ops = new ClusterCollectionOperations(redis.template(), true, 4);
+  }
+
+  @TearDown
+  public void tearDown() {
+    ops.close();
+    redis.flushAll();
+    redis.close();
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> intersectSameSlot() {
+    return ops.intersectWithScores(TAGGED_1, Set.of(TAGGED_2));
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> intersectCrossSlot() {
+    return ops.intersectWithScores(SPREAD_1, Set.of(SPREAD_2));
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> differenceSameSlot() {
+    return ops.differenceWithScores(TAGGED_1, Set.of(TAGGED_2));
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> differenceCrossSlot() {
+    return ops.differenceWithScores(SPREAD_1, Set.of(SPREAD_2));
+  }
+}
@@ -0,0 +1,89 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.BulkLoader;
+import com.redis.redis.sixtwo.CollectionStreams;
+
+/**
+ * Reads a whole set / sorted set of {@code size} members with SMEMBERS and {@code ZRANGE 0 -1}
+ * against streaming it with {@link CollectionStreams}. Run with the GC profiler to compare the
+ * allocation per op.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CollectionStreamsBenchmark {
+
+  private static final String SET = "bench:streams:set";
+  private static final String ZSET = "bench:streams:zset";
+
+  @Param({ "100000" })
+  int size;
+
+  @Param({ "1000" })
+  int pageSize;
+
+  @Param({ "false", "true" })
+  boolean prefetch;
+
+  private RedisTarget redis;
+  private StringRedisTemplate template;
+  private CollectionStreams streams;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    template = redis.template();
+    BulkLoader loader = new BulkLoader(template);
+    loader.loadSets(IntStream.range(0, size).mapToObj(i -> BulkLoader.Row.of(SET, "member-" + i)));
+    loader.loadSortedSets(IntStream.range(0, size).mapToObj(i -> BulkLoader.Row.scored(ZSET, "member-" + i, i)));
+    streams = new CollectionStreams(template, pageSize, prefetch);
+  }
+
+  @TearDown
+  public void tearDown() {
+    streams.close();
+    redis.flushAll();
+    redis.close();
+  }
+
+  @Benchmark
+  public long smembers() {
+    return template.opsForSet().members(SET).stream().mapToLong(String::length).sum();
+  }
+
+  @Benchmark
+  public long sscanStream() {
+    try (Stream<String> members = streams.members(SET)) {
+      return members.mapToLong(String::length).sum();
+    }
+  }
+
+  @Benchmark
+  public double zrangeAll() {
+    return template.opsForZSet().rangeWithScores(ZSET, 0, -1).stream().mapToDouble(TypedTuple::getScore).sum();
+  }
+
+  @Benchmark
+  public double zrangeStream() {
+    try (Stream<TypedTuple<String>> tuples = streams.byRank(ZSET, false)) {
+      return tuples.mapToDouble(TypedTuple::getScore).sum();
+    }
+  }
+}
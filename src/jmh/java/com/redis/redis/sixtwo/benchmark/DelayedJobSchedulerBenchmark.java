@@ -0,0 +1,111 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.DelayedJobScheduler;
+
+/**
+ * Each op schedules {@code jobs} jobs that are due right away and waits until they are all on
+ * the ready list, moved by a {@link DelayedJobScheduler} or by the loop it replaces: sleep
+ * 100ms, ZRANGEBYSCORE, ZREM and LPUSH. The scheduler's dispatch lag is printed at the end of
+ * the trial; throughput in jobs/s is ops/s times {@code jobs}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DelayedJobSchedulerBenchmark {
+
+  private static final String POLLED = "bench:polled:scheduled";
+  private static final String POLLED_READY = "bench:polled:ready";
+
+  @Param({ "1000" })
+  int jobs;
+
+  @Param({ "1000" })
+  int batchSize;
+
+  private RedisTarget redis;
+  private StringRedisTemplate template;
+  private DelayedJobScheduler scheduler;
+  private long sequence;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    template = redis.template();
+    scheduler = DelayedJobScheduler.builder(template, "bench:scheduler").batchSize(batchSize).build();
+    scheduler.start();
+  }
+
+  @TearDown(Level.Iteration)
+  public void trimReadyLists() {
+    template.delete(scheduler.getReadyKey());
+    template.delete(POLLED_READY);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println(scheduler.metrics());
+    scheduler.close();
+    redis.close();
+  }
+
+  private Map<String, Instant> dueNow() {
+    Map<String, Instant> due = new LinkedHashMap<>();
+    Instant now = Instant.now();
+    for (int i = 0; i < jobs; i++) {
+      due.put("job-" + sequence++, now);
+    }
+    return due;
+  }
+
+  @Benchmark
+  public long scheduler() {
+    long target = scheduler.metrics().getDispatched() + jobs;
+    scheduler.scheduleAll(dueNow());
+    while (scheduler.metrics().getDispatched() < target) {
+      LockSupport.parkNanos(50_000);
+    }
+    return target;
+  }
+
+  @Benchmark
+  public long fixedRatePolling() throws InterruptedException {
+    Set<TypedTuple<String>> tuples = new LinkedHashSet<>();
+    dueNow().forEach((job, dueAt) -> tuples.add(TypedTuple.of(job, (double) dueAt.toEpochMilli())));
+    template.opsForZSet().add(POLLED, tuples);
+    long moved = 0;
+    while (moved < jobs) {
+      Thread.sleep(100);
+      Set<String> due = template.opsForZSet().rangeByScore(POLLED, Double.NEGATIVE_INFINITY,
+          System.currentTimeMillis(), 0, batchSize);
+      if (due == null || due.isEmpty()) {
+        continue;
+      }
+      template.opsForZSet().remove(POLLED, due.toArray());
+      template.opsForList().leftPushAll(POLLED_READY, due);
+      moved += due.size();
+    }
+    return moved;
+  }
+}
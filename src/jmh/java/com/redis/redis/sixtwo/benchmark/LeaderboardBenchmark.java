@@ -0,0 +1,101 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.LeaderboardService;
+
+/**
+ * Leaderboard pages on a board of {@code size} members (1M by default): top 100, 10 around a
+ * random member, a score band page and a snapshot refresh, against the full
+ * {@code range(key, 0, -1)} read the tests use.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LeaderboardBenchmark {
+
+  private static final String BOARD = "bench:leaderboard";
+
+  @Param({ "1000000" })
+  int size;
+
+  private RedisTarget redis;
+  private LeaderboardService leaderboard;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    leaderboard = new LeaderboardService(redis.template());
+
+    int chunk = 10_000;
+    for (int from = 0; from < size; from += chunk) {
+      int start = from;
+      int end = Math.min(size, from + chunk);
+      redis.template().executePipelined((RedisCallback<Object>) connection -> {
+        StringRedisConnection stringConnection = (StringRedisConnection) connection;
+        for (int i = start; i < end; i++) {
+          stringConnection.zAdd(BOARD, i, "player-" + i);
+        }
+        return null;
+      });
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    leaderboard.close();
+    redis.close();
+  }
+
+  @Benchmark
+  public List<LeaderboardService.Entry> top100() {
+    return leaderboard.top(BOARD, 100);
+  }
+
+  @Benchmark
+  public List<String> top100FullRange() {
+    Set<String> all = redis.template().opsForZSet().range(BOARD, 0, -1);
+    List<String> top = new ArrayList<>(all);
+    return top.subList(Math.max(0, top.size() - 100), top.size());
+  }
+
+  @Benchmark
+  public List<LeaderboardService.Entry> aroundMe() {
+    return leaderboard.aroundMe(BOARD, "player-" + ThreadLocalRandom.current().nextInt(size), 5);
+  }
+
+  @Benchmark
+  public List<LeaderboardService.Entry> scoreBandPage() {
+    double min = ThreadLocalRandom.current().nextInt(size);
+    return leaderboard.scoreBand(BOARD, min, min + 10_000, 100, 50);
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> scoreBandPagePre62() {
+    double min = ThreadLocalRandom.current().nextInt(size);
+    return redis.template().opsForZSet().reverseRangeByScoreWithScores(BOARD, min, min + 10_000, 100, 50);
+  }
+
+  @Benchmark
+  public long snapshotTop1000() {
+    return leaderboard.refreshSnapshot(BOARD, BOARD + ":top1000", 1000);
+  }
+}
@@ -0,0 +1,88 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ListOperations;
+
+import com.redis.redis.sixtwo.ListBatchConsumer;
+
+/**
+ * Each op pushes {@code items} items and waits until they have all been handed to a
+ * handler, either by a running {@link ListBatchConsumer} or by a plain LPOP loop.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListBatchConsumerBenchmark {
+
+  private static final String BATCHED = "bench:queue:batched";
+  private static final String SINGLE = "bench:queue:single";
+
+  @Param({ "1000" })
+  int items;
+
+  private RedisTarget redis;
+  private ListOperations<String, String> listOps;
+  private List<String> payload;
+  private ListBatchConsumer consumer;
+  private final AtomicLong handled = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    listOps = redis.template().opsForList();
+
+    payload = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      payload.add("job-" + i);
+    }
+
+    consumer = ListBatchConsumer.builder(listOps, BATCHED, batch -> handled.addAndGet(batch.size())) //
+        .maxBatchSize(items) //
+        .workers(2) //
+        .build();
+    consumer.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println(consumer.metrics());
+    consumer.close();
+    redis.close();
+  }
+
+  @Benchmark
+  public long batchConsumer() {
+    long target = handled.get() + items;
+    listOps.rightPushAll(BATCHED, payload);
+    while (handled.get() < target) {
+      LockSupport.parkNanos(10_000);
+    }
+    return target;
+  }
+
+  @Benchmark
+  public long singlePopLoop() {
+    listOps.rightPushAll(SINGLE, payload);
+    long count = 0;
+    while (listOps.leftPop(SINGLE) != null) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,125 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * LMOVE and LPOP/RPOP COUNT against what we had to do before 6.2.
+ *
+ * The pop benchmarks push the popped items back so the list keeps its size; the push is
+ * the same for both variants, so the difference between them is the cost of the pops.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ListBenchmarks {
+
+  private static final String ROTATING = "bench:list:rotating";
+  private static final String QUEUE = "bench:list:queue";
+
+  // pre-6.2 there is no LPOP + RPUSH in one command, RPOPLPUSH only goes right to left
+  private static final RedisScript<String> LEFT_POP_RIGHT_PUSH = new DefaultRedisScript<>(
+      "local v = redis.call('LPOP', KEYS[1]) if v then redis.call('RPUSH', KEYS[2], v) end return v",
+      String.class);
+
+  @Param({ "1000" })
+  int size;
+
+  @Param({ "10", "100" })
+  int count;
+
+  private RedisTarget redis;
+  private ListOperations<String, String> listOps;
+  private List<String> keys;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    listOps = redis.template().opsForList();
+    keys = List.of(ROTATING, ROTATING);
+
+    List<String> values = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      values.add("item-" + i);
+    }
+    listOps.rightPushAll(ROTATING, values);
+    listOps.rightPushAll(QUEUE, values);
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.close();
+  }
+
+  @Benchmark
+  public String lmoveRightLeft() {
+    return listOps.move(ROTATING, RIGHT, ROTATING, LEFT);
+  }
+
+  @Benchmark
+  public String rpoplpush() {
+    return listOps.rightPopAndLeftPush(ROTATING, ROTATING);
+  }
+
+  @Benchmark
+  public String lmoveLeftRight() {
+    return listOps.move(ROTATING, LEFT, ROTATING, RIGHT);
+  }
+
+  @Benchmark
+  public String luaLeftPopRightPush() {
+    return redis.template().execute(LEFT_POP_RIGHT_PUSH, keys);
+  }
+
+  @Benchmark
+  public List<String> lpopCount() {
+    List<String> popped = listOps.leftPop(QUEUE, count);
+    listOps.rightPushAll(QUEUE, popped);
+    return popped;
+  }
+
+  @Benchmark
+  public List<String> lpopLoop() {
+    List<String> popped = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      popped.add(listOps.leftPop(QUEUE));
+    }
+    listOps.rightPushAll(QUEUE, popped);
+    return popped;
+  }
+
+  @Benchmark
+  public List<String> rpopCount() {
+    List<String> popped = listOps.rightPop(QUEUE, count);
+    listOps.leftPushAll(QUEUE, popped);
+    return popped;
+  }
+
+  @Benchmark
+  public List<String> rpopLoop() {
+    List<String> popped = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      popped.add(listOps.rightPop(QUEUE));
+    }
+    listOps.leftPushAll(QUEUE, popped);
+    return popped;
+  }
+}
@@ -0,0 +1,92 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.redis.redis.sixtwo.LookupCoalescer;
+
+/**
+ * 64 threads each doing single member lookups against one hot key, directly or through a
+ * {@link LookupCoalescer}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(64)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LookupCoalescerBenchmark {
+
+  private static final String SET = "bench:coalesce:set";
+  private static final String ZSET = "bench:coalesce:zset";
+
+  @Param({ "1000" })
+  int size;
+
+  @Param({ "100" })
+  int windowMicros;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> setOps;
+  private ZSetOperations<String, String> zSetOps;
+  private LookupCoalescer coalescer;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    setOps = redis.template().opsForSet();
+    zSetOps = redis.template().opsForZSet();
+    for (int i = 0; i < size; i += 2) {
+      setOps.add(SET, "member-" + i);
+      zSetOps.add(ZSET, "member-" + i, i);
+    }
+    coalescer = LookupCoalescer.builder(setOps, zSetOps) //
+        .window(Duration.ofNanos(windowMicros * 1000L)) //
+        .maxBatchSize(64) //
+        .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println(coalescer.metrics());
+    coalescer.close();
+    redis.close();
+  }
+
+  private String randomMember() {
+    return "member-" + ThreadLocalRandom.current().nextInt(size);
+  }
+
+  @Benchmark
+  public Boolean sismember() {
+    return setOps.isMember(SET, randomMember());
+  }
+
+  @Benchmark
+  public Boolean coalescedSismember() {
+    return coalescer.isMember(SET, randomMember()).join();
+  }
+
+  @Benchmark
+  public Double zscore() {
+    return zSetOps.score(ZSET, randomMember());
+  }
+
+  @Benchmark
+  public Double coalescedZscore() {
+    return coalescer.score(ZSET, randomMember()).join();
+  }
+}
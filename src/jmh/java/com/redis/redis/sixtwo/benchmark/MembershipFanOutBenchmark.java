@@ -0,0 +1,83 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.SetOperations;
+
+import com.redis.redis.sixtwo.MembershipFanOut;
+
+/**
+ * Checks {@code members} members against each of {@code keys} sets, one SMISMEMBER per key in
+ * a loop or all of them through {@link MembershipFanOut}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MembershipFanOutBenchmark {
+
+  @Param({ "10", "200", "1000" })
+  int keys;
+
+  @Param({ "1", "20" })
+  int members;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> setOps;
+  private MembershipFanOut fanOut;
+  private Map<String, List<String>> lookups;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    setOps = redis.template().opsForSet();
+    fanOut = new MembershipFanOut(redis.template());
+    lookups = new LinkedHashMap<>();
+    for (int k = 0; k < keys; k++) {
+      String key = "bench:fanout:" + k;
+      List<String> checked = new ArrayList<>();
+      for (int m = 0; m < members; m++) {
+        checked.add("user-" + m);
+        if ((k + m) % 3 == 0) {
+          setOps.add(key, "user-" + m);
+        }
+      }
+      lookups.put(key, checked);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.close();
+  }
+
+  @Benchmark
+  public Map<String, Map<Object, Boolean>> perKeyLoop() {
+    Map<String, Map<Object, Boolean>> result = new LinkedHashMap<>();
+    lookups.forEach((key, checked) -> result.put(key, setOps.isMember(key, checked.toArray())));
+    return result;
+  }
+
+  @Benchmark
+  public Map<String, Map<String, Boolean>> fanOut() {
+    return fanOut.isMember(lookups);
+  }
+
+  @Benchmark
+  public Map<String, Map<String, Boolean>> fanOutAsync() {
+    return fanOut.isMemberAsync(lookups).join();
+  }
+}
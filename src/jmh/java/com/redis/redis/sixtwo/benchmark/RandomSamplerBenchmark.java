@@ -0,0 +1,75 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.redis.redis.sixtwo.BulkLoader;
+import com.redis.redis.sixtwo.RandomSampler;
+
+/**
+ * 16 threads drawing random members of one sorted set with a ZRANDMEMBER per draw, or from a
+ * {@link RandomSampler} buffer of {@code batchSize} members.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class RandomSamplerBenchmark {
+
+  private static final String KEY = "bench:sampler";
+
+  @Param({ "10000" })
+  int size;
+
+  @Param({ "100", "1000", "10000" })
+  int batchSize;
+
+  private RedisTarget redis;
+  private ZSetOperations<String, String> zSetOps;
+  private RandomSampler sampler;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    zSetOps = redis.template().opsForZSet();
+    new BulkLoader(redis.template())
+        .loadSortedSets(IntStream.range(0, size).mapToObj(i -> BulkLoader.Row.scored(KEY, "candidate-" + i, i % 100)));
+    sampler = RandomSampler.forSortedSet(redis.template(), KEY).batchSize(batchSize).build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println(sampler.metrics());
+    sampler.close();
+    redis.flushAll();
+    redis.close();
+  }
+
+  @Benchmark
+  public String zrandmember() {
+    return zSetOps.randomMember(KEY);
+  }
+
+  @Benchmark
+  public String sampler() {
+    return sampler.sample();
+  }
+
+  @Benchmark
+  public String weightedSampler() {
+    return sampler.sampleWeighted();
+  }
+}
@@ -0,0 +1,104 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.SetOperations;
+
+import com.redis.redis.sixtwo.ReactiveCollectionOperations;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * {@code callers} concurrent membership checks per op: on a pool of as many platform threads
+ * through the blocking template, as concurrent reactive SISMEMBERs, and coalesced into
+ * SMISMEMBER batches by {@link ReactiveCollectionOperations}.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReactiveBenchmark {
+
+  private static final String KEY = "bench:reactive:set";
+
+  @Param({ "1000" })
+  int callers;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> setOps;
+  private ReactiveSetOperations<String, String> reactiveSetOps;
+  private ReactiveCollectionOperations collections;
+  private ExecutorService callerThreads;
+  private List<Callable<Boolean>> blockingCalls;
+  private List<String> members;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    setOps = redis.template().opsForSet();
+    reactiveSetOps = redis.reactiveTemplate().opsForSet();
+    collections = new ReactiveCollectionOperations(redis.reactiveTemplate(), 100, 8);
+    callerThreads = Executors.newFixedThreadPool(callers);
+
+    members = new ArrayList<>(callers);
+    blockingCalls = new ArrayList<>(callers);
+    for (int i = 0; i < callers; i++) {
+      String member = "member-" + i;
+      if (i % 2 == 0) {
+        setOps.add(KEY, member);
+      }
+      members.add(member);
+      blockingCalls.add(() -> setOps.isMember(KEY, member));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    callerThreads.shutdownNow();
+    redis.close();
+  }
+
+  @Benchmark
+  public int blockingThreads() throws Exception {
+    int found = 0;
+    for (Future<Boolean> result : callerThreads.invokeAll(blockingCalls)) {
+      if (Boolean.TRUE.equals(result.get())) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+  @Benchmark
+  public Long reactiveSingleCalls() {
+    return Flux.fromIterable(members) //
+        .flatMap(member -> reactiveSetOps.isMember(KEY, member), callers) //
+        .filter(Boolean::booleanValue) //
+        .count() //
+        .block();
+  }
+
+  @Benchmark
+  public Long reactiveCoalesced() {
+    return collections.isMember(KEY, Flux.fromIterable(members)) //
+        .filter(entry -> entry.getValue()) //
+        .count() //
+        .block();
+  }
+}
@@ -0,0 +1,68 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.redis.redis.sixtwo.embedded.EmbeddedRedis;
+
+/**
+ * The Redis server a benchmark fork talks to, picked from the {@code redis.host} and
+ * {@code redis.port} system properties (defaults to {@code localhost:6379}). With
+ * {@code redis.standin=embedded} every fork starts its own {@link EmbeddedRedis} instead, a
+ * deterministic target that needs no server.
+ */
+final class RedisTarget implements AutoCloseable {
+
+  private final LettuceConnectionFactory connectionFactory;
+  private final StringRedisTemplate template;
+  private final ReactiveStringRedisTemplate reactiveTemplate;
+  private final EmbeddedRedis embedded;
+
+  private RedisTarget(LettuceConnectionFactory connectionFactory, EmbeddedRedis embedded) {
+    this.connectionFactory = connectionFactory;
+    this.embedded = embedded;
+    this.template = new StringRedisTemplate(connectionFactory);
+    this.reactiveTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+  }
+
+  static RedisTarget connect() {
+    EmbeddedRedis embedded = "embedded".equals(System.getProperty("redis.standin")) ? EmbeddedRedis.start() : null;
+    String host = embedded != null ? embedded.getHost() : System.getProperty("redis.host", "localhost");
+    int port = embedded != null ? embedded.getPort() : Integer.getInteger("redis.port", 6379);
+
+    LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+        new RedisStandaloneConfiguration(host, port));
+    connectionFactory.afterPropertiesSet();
+    return new RedisTarget(connectionFactory, embedded);
+  }
+
+  StringRedisTemplate template() {
+    return template;
+  }
+
+  ReactiveStringRedisTemplate reactiveTemplate() {
+    return reactiveTemplate;
+  }
+
+  LettuceConnectionFactory connectionFactory() {
+    return connectionFactory;
+  }
+
+  void flushAll() {
+    template.execute((RedisCallback<Void>) connection -> {
+      connection.serverCommands().flushAll();
+      return null;
+    });
+  }
+
+  @Override
+  public void close() {
+    connectionFactory.destroy();
+    if (embedded != null) {
+      embedded.close();
+    }
+  }
+}
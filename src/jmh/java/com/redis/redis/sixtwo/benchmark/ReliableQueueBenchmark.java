@@ -0,0 +1,99 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import com.redis.redis.sixtwo.ReliableQueue;
+
+/**
+ * Each op enqueues {@code items} items and waits until all of them are handled and acked,
+ * either by a {@link ReliableQueue} (BLMOVE + pipelined LREM) or by the script based
+ * pattern it replaces: one EVAL to move an item into the processing list and one LREM per
+ * ack.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ReliableQueueBenchmark {
+
+  private static final RedisScript<String> FETCH = new DefaultRedisScript<>(
+      "local v = redis.call('RPOP', KEYS[1]) if v then redis.call('LPUSH', KEYS[2], v) end return v",
+      String.class);
+
+  @Param({ "1000" })
+  int items;
+
+  @Param({ "4" })
+  int fetchers;
+
+  private RedisTarget redis;
+  private StringRedisTemplate template;
+  private ReliableQueue queue;
+  private String[] payload;
+  private final AtomicLong handled = new AtomicLong();
+  private List<String> scriptKeys;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    template = redis.template();
+    scriptKeys = List.of("bench:scripted:pending", "bench:scripted:processing");
+
+    payload = new String[items];
+    for (int i = 0; i < items; i++) {
+      payload[i] = "job-" + i;
+    }
+
+    queue = ReliableQueue.builder(template, "bench:reliable", item -> handled.incrementAndGet()) //
+        .fetchers(fetchers) //
+        .concurrency(fetchers * 2) //
+        .build();
+    queue.start();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.println(queue.metrics());
+    queue.close();
+    redis.close();
+  }
+
+  @Benchmark
+  public long reliableQueue() {
+    long target = handled.get() + items;
+    queue.enqueue(payload);
+    while (handled.get() < target) {
+      LockSupport.parkNanos(10_000);
+    }
+    return target;
+  }
+
+  @Benchmark
+  public long scriptedFetchAndAck() {
+    template.opsForList().leftPushAll(scriptKeys.get(0), payload);
+    long count = 0;
+    String item;
+    while ((item = template.execute(FETCH, scriptKeys)) != null) {
+      template.opsForList().remove(scriptKeys.get(1), 1, item);
+      count++;
+    }
+    return count;
+  }
+}
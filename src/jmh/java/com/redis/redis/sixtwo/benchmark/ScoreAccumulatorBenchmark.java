@@ -0,0 +1,72 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.redis.redis.sixtwo.ScoreAccumulator;
+
+/**
+ * 16 threads scoring events for {@code players} players on two games, one ZINCRBY per event
+ * or through a {@link ScoreAccumulator}. Updates absorbed per command are printed at the end of
+ * the trial.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(16)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScoreAccumulatorBenchmark {
+
+  private static final String[] GAMES = { "bench:accumulator:game1", "bench:accumulator:game2" };
+
+  @Param({ "1000", "100000" })
+  int players;
+
+  @Param({ "100" })
+  int maxDelayMillis;
+
+  private RedisTarget redis;
+  private ZSetOperations<String, String> zSetOps;
+  private ScoreAccumulator accumulator;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    zSetOps = redis.template().opsForZSet();
+    accumulator = ScoreAccumulator.builder(redis.template()) //
+        .maxDelay(Duration.ofMillis(maxDelayMillis)) //
+        .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    accumulator.close();
+    System.out.println(accumulator.metrics());
+    redis.close();
+  }
+
+  @Benchmark
+  public Double zincrby() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    return zSetOps.incrementScore(GAMES[random.nextInt(2)], "player-" + random.nextInt(players), 1);
+  }
+
+  @Benchmark
+  public void accumulated() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    accumulator.incrementScore(GAMES[random.nextInt(2)], "player-" + random.nextInt(players), 1);
+  }
+}
@@ -0,0 +1,98 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.ScoreRollups;
+
+/**
+ * A day of per-shard hourly inputs (24 × {@code shards} score sets of {@code members}
+ * members). Each op changes one score and reads the day's top 10, either by recomputing the
+ * union of every input or through {@link ScoreRollups}, which only recomputes the changed hour
+ * and the day and week above it.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScoreRollupsBenchmark {
+
+  private static final Instant DAY = Instant.parse("2021-08-02T00:00:00Z");
+
+  @Param({ "1", "4", "16" })
+  int shards;
+
+  @Param({ "1000" })
+  int members;
+
+  private RedisTarget redis;
+  private ScoreRollups rollups;
+  private List<String> inputs;
+  private String naiveKey;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    rollups = new ScoreRollups(redis.template(), "bench:rollups", ZoneOffset.UTC);
+    naiveKey = "bench:naive:day";
+
+    inputs = new ArrayList<>();
+    for (int hour = 0; hour < 24; hour++) {
+      for (int shard = 0; shard < shards; shard++) {
+        String input = rollups.markChanged("shard-" + shard, DAY.plus(Duration.ofHours(hour)));
+        inputs.add(input);
+        redis.template().executePipelined((RedisCallback<Object>) connection -> {
+          StringRedisConnection stringConnection = (StringRedisConnection) connection;
+          for (int i = 0; i < members; i++) {
+            stringConnection.zAdd(input, ThreadLocalRandom.current().nextInt(1000), "player-" + i);
+          }
+          return null;
+        });
+      }
+    }
+    rollups.refresh();
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.close();
+  }
+
+  private Instant randomHour() {
+    return DAY.plus(Duration.ofHours(ThreadLocalRandom.current().nextInt(24)));
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> naiveFullUnion() {
+    int input = ThreadLocalRandom.current().nextInt(inputs.size());
+    redis.template().opsForZSet().incrementScore(inputs.get(input), "player-0", 1);
+    redis.template().opsForZSet().unionAndStore(inputs.get(0), inputs.subList(1, inputs.size()), naiveKey);
+    return redis.template().opsForZSet().reverseRangeWithScores(naiveKey, 0, 9);
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> incrementalRollup() {
+    rollups.record("shard-" + ThreadLocalRandom.current().nextInt(shards), "player-0", 1, randomHour());
+    rollups.refresh();
+    return rollups.top(ScoreRollups.Granularity.DAY, DAY, 10);
+  }
+}
@@ -0,0 +1,110 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.BulkLoader;
+import com.redis.redis.sixtwo.ScoreTable;
+import com.redis.redis.sixtwo.ScoreTableCommands;
+
+/**
+ * Range and ZMSCORE reads decoded into a reused {@link ScoreTable} against the
+ * {@code TypedTuple} / {@code List<Double>} path of {@code ZSetOperations}. The runner's GC
+ * profiler reports the allocation rate per op.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScoreTableBenchmark {
+
+  private static final String KEY = "bench:table";
+
+  @Param({ "10000" })
+  int size;
+
+  @Param({ "100" })
+  int lookups;
+
+  private RedisTarget redis;
+  private ZSetOperations<String, String> zSetOps;
+  private ScoreTableCommands commands;
+  private Object[] members;
+  private String[] memberStrings;
+
+  // one table per thread in real use, benchmarks here run single threaded
+  private final ScoreTable table = new ScoreTable();
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    zSetOps = redis.template().opsForZSet();
+    commands = new ScoreTableCommands(redis.template());
+    new BulkLoader(redis.template())
+        .loadSortedSets(IntStream.range(0, size).mapToObj(i -> BulkLoader.Row.scored(KEY, "player-" + i, i * 1.5)));
+    memberStrings = IntStream.range(0, lookups).mapToObj(i -> "player-" + (i * 7 % size)).toArray(String[]::new);
+    members = memberStrings;
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.flushAll();
+    redis.close();
+  }
+
+  @Benchmark
+  public double rangeTypedTuples() {
+    Set<TypedTuple<String>> tuples = zSetOps.rangeWithScores(KEY, 0, -1);
+    double sum = 0;
+    for (TypedTuple<String> tuple : tuples) {
+      sum += tuple.getScore();
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double rangeScoreTable() {
+    commands.rangeWithScores(KEY, 0, -1, false, table);
+    double[] scores = table.scores();
+    double sum = 0;
+    for (int i = 0; i < table.size(); i++) {
+      sum += scores[i];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double mscoreBoxed() {
+    List<Double> scores = zSetOps.score(KEY, members);
+    double sum = 0;
+    for (Double score : scores) {
+      sum += score;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double mscoreScoreTable() {
+    commands.scores(KEY, table, memberStrings);
+    double[] scores = table.scores();
+    double sum = 0;
+    for (int i = 0; i < table.size(); i++) {
+      sum += scores[i];
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,165 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import com.redis.redis.sixtwo.BinaryRedisConfiguration;
+import com.redis.redis.sixtwo.VarintLongRedisSerializer;
+
+/**
+ * The same {@code members} numeric IDs checked with SMISMEMBER as decimal strings, as 8 byte
+ * {@code byte[]}s and as varints, plus the codec cost alone, and a list of JSON-like payloads
+ * read back as strings and deflated. The bytes each variant sends per op are printed at the end
+ * of the trial.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SerializerBenchmark {
+
+  private static final String SET = "bench:serializer:set";
+  private static final byte[] BINARY_SET = "bench:serializer:set:binary".getBytes();
+  private static final String VARINT_SET = "bench:serializer:set:varint";
+  private static final String LIST = "bench:serializer:list";
+  private static final String COMPRESSED_LIST = "bench:serializer:list:compressed";
+
+  @Param({ "100" })
+  int members;
+
+  @Param({ "1000" })
+  int payloadBytes;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> stringSetOps;
+  private SetOperations<byte[], byte[]> byteArraySetOps;
+  private SetOperations<String, Long> idSetOps;
+  private RedisTemplate<String, String> compressedTemplate;
+
+  private long[] ids;
+  private String[] stringIds;
+  private byte[][] byteArrayIds;
+  private Long[] longIds;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    BinaryRedisConfiguration configuration = new BinaryRedisConfiguration();
+    RedisTemplate<byte[], byte[]> byteArrayTemplate = configuration.byteArrayRedisTemplate(redis.connectionFactory());
+    RedisTemplate<String, Long> idTemplate = configuration.compactIdRedisTemplate(redis.connectionFactory());
+    compressedTemplate = configuration.compressedRedisTemplate(redis.connectionFactory());
+    byteArrayTemplate.afterPropertiesSet();
+    idTemplate.afterPropertiesSet();
+    compressedTemplate.afterPropertiesSet();
+    stringSetOps = redis.template().opsForSet();
+    byteArraySetOps = byteArrayTemplate.opsForSet();
+    idSetOps = idTemplate.opsForSet();
+
+    Random random = new Random(42);
+    ids = new long[members];
+    stringIds = new String[members];
+    byteArrayIds = new byte[members][];
+    longIds = new Long[members];
+    for (int i = 0; i < members; i++) {
+      ids[i] = random.nextInt(1 << 30);
+      stringIds[i] = Long.toString(ids[i]);
+      byteArrayIds[i] = ByteBuffer.allocate(Long.BYTES).putLong(ids[i]).array();
+      longIds[i] = ids[i];
+    }
+    // one key per variant, holding the same ids in its own encoding
+    stringSetOps.add(SET, stringIds);
+    byteArraySetOps.add(BINARY_SET, byteArrayIds);
+    idSetOps.add(VARINT_SET, longIds);
+
+    List<String> payloads = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      payloads.add(payload(random));
+    }
+    redis.template().opsForList().rightPushAll(LIST, payloads);
+    compressedTemplate.opsForList().rightPushAll(COMPRESSED_LIST, payloads);
+  }
+
+  @TearDown
+  public void tearDown() {
+    long stringBytes = 0;
+    long varintBytes = 0;
+    for (long id : ids) {
+      stringBytes += Long.toString(id).length();
+      varintBytes += VarintLongRedisSerializer.INSTANCE.serialize(id).length;
+    }
+    long listBytes = redis.template().opsForList().range(LIST, 0, -1).stream().mapToLong(String::length).sum();
+    long compressedBytes = redis.template().execute(connection -> connection.listCommands()
+        .lRange(COMPRESSED_LIST.getBytes(), 0, -1), true).stream().mapToLong(value -> value.length).sum();
+    System.out.printf("member bytes per SMISMEMBER: string %d, byte[] %d, varint %d%n", stringBytes,
+        (long) ids.length * Long.BYTES, varintBytes);
+    System.out.printf("reply bytes per LRANGE: string %d, compressed %d%n", listBytes, compressedBytes);
+    redis.close();
+  }
+
+  private String payload(Random random) {
+    StringBuilder json = new StringBuilder("{\"items\":[");
+    while (json.length() < payloadBytes) {
+      json.append("{\"id\":").append(random.nextInt(1000)).append(",\"state\":\"active\"},");
+    }
+    return json.append("{}]}").toString();
+  }
+
+  @Benchmark
+  public Map<Object, Boolean> stringSmismember() {
+    return stringSetOps.isMember(SET, (Object[]) stringIds);
+  }
+
+  @Benchmark
+  public Map<Object, Boolean> byteArraySmismember() {
+    return byteArraySetOps.isMember(BINARY_SET, (Object[]) byteArrayIds);
+  }
+
+  @Benchmark
+  public Map<Object, Boolean> varintSmismember() {
+    return idSetOps.isMember(VARINT_SET, (Object[]) longIds);
+  }
+
+  @Benchmark
+  public void stringCodec(Blackhole blackhole) {
+    RedisSerializer<String> serializer = RedisSerializer.string();
+    for (long id : ids) {
+      blackhole.consume(Long.parseLong(serializer.deserialize(serializer.serialize(Long.toString(id)))));
+    }
+  }
+
+  @Benchmark
+  public void varintCodec(Blackhole blackhole) {
+    for (long id : ids) {
+      VarintLongRedisSerializer serializer = VarintLongRedisSerializer.INSTANCE;
+      blackhole.consume(serializer.deserialize(serializer.serialize(id)));
+    }
+  }
+
+  @Benchmark
+  public List<String> stringLrange() {
+    return redis.template().opsForList().range(LIST, 0, -1);
+  }
+
+  @Benchmark
+  public List<String> compressedLrange() {
+    return compressedTemplate.opsForList().range(COMPRESSED_LIST, 0, -1);
+  }
+}
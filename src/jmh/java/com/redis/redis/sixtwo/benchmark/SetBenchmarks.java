@@ -0,0 +1,89 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+
+/**
+ * SMISMEMBER against N SISMEMBER calls, one round trip each or pipelined. Half of the
+ * probed members are in the set.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SetBenchmarks {
+
+  private static final String KEY = "bench:set";
+
+  @Param({ "10000" })
+  int size;
+
+  @Param({ "10", "100" })
+  int members;
+
+  private RedisTarget redis;
+  private SetOperations<String, String> setOps;
+  private Object[] probes;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    setOps = redis.template().opsForSet();
+
+    String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = "member-" + i;
+    }
+    setOps.add(KEY, values);
+
+    probes = new Object[members];
+    for (int i = 0; i < members; i++) {
+      probes[i] = i % 2 == 0 ? "member-" + (i * (size / members)) : "missing-" + i;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.close();
+  }
+
+  @Benchmark
+  public Map<Object, Boolean> smismember() {
+    return setOps.isMember(KEY, probes);
+  }
+
+  @Benchmark
+  public List<Boolean> sismemberLoop() {
+    List<Boolean> result = new ArrayList<>(probes.length);
+    for (Object probe : probes) {
+      result.add(setOps.isMember(KEY, probe));
+    }
+    return result;
+  }
+
+  @Benchmark
+  public List<Object> sismemberPipelined() {
+    return redis.template().executePipelined((RedisCallback<Object>) connection -> {
+      StringRedisConnection stringConnection = (StringRedisConnection) connection;
+      for (Object probe : probes) {
+        stringConnection.sIsMember(KEY, (String) probe);
+      }
+      return null;
+    });
+  }
+}
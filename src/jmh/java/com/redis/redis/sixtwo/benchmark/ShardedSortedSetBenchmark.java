@@ -0,0 +1,98 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.ShardedSortedSet;
+
+/**
+ * Writes, top-N, rank and ZMSCORE on a board of {@code size} members split over 1 to 64
+ * shards, from 8 threads. Against a single standalone server the shards share one core, so
+ * this shows the fan-out cost; the write gain needs a cluster that spreads the shard keys.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ShardedSortedSetBenchmark {
+
+  @Param({ "1", "2", "4", "8", "16", "32", "64" })
+  int shards;
+
+  @Param({ "100000" })
+  int size;
+
+  private RedisTarget redis;
+  private ShardedSortedSet board;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    board = new ShardedSortedSet(redis.template(), "bench:sharded", shards);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Map<String, Double> scores = new LinkedHashMap<>();
+    for (int i = 0; i < size; i++) {
+      scores.put("player-" + i, (double) random.nextInt(1_000_000));
+      if (scores.size() == 10_000) {
+        board.addAll(scores);
+        scores.clear();
+      }
+    }
+    board.addAll(scores);
+  }
+
+  @TearDown
+  public void tearDown() {
+    board.close();
+    redis.close();
+  }
+
+  private String randomPlayer() {
+    return "player-" + ThreadLocalRandom.current().nextInt(size);
+  }
+
+  @Benchmark
+  public Double incrementScore() {
+    return board.incrementScore(randomPlayer(), 1);
+  }
+
+  @Benchmark
+  public List<TypedTuple<String>> top10() {
+    return board.top(10);
+  }
+
+  @Benchmark
+  public List<TypedTuple<String>> top100() {
+    return board.top(100);
+  }
+
+  @Benchmark
+  public Long rank() {
+    return board.rank(randomPlayer());
+  }
+
+  @Benchmark
+  public List<Double> scores() {
+    String[] players = new String[20];
+    for (int i = 0; i < players.length; i++) {
+      players[i] = randomPlayer();
+    }
+    return board.scores(players);
+  }
+}
@@ -0,0 +1,137 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+/**
+ * ZMSCORE, ZINTER, ZDIFF and ZDIFFSTORE against their pre-6.2 equivalents: N ZSCORE calls,
+ * ZINTERSTORE into a scratch key, a client side diff and a Lua diff.
+ *
+ * {@code game1} and {@code game2} overlap by half of their members.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SortedSetBenchmarks {
+
+  private static final String GAME_1 = "bench:game1";
+  private static final String GAME_2 = "bench:game2";
+  private static final String SCRATCH = "bench:scratch";
+  private static final String OUT = "bench:only_game_1";
+
+  private static final RedisScript<Long> DIFF_STORE = new DefaultRedisScript<>(
+      "redis.call('DEL', KEYS[3]) "
+          + "local a = redis.call('ZRANGE', KEYS[1], 0, -1, 'WITHSCORES') "
+          + "for i = 1, #a, 2 do "
+          + "  if not redis.call('ZSCORE', KEYS[2], a[i]) then redis.call('ZADD', KEYS[3], a[i + 1], a[i]) end "
+          + "end "
+          + "return redis.call('ZCARD', KEYS[3])",
+      Long.class);
+
+  @Param({ "100", "10000" })
+  int size;
+
+  @Param({ "10" })
+  int members;
+
+  private RedisTarget redis;
+  private ZSetOperations<String, String> zSetOps;
+  private Object[] probes;
+  private List<String> diffStoreKeys;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    zSetOps = redis.template().opsForZSet();
+    diffStoreKeys = List.of(GAME_1, GAME_2, OUT);
+
+    Set<TypedTuple<String>> game1 = new HashSet<>();
+    Set<TypedTuple<String>> game2 = new HashSet<>();
+    for (int i = 0; i < size; i++) {
+      game1.add(TypedTuple.of("player-" + i, (double) i));
+      game2.add(TypedTuple.of("player-" + (i + size / 2), (double) (size - i)));
+    }
+    zSetOps.add(GAME_1, game1);
+    zSetOps.add(GAME_2, game2);
+
+    probes = new Object[members];
+    for (int i = 0; i < members; i++) {
+      probes[i] = "player-" + (i * 2);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    redis.close();
+  }
+
+  @Benchmark
+  public List<Double> zmscore() {
+    return zSetOps.score(GAME_1, probes);
+  }
+
+  @Benchmark
+  public List<Double> zscoreLoop() {
+    List<Double> scores = new ArrayList<>(probes.length);
+    for (Object probe : probes) {
+      scores.add(zSetOps.score(GAME_1, probe));
+    }
+    return scores;
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> zinterWithScores() {
+    return zSetOps.intersectWithScores(GAME_1, GAME_2);
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> zinterstoreAndRange() {
+    zSetOps.intersectAndStore(GAME_1, GAME_2, SCRATCH);
+    Set<TypedTuple<String>> result = zSetOps.rangeWithScores(SCRATCH, 0, -1);
+    redis.template().delete(SCRATCH);
+    return result;
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> zdiffWithScores() {
+    return zSetOps.differenceWithScores(GAME_1, GAME_2);
+  }
+
+  @Benchmark
+  public Set<TypedTuple<String>> clientSideDiff() {
+    Set<TypedTuple<String>> game1 = zSetOps.rangeWithScores(GAME_1, 0, -1);
+    Set<String> game2 = zSetOps.range(GAME_2, 0, -1);
+    return game1.stream() //
+        .filter(tuple -> !game2.contains(tuple.getValue())) //
+        .collect(Collectors.toSet());
+  }
+
+  @Benchmark
+  public Long zdiffstore() {
+    return zSetOps.differenceAndStore(GAME_1, List.of(GAME_2), OUT);
+  }
+
+  @Benchmark
+  public Long luaDiffStore() {
+    return redis.template().execute(DIFF_STORE, diffStoreKeys);
+  }
+}
@@ -0,0 +1,83 @@
+package com.redis.redis.sixtwo.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import com.redis.redis.sixtwo.TrackingNearCache;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+
+/**
+ * ZMSCORE of {@code members} random members of a leaderboard that doesn't change, through
+ * {@link TrackingNearCache} and straight to Redis.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TrackingNearCacheBenchmark {
+
+  private static final String KEY = "bench:cached:leaderboard";
+
+  @Param({ "10000" })
+  int size;
+
+  @Param({ "10" })
+  int members;
+
+  private RedisTarget redis;
+  private ZSetOperations<String, String> zSetOps;
+  private RedisClient client;
+  private TrackingNearCache cache;
+
+  @Setup
+  public void setUp() {
+    redis = RedisTarget.connect();
+    redis.flushAll();
+    zSetOps = redis.template().opsForZSet();
+    for (int i = 0; i < size; i++) {
+      zSetOps.add(KEY, "player-" + i, i);
+    }
+    client = RedisClient.create(RedisURI.create(System.getProperty("redis.host", "localhost"),
+        Integer.getInteger("redis.port", 6379)));
+    cache = new TrackingNearCache(client, size);
+  }
+
+  @TearDown
+  public void tearDown() {
+    System.out.println(cache.metrics());
+    cache.close();
+    client.shutdown();
+    redis.close();
+  }
+
+  private String[] probes() {
+    String[] probes = new String[members];
+    for (int i = 0; i < members; i++) {
+      probes[i] = "player-" + ThreadLocalRandom.current().nextInt(size);
+    }
+    return probes;
+  }
+
+  @Benchmark
+  public List<Double> nearCache() {
+    return cache.score(KEY, probes());
+  }
+
+  @Benchmark
+  public List<Double> zmscore() {
+    return zSetOps.score(KEY, (Object[]) probes());
+  }
+}
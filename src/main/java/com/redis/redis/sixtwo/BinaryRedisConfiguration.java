@@ -0,0 +1,67 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Templates for binary members next to the auto-configured {@code stringRedisTemplate}, which
+ * UTF-8 encodes and decodes every key and value into a {@link String}, when
+ * {@code app.redis.binary-templates.enabled} is set. Inject their operations the same way, by
+ * name, e.g.
+ * {@code @Resource(name = "byteArrayRedisTemplate") SetOperations<byte[], byte[]> setOps}.
+ * They are not candidates for injection by type, so they never make a
+ * {@code RedisTemplate<String, String>} or {@code RedisTemplate<?, ?>} dependency ambiguous.
+ *
+ * <ul>
+ * <li>{@code byteArrayRedisTemplate}: keys and values are passed through as they are</li>
+ * <li>{@code byteBufferRedisTemplate}: the same for {@link ByteBuffer}s, replies are wrapped
+ * without a copy</li>
+ * <li>{@code compactIdRedisTemplate}: string keys, {@code long} IDs as varints</li>
+ * <li>{@code compressedRedisTemplate}: string keys, string values deflated from
+ * {@value #COMPRESSION_THRESHOLD} bytes on, for list payloads</li>
+ * </ul>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.redis.binary-templates", name = "enabled", havingValue = "true")
+public class BinaryRedisConfiguration {
+
+  static final int COMPRESSION_THRESHOLD = 256;
+
+  @Bean(autowireCandidate = false)
+  public RedisTemplate<byte[], byte[]> byteArrayRedisTemplate(RedisConnectionFactory connectionFactory) {
+    return template(connectionFactory, RedisSerializer.byteArray(), RedisSerializer.byteArray());
+  }
+
+  @Bean(autowireCandidate = false)
+  public RedisTemplate<ByteBuffer, ByteBuffer> byteBufferRedisTemplate(RedisConnectionFactory connectionFactory) {
+    return template(connectionFactory, ByteBufferRedisSerializer.INSTANCE, ByteBufferRedisSerializer.INSTANCE);
+  }
+
+  @Bean(autowireCandidate = false)
+  public RedisTemplate<String, Long> compactIdRedisTemplate(RedisConnectionFactory connectionFactory) {
+    return template(connectionFactory, RedisSerializer.string(), VarintLongRedisSerializer.INSTANCE);
+  }
+
+  @Bean(autowireCandidate = false)
+  public RedisTemplate<String, String> compressedRedisTemplate(RedisConnectionFactory connectionFactory) {
+    return template(connectionFactory, RedisSerializer.string(),
+        new CompressingRedisSerializer<>(RedisSerializer.string(), COMPRESSION_THRESHOLD));
+  }
+
+  private static <K, V> RedisTemplate<K, V> template(RedisConnectionFactory connectionFactory,
+      RedisSerializer<K> keySerializer, RedisSerializer<V> valueSerializer) {
+    RedisTemplate<K, V> template = new RedisTemplate<>();
+    template.setConnectionFactory(connectionFactory);
+    template.setKeySerializer(keySerializer);
+    template.setValueSerializer(valueSerializer);
+    template.setHashKeySerializer(keySerializer);
+    template.setHashValueSerializer(valueSerializer);
+    return template;
+  }
+}
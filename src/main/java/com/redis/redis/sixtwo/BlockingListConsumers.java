@@ -0,0 +1,357 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LMoveArgs;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.support.ConnectionPoolSupport;
+
+/**
+ * One blocking consumer per list: BRPOP, or with {@link Builder#processingSuffix(String)}
+ * BLMOVE (#6929) onto {@code <list><suffix>} and LREM once handled, so an item being handled
+ * is never only in this JVM. A failed item is pushed back onto its list; what is left on a
+ * processing list after a crash is not requeued, {@link ReliableQueue} covers that.
+ *
+ * Every consumer runs on its own thread, {@link ThreadMode#VIRTUAL virtual} ones on Java 21,
+ * and borrows a connection from a pool of its own for each blocking wait. The pool is separate
+ * from the application's connection factory so that thousands of parked waits never starve
+ * ordinary commands; with {@code maxConnections} below the number of lists, consumers take
+ * turns waiting and an item may sit until its consumer gets a connection.
+ *
+ * The handler runs on the consumer's thread, a slow handler only delays its own list.
+ */
+public class BlockingListConsumers implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(BlockingListConsumers.class);
+
+  private final String name;
+  private final Set<String> lists;
+  private final BiConsumer<String, String> handler;
+  private final ThreadMode threadMode;
+  private final Duration blockTimeout;
+  private final String processingSuffix;
+  private final GenericObjectPool<StatefulRedisConnection<String, String>> pool;
+  private final List<Thread> threads = new ArrayList<>();
+  private final Set<Thread> popping = new LinkedHashSet<>();
+  private final Map<Thread, Map.Entry<String, String>> handling = new ConcurrentHashMap<>();
+
+  private final LongAdder received = new LongAdder();
+  private final LongAdder handled = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder emptyWaits = new LongAdder();
+
+  private volatile boolean running;
+
+  private BlockingListConsumers(Builder builder) {
+    this.name = builder.name;
+    this.lists = new LinkedHashSet<>(builder.lists);
+    this.handler = builder.handler;
+    this.threadMode = builder.threadMode;
+    this.blockTimeout = builder.blockTimeout;
+    this.processingSuffix = builder.processingSuffix;
+    GenericObjectPoolConfig<StatefulRedisConnection<String, String>> config = new GenericObjectPoolConfig<>();
+    int connections = builder.maxConnections > 0 ? builder.maxConnections : lists.size();
+    config.setMaxTotal(connections);
+    config.setMaxIdle(connections);
+    config.setJmxEnabled(false);
+    this.pool = ConnectionPoolSupport.createGenericObjectPool(builder.client::connect, config);
+  }
+
+  /**
+   * @param handler called with the list and the item
+   */
+  public static Builder builder(RedisClient client, String name, BiConsumer<String, String> handler) {
+    return new Builder(client, name, handler);
+  }
+
+  public synchronized void start() {
+    Assert.state(!running, "Consumers " + name + " are already running");
+    running = true;
+    ThreadFactory factory = threadMode.threadFactory("blocking-list-" + name + "-");
+    for (String list : lists) {
+      Thread thread = factory.newThread(() -> consume(list));
+      threads.add(thread);
+      thread.start();
+    }
+    log.info("Started {} {} consumers for {}", lists.size(), threadMode, name);
+  }
+
+  /**
+   * Stops waiting once the current waits time out, then closes the connections. Consumers still
+   * parked in a pop after that are interrupted; handlers still running are left to finish and
+   * their items are logged, as their acks may fail once the pool is closed.
+   */
+  @Override
+  public synchronized void close() {
+    if (!running) {
+      return;
+    }
+    synchronized (popping) {
+      running = false;
+    }
+    long deadline = System.nanoTime() + blockTimeout.multipliedBy(2).plusSeconds(1).toNanos();
+    try {
+      for (Thread thread : threads) {
+        long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (left > 0) {
+          thread.join(left);
+        }
+        synchronized (popping) {
+          if (popping.contains(thread)) {
+            thread.interrupt();
+          }
+        }
+        Map.Entry<String, String> item = handling.get(thread);
+        if (item != null) {
+          log.warn("Abandoning item {} of {}, its handler is still running{}", item.getValue(), item.getKey(),
+              processingSuffix != null ? " and it stays on " + item.getKey() + processingSuffix : "");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    threads.clear();
+    pool.close();
+  }
+
+  public Metrics metrics() {
+    return new Metrics(lists.size(), pool.getNumActive(), pool.getNumIdle(), received.sum(), handled.sum(),
+        failures.sum(), emptyWaits.sum());
+  }
+
+  private void consume(String list) {
+    String processing = processingSuffix != null ? list + processingSuffix : null;
+    long timeout = Math.max(1, blockTimeout.getSeconds());
+    while (running) {
+      synchronized (popping) {
+        if (!running) {
+          return;
+        }
+        popping.add(Thread.currentThread());
+      }
+      String item;
+      try (StatefulRedisConnection<String, String> connection = pool.borrowObject()) {
+        RedisCommands<String, String> commands = connection.sync();
+        if (processing != null) {
+          item = commands.blmove(list, processing, LMoveArgs.Builder.rightLeft(), timeout);
+        } else {
+          KeyValue<String, String> popped = commands.brpop(timeout, list);
+          item = popped != null && popped.hasValue() ? popped.getValue() : null;
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (Exception e) {
+        if (!running) {
+          return;
+        }
+        log.warn("Blocking pop on {} failed", list, e);
+        sleep(blockTimeout);
+        continue;
+      } finally {
+        synchronized (popping) {
+          popping.remove(Thread.currentThread());
+          // an interrupt that came in as the pop returned must not reach the handler
+          Thread.interrupted();
+        }
+      }
+      if (item == null) {
+        emptyWaits.increment();
+        continue;
+      }
+      received.increment();
+      handling.put(Thread.currentThread(), new SimpleImmutableEntry<>(list, item));
+      try {
+        handle(list, processing, item);
+      } finally {
+        handling.remove(Thread.currentThread());
+      }
+    }
+  }
+
+  private void handle(String list, String processing, String item) {
+    boolean ok = false;
+    try {
+      handler.accept(list, item);
+      handled.increment();
+      ok = true;
+    } catch (RuntimeException e) {
+      failures.increment();
+      log.error("Handler failed on {}", list, e);
+    }
+    if (processing == null) {
+      // BRPOP already removed it, a failed item is lost
+      return;
+    }
+    try (StatefulRedisConnection<String, String> connection = pool.borrowObject()) {
+      RedisCommands<String, String> commands = connection.sync();
+      if (ok) {
+        commands.lrem(processing, 1, item);
+      } else {
+        // one transaction, so the item is never on both lists or on neither
+        commands.multi();
+        try {
+          commands.lrem(processing, 1, item);
+          commands.lpush(list, item);
+          commands.exec();
+        } finally {
+          if (connection.isMulti()) {
+            commands.discard();
+          }
+        }
+      }
+    } catch (Exception e) {
+      log.warn("Failed to ack an item on {}, it stays on {}", list, processing, e);
+    }
+  }
+
+  private static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public static class Builder {
+
+    private final RedisClient client;
+    private final String name;
+    private final BiConsumer<String, String> handler;
+    private final Set<String> lists = new LinkedHashSet<>();
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+    private Duration blockTimeout = Duration.ofSeconds(1);
+    private String processingSuffix;
+    private int maxConnections;
+
+    private Builder(RedisClient client, String name, BiConsumer<String, String> handler) {
+      this.client = client;
+      this.name = name;
+      this.handler = handler;
+    }
+
+    public Builder lists(String... lists) {
+      this.lists.addAll(List.of(lists));
+      return this;
+    }
+
+    public Builder threadMode(ThreadMode threadMode) {
+      this.threadMode = threadMode;
+      return this;
+    }
+
+    /**
+     * Longest single wait, whole seconds (Lettuce 6.1 sends an integer timeout). Also bounds
+     * how long {@link BlockingListConsumers#close()} takes.
+     */
+    public Builder blockTimeout(Duration blockTimeout) {
+      this.blockTimeout = blockTimeout;
+      return this;
+    }
+
+    /**
+     * BLMOVE items onto {@code <list><suffix>} instead of BRPOPing them.
+     */
+    public Builder processingSuffix(String processingSuffix) {
+      this.processingSuffix = processingSuffix;
+      return this;
+    }
+
+    /**
+     * Connections in the pool, one per list by default.
+     */
+    public Builder maxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    public BlockingListConsumers build() {
+      Assert.notEmpty(lists, "Need at least one list");
+      Assert.isTrue(blockTimeout.getSeconds() >= 1, "blockTimeout must be at least one second");
+      return new BlockingListConsumers(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final int consumers;
+    private final int activeConnections;
+    private final int idleConnections;
+    private final long received;
+    private final long handled;
+    private final long failures;
+    private final long emptyWaits;
+
+    Metrics(int consumers, int activeConnections, int idleConnections, long received, long handled, long failures,
+        long emptyWaits) {
+      this.consumers = consumers;
+      this.activeConnections = activeConnections;
+      this.idleConnections = idleConnections;
+      this.received = received;
+      this.handled = handled;
+      this.failures = failures;
+      this.emptyWaits = emptyWaits;
+    }
+
+    public int getConsumers() {
+      return consumers;
+    }
+
+    /**
+     * Connections currently borrowed, mostly by parked waits.
+     */
+    public int getActiveConnections() {
+      return activeConnections;
+    }
+
+    public int getIdleConnections() {
+      return idleConnections;
+    }
+
+    public long getReceived() {
+      return received;
+    }
+
+    public long getHandled() {
+      return handled;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * Waits that timed out without an item.
+     */
+    public long getEmptyWaits() {
+      return emptyWaits;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("consumers=%d connections=%d/%d received=%d handled=%d failures=%d emptyWaits=%d",
+          consumers, activeConnections, activeConnections + idleConnections, received, handled, failures,
+          emptyWaits);
+    }
+  }
+}
@@ -0,0 +1,524 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * An in-process Bloom filter in front of SMISMEMBER (#7615) on one set, for sets that almost
+ * every probe misses (block lists). Members the filter rules out are answered {@code false}
+ * locally; only the possible members are sent, and a lookup the filter rules out entirely
+ * costs no round trip at all.
+ *
+ * The filter is built from an SSCAN of the set, sized for the set's cardinality and the target
+ * false positive rate, and kept current by the key's keyspace notifications (which need
+ * {@code notify-keyspace-events} to include {@code Ksg}, see
+ * {@link Builder#configureNotifications(boolean)}):
+ *
+ * <ul>
+ * <li>SREM and SPOP leave the filter valid, they only raise its false positive rate; once more
+ * than half of the members it was built from are gone it is rebuilt</li>
+ * <li>DEL, UNLINK and expiry empty it</li>
+ * <li>anything that adds members (SADD, SMOVE, S*STORE, RENAME, RESTORE, COPY) says nothing
+ * about which members, so the filter steps aside and every lookup goes to Redis until a
+ * rebuild has caught up</li>
+ * </ul>
+ *
+ * Notifications are delivered asynchronously and are lost while the subscription is down, so a
+ * member added elsewhere can be reported absent until its notification arrives; the filter is
+ * rebuilt every {@code maxAge} to bound the damage of a lost one.
+ */
+public class BloomPrefilter implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(BloomPrefilter.class);
+
+  private static final Set<String> ADDING_EVENTS = Set.of("sadd", "sinterstore", "sunionstore", "sdiffstore",
+      "rename_to", "restore", "copy_to");
+  private static final Set<String> REMOVING_EVENTS = Set.of("srem", "spop");
+  private static final Set<String> DELETING_EVENTS = Set.of("del", "expired", "evicted", "rename_from");
+
+  private final StringRedisTemplate template;
+  private final String key;
+  private final double falsePositiveRate;
+  private final Duration maxAge;
+  private final boolean configureNotifications;
+  private final RedisMessageListenerContainer container;
+  private final boolean ownContainer;
+  private final ChannelTopic topic;
+  private final MessageListener listener = this::onEvent;
+  private final ScheduledExecutorService rebuilder;
+
+  private volatile Filter filter;
+  private volatile boolean stale = true;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder definiteNegatives = new LongAdder();
+  private final LongAdder skippedRoundTrips = new LongAdder();
+  private final LongAdder roundTrips = new LongAdder();
+  private final LongAdder falsePositives = new LongAdder();
+  private final LongAdder bypassed = new LongAdder();
+  private final LongAdder rebuilds = new LongAdder();
+
+  private BloomPrefilter(Builder builder) {
+    this.template = builder.template;
+    this.key = builder.key;
+    this.falsePositiveRate = builder.falsePositiveRate;
+    this.maxAge = builder.maxAge;
+    this.configureNotifications = builder.configureNotifications;
+    this.ownContainer = builder.container == null;
+    this.container = ownContainer ? newContainer(template.getRequiredConnectionFactory()) : builder.container;
+    this.topic = new ChannelTopic("__keyspace@" + database(template.getRequiredConnectionFactory()) + "__:" + key);
+    this.rebuilder = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("bloom-prefilter-" + key + "-"));
+  }
+
+  public static Builder builder(StringRedisTemplate template, String key) {
+    return new Builder(template, key);
+  }
+
+  /**
+   * Subscribes to the key's notifications, then builds the filter.
+   */
+  public BloomPrefilter start() {
+    if (configureNotifications) {
+      enableNotifications();
+    }
+    container.addMessageListener(listener, topic);
+    if (ownContainer) {
+      container.start();
+    }
+    rebuild();
+    rebuilder.scheduleWithFixedDelay(this::queueRebuild, maxAge.toMillis(), maxAge.toMillis(), TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  public boolean isMember(String member) {
+    return isMember(new String[] { member }).get(member);
+  }
+
+  /**
+   * SMISMEMBER for the members the filter can't rule out. Entries come back in the order of
+   * {@code members}.
+   */
+  public Map<String, Boolean> isMember(String... members) {
+    lookups.add(members.length);
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    Filter current = filter;
+    boolean filtered = !stale && current != null;
+    List<String> possible;
+    if (!filtered) {
+      bypassed.add(members.length);
+      possible = List.of(members);
+    } else {
+      possible = new ArrayList<>(members.length);
+      for (String member : members) {
+        if (current.mightContain(bytes(member))) {
+          possible.add(member);
+        } else {
+          result.put(member, false);
+        }
+      }
+      definiteNegatives.add(members.length - possible.size());
+    }
+    if (possible.isEmpty()) {
+      skippedRoundTrips.increment();
+      return result;
+    }
+
+    roundTrips.increment();
+    Map<Object, Boolean> reply = template.opsForSet().isMember(key, possible.toArray());
+    Map<String, Boolean> ordered = new LinkedHashMap<>();
+    for (String member : members) {
+      Boolean present = result.get(member);
+      if (present == null) {
+        present = reply != null && Boolean.TRUE.equals(reply.get(member));
+        if (!present && filtered) {
+          falsePositives.increment();
+        }
+      }
+      ordered.put(member, present);
+    }
+    return ordered;
+  }
+
+  /**
+   * Rebuilds the filter from an SSCAN of the set now, on the caller's thread.
+   */
+  public void rebuild() {
+    long startedAt = generation.get();
+    Long cardinality = template.opsForSet().size(key);
+    Filter rebuilt = new Filter(cardinality != null ? cardinality : 0, falsePositiveRate);
+    try (Cursor<String> members = template.opsForSet().scan(key, ScanOptions.scanOptions().count(1000).build())) {
+      while (members.hasNext()) {
+        rebuilt.put(bytes(members.next()));
+      }
+    }
+    rebuilds.increment();
+    boolean current;
+    synchronized (this) {
+      filter = rebuilt;
+      current = generation.get() == startedAt;
+      if (current) {
+        stale = false;
+      }
+    }
+    if (!current) {
+      // members were added while scanning, the new filter may be missing them
+      queueRebuild();
+    }
+  }
+
+  public Metrics metrics() {
+    Filter current = filter;
+    return new Metrics(lookups.sum(), definiteNegatives.sum(), skippedRoundTrips.sum(), roundTrips.sum(),
+        falsePositives.sum(), bypassed.sum(), rebuilds.sum(), stale, current != null ? current.sizeInBytes() : 0,
+        current != null ? current.expectedFalsePositiveRate() : 1);
+  }
+
+  @Override
+  public void close() {
+    rebuilder.shutdownNow();
+    container.removeMessageListener(listener, topic);
+    if (ownContainer) {
+      try {
+        container.destroy();
+      } catch (Exception e) {
+        log.debug("Failed to stop the listener container", e);
+      }
+    }
+  }
+
+  private void onEvent(Message message, byte[] pattern) {
+    String event = new String(message.getBody(), StandardCharsets.UTF_8);
+    if (ADDING_EVENTS.contains(event)) {
+      synchronized (this) {
+        generation.incrementAndGet();
+        stale = true;
+      }
+      queueRebuild();
+    } else if (REMOVING_EVENTS.contains(event)) {
+      Filter current = filter;
+      if (current != null && current.removed.incrementAndGet() > current.inserted / 2) {
+        queueRebuild();
+      }
+    } else if (DELETING_EVENTS.contains(event)) {
+      // the key is gone, an empty filter is exact until the next adding event
+      synchronized (this) {
+        generation.incrementAndGet();
+        filter = new Filter(0, falsePositiveRate);
+        stale = false;
+      }
+    }
+  }
+
+  private void queueRebuild() {
+    if (rebuildQueued.compareAndSet(false, true)) {
+      rebuilder.execute(() -> {
+        rebuildQueued.set(false);
+        try {
+          rebuild();
+        } catch (RuntimeException e) {
+          log.warn("Rebuilding the filter of {} failed", key, e);
+          stale = true;
+          rebuilder.schedule(this::queueRebuild, 1, TimeUnit.SECONDS);
+        }
+      });
+    }
+  }
+
+  /**
+   * Adds the flags this filter needs to {@code notify-keyspace-events}, keeping the others:
+   * keyspace channels (K) for set (s), generic (g), expired (x) and evicted (e) events.
+   */
+  private void enableNotifications() {
+    template.execute((RedisCallback<Void>) connection -> {
+      Properties config = connection.serverCommands().getConfig("notify-keyspace-events");
+      String flags = config != null ? config.getProperty("notify-keyspace-events", "") : "";
+      StringBuilder merged = new StringBuilder(flags);
+      if (flags.indexOf('K') < 0) {
+        merged.append('K');
+      }
+      if (flags.indexOf('A') < 0) {
+        // A is the alias for every event class
+        for (char flag : new char[] { 's', 'g', 'x', 'e' }) {
+          if (flags.indexOf(flag) < 0) {
+            merged.append(flag);
+          }
+        }
+      }
+      if (!merged.toString().equals(flags)) {
+        connection.serverCommands().setConfig("notify-keyspace-events", merged.toString());
+      }
+      return null;
+    });
+  }
+
+  private static RedisMessageListenerContainer newContainer(RedisConnectionFactory connectionFactory) {
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    container.afterPropertiesSet();
+    return container;
+  }
+
+  private static int database(RedisConnectionFactory connectionFactory) {
+    return connectionFactory instanceof LettuceConnectionFactory
+        ? ((LettuceConnectionFactory) connectionFactory).getDatabase()
+        : 0;
+  }
+
+  private static byte[] bytes(String member) {
+    return member.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Bloom filter over an {@link AtomicLongArray}, so lookups need no lock while the
+   * notification thread updates the counters. Probes use double hashing on two halves of a
+   * 128 bit hash.
+   */
+  private static final class Filter {
+
+    final long inserted;
+    final AtomicLong removed = new AtomicLong();
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    /**
+     * Sized for {@code expected} members at {@code falsePositiveRate}:
+     * {@code m = -n ln p / (ln 2)^2} bits and {@code k = m/n ln 2 = -log2 p} hash functions.
+     */
+    Filter(long expected, double falsePositiveRate) {
+      long n = Math.max(expected, 1);
+      long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+      this.bits = Math.max(64, m);
+      this.hashes = Math.max(1, (int) Math.round(-Math.log(falsePositiveRate) / Math.log(2)));
+      this.words = new AtomicLongArray((int) ((bits + 63) >>> 6));
+      this.inserted = expected;
+    }
+
+    void put(byte[] member) {
+      long h1 = hash(member, 0x9E3779B97F4A7C15L);
+      long h2 = hash(member, 0xC2B2AE3D27D4EB4FL) | 1;
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        int word = (int) (bit >>> 6);
+        long mask = 1L << bit;
+        long current;
+        while (((current = words.get(word)) & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+          // retry
+        }
+      }
+    }
+
+    boolean mightContain(byte[] member) {
+      long h1 = hash(member, 0x9E3779B97F4A7C15L);
+      long h2 = hash(member, 0xC2B2AE3D27D4EB4FL) | 1;
+      for (int i = 0; i < hashes; i++) {
+        long bit = Math.floorMod(h1 + i * h2, bits);
+        if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    long sizeInBytes() {
+      return words.length() * 8L;
+    }
+
+    double expectedFalsePositiveRate() {
+      return Math.pow(1 - Math.exp(-hashes * (double) Math.max(inserted, 1) / bits), hashes);
+    }
+
+    private static long hash(byte[] data, long seed) {
+      long h = seed ^ data.length;
+      for (byte b : data) {
+        h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        h = Long.rotateLeft(h, 23);
+      }
+      // murmur3 finalizer
+      h ^= h >>> 33;
+      h *= 0xFF51AFD7ED558CCDL;
+      h ^= h >>> 33;
+      h *= 0xC4CEB9FE1A85EC53L;
+      h ^= h >>> 33;
+      return h;
+    }
+  }
+
+  public static class Builder {
+
+    private final StringRedisTemplate template;
+    private final String key;
+    private double falsePositiveRate = 0.01;
+    private Duration maxAge = Duration.ofMinutes(1);
+    private boolean configureNotifications;
+    private RedisMessageListenerContainer container;
+
+    private Builder(StringRedisTemplate template, String key) {
+      this.template = template;
+      this.key = key;
+    }
+
+    /**
+     * Share of absent members the filter lets through to Redis, 1% by default. Each halving
+     * costs about 1.44 bits per member.
+     */
+    public Builder falsePositiveRate(double falsePositiveRate) {
+      this.falsePositiveRate = falsePositiveRate;
+      return this;
+    }
+
+    /**
+     * Rebuild interval that bounds how long a lost notification can leave the filter wrong.
+     */
+    public Builder maxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    /**
+     * CONFIG SET the keyspace notification flags the filter needs on start, off by default
+     * (managed services often disallow CONFIG).
+     */
+    public Builder configureNotifications(boolean configureNotifications) {
+      this.configureNotifications = configureNotifications;
+      return this;
+    }
+
+    /**
+     * Shares an application's listener container instead of opening a subscription per filter.
+     */
+    public Builder listenerContainer(RedisMessageListenerContainer container) {
+      this.container = container;
+      return this;
+    }
+
+    public BloomPrefilter build() {
+      Assert.isTrue(falsePositiveRate > 0 && falsePositiveRate < 1, "falsePositiveRate must be between 0 and 1");
+      Assert.isTrue(!maxAge.isNegative() && !maxAge.isZero(), "maxAge must be positive");
+      return new BloomPrefilter(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long lookups;
+    private final long definiteNegatives;
+    private final long skippedRoundTrips;
+    private final long roundTrips;
+    private final long falsePositives;
+    private final long bypassed;
+    private final long rebuilds;
+    private final boolean stale;
+    private final long filterBytes;
+    private final double expectedFalsePositiveRate;
+
+    Metrics(long lookups, long definiteNegatives, long skippedRoundTrips, long roundTrips, long falsePositives,
+        long bypassed, long rebuilds, boolean stale, long filterBytes, double expectedFalsePositiveRate) {
+      this.lookups = lookups;
+      this.definiteNegatives = definiteNegatives;
+      this.skippedRoundTrips = skippedRoundTrips;
+      this.roundTrips = roundTrips;
+      this.falsePositives = falsePositives;
+      this.bypassed = bypassed;
+      this.rebuilds = rebuilds;
+      this.stale = stale;
+      this.filterBytes = filterBytes;
+      this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+    }
+
+    /**
+     * Members looked up.
+     */
+    public long getLookups() {
+      return lookups;
+    }
+
+    /**
+     * Members answered absent by the filter alone.
+     */
+    public long getDefiniteNegatives() {
+      return definiteNegatives;
+    }
+
+    /**
+     * Lookups that needed no SMISMEMBER at all.
+     */
+    public long getSkippedRoundTrips() {
+      return skippedRoundTrips;
+    }
+
+    public long getRoundTrips() {
+      return roundTrips;
+    }
+
+    /**
+     * Members the filter let through that Redis reported absent.
+     */
+    public long getFalsePositives() {
+      return falsePositives;
+    }
+
+    /**
+     * Members sent to Redis unfiltered while the filter was stale.
+     */
+    public long getBypassed() {
+      return bypassed;
+    }
+
+    public long getRebuilds() {
+      return rebuilds;
+    }
+
+    public boolean isStale() {
+      return stale;
+    }
+
+    public long getFilterBytes() {
+      return filterBytes;
+    }
+
+    public double getExpectedFalsePositiveRate() {
+      return expectedFalsePositiveRate;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "lookups=%d definiteNegatives=%d skippedRoundTrips=%d roundTrips=%d falsePositives=%d bypassed=%d "
+              + "rebuilds=%d stale=%s filter=%dB expectedFpp=%.4f",
+          lookups, definiteNegatives, skippedRoundTrips, roundTrips, falsePositives, bypassed, rebuilds, stale,
+          filterBytes, expectedFalsePositiveRate);
+    }
+  }
+}
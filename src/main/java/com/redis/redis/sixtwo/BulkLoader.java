@@ -0,0 +1,302 @@
+package com.redis.redis.sixtwo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.DefaultStringTuple;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.connection.StringRedisConnection.StringTuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Streams rows into sorted sets, sets or lists with multi-member ZADD/SADD/RPUSH commands sent
+ * in pipelines.
+ *
+ * Rows are pulled from the source one chunk at a time; within a chunk they are grouped per key
+ * into one command each, and each chunk goes out as one pipeline. At most {@code maxInFlight}
+ * pipelines are outstanding: the source is not read any further until one of them completes,
+ * so memory use depends on the chunk size, not the size of the data set.
+ *
+ * Pipelines are written by {@code maxInFlight} single-threaded lanes. Sets take the lanes in
+ * turn; sorted set and list chunks are split by key so a key always goes to the same lane and
+ * its ZADDs and RPUSHes are applied in source order: a member that appears more than once ends
+ * with its last score.
+ */
+public class BulkLoader {
+
+  private static final Logger log = LoggerFactory.getLogger(BulkLoader.class);
+
+  private final StringRedisTemplate template;
+  private final int chunkSize;
+  private final int maxInFlight;
+
+  public BulkLoader(StringRedisTemplate template) {
+    this(template, 1000, 4);
+  }
+
+  public BulkLoader(StringRedisTemplate template, int chunkSize, int maxInFlight) {
+    Assert.isTrue(chunkSize > 0 && maxInFlight > 0, "chunkSize and maxInFlight must be positive");
+    this.template = template;
+    this.chunkSize = chunkSize;
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * {@code ZADD key score member [score member ...]} per key and chunk, the last score of a
+   * member wins.
+   */
+  public Result loadSortedSets(Iterator<Row> rows) {
+    return load(rows, true, (connection, chunk) -> {
+      Map<String, Set<StringTuple>> byKey = new LinkedHashMap<>();
+      for (Row row : chunk) {
+        byKey.computeIfAbsent(row.key, k -> new LinkedHashSet<>())
+            .add(new DefaultStringTuple(row.value.getBytes(StandardCharsets.UTF_8), row.value, row.score));
+      }
+      byKey.forEach(connection::zAdd);
+    });
+  }
+
+  /**
+   * {@code SADD key member [member ...]} per key and chunk.
+   */
+  public Result loadSets(Iterator<Row> rows) {
+    return load(rows, false, (connection, chunk) -> groupValues(chunk).forEach(
+        (key, values) -> connection.sAdd(key, values.toArray(new String[0]))));
+  }
+
+  /**
+   * {@code RPUSH key value [value ...]} per key and chunk, keeping the order of the source.
+   */
+  public Result loadLists(Iterator<Row> rows) {
+    return load(rows, true, (connection, chunk) -> groupValues(chunk).forEach(
+        (key, values) -> connection.rPush(key, values.toArray(new String[0]))));
+  }
+
+  public Result loadSortedSets(Stream<Row> rows) {
+    return loadSortedSets(rows.iterator());
+  }
+
+  public Result loadSets(Stream<Row> rows) {
+    return loadSets(rows.iterator());
+  }
+
+  public Result loadLists(Stream<Row> rows) {
+    return loadLists(rows.iterator());
+  }
+
+  /**
+   * Lazily reads {@code key,score,member} lines. Close the stream to close the file.
+   */
+  public static Stream<Row> scoredRows(Path file) {
+    return lines(file).map(line -> {
+      String[] fields = line.split(",", 3);
+      return Row.scored(fields[0], fields[2], Double.parseDouble(fields[1]));
+    });
+  }
+
+  /**
+   * Lazily reads {@code key,value} lines. Close the stream to close the file.
+   */
+  public static Stream<Row> rows(Path file) {
+    return lines(file).map(line -> {
+      String[] fields = line.split(",", 2);
+      return Row.of(fields[0], fields[1]);
+    });
+  }
+
+  private static Stream<String> lines(Path file) {
+    try {
+      return Files.lines(file).filter(line -> !line.isEmpty());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static Map<String, List<String>> groupValues(List<Row> chunk) {
+    Map<String, List<String>> byKey = new LinkedHashMap<>();
+    for (Row row : chunk) {
+      byKey.computeIfAbsent(row.key, k -> new ArrayList<>()).add(row.value);
+    }
+    return byKey;
+  }
+
+  /**
+   * @param ordered whether the rows of a key must be written in source order
+   */
+  private Result load(Iterator<Row> rows, boolean ordered, ChunkWriter writer) {
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("bulk-loader-");
+    ExecutorService[] lanes = new ExecutorService[maxInFlight];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+    }
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    long started = System.nanoTime();
+    long total = 0;
+    long chunks = 0;
+
+    try {
+      while (rows.hasNext() && failure.get() == null) {
+        List<Row> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && rows.hasNext()) {
+          chunk.add(rows.next());
+        }
+        if (ordered) {
+          for (Map.Entry<Integer, List<Row>> part : byLane(chunk).entrySet()) {
+            inFlight.acquire();
+            lanes[part.getKey()].execute(() -> write(writer, part.getValue(), inFlight, failure));
+          }
+        } else {
+          inFlight.acquire();
+          lanes[(int) (chunks % lanes.length)].execute(() -> write(writer, chunk, inFlight, failure));
+        }
+        total += chunk.size();
+        chunks++;
+        if (chunks % 100 == 0) {
+          log.debug("Sent {} rows in {} chunks", total, chunks);
+        }
+      }
+      // wait for the last pipelines
+      inFlight.acquire(maxInFlight);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted after sending " + total + " rows", e);
+    } finally {
+      for (ExecutorService lane : lanes) {
+        lane.shutdownNow();
+      }
+    }
+
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+    Result result = new Result(total, chunks, System.nanoTime() - started);
+    log.info("Loaded {}", result);
+    return result;
+  }
+
+  private void write(ChunkWriter writer, List<Row> chunk, Semaphore inFlight,
+      AtomicReference<RuntimeException> failure) {
+    try {
+      template.executePipelined((RedisCallback<Object>) connection -> {
+        writer.write((StringRedisConnection) connection, chunk);
+        return null;
+      });
+    } catch (RuntimeException e) {
+      failure.compareAndSet(null, e);
+    } finally {
+      inFlight.release();
+    }
+  }
+
+  /**
+   * Splits a chunk by the lane of each row's key, keeping the order of the rows.
+   */
+  private Map<Integer, List<Row>> byLane(List<Row> chunk) {
+    Map<Integer, List<Row>> parts = new LinkedHashMap<>();
+    for (Row row : chunk) {
+      parts.computeIfAbsent(Math.floorMod(row.key.hashCode(), maxInFlight), lane -> new ArrayList<>()).add(row);
+    }
+    return parts;
+  }
+
+  @FunctionalInterface
+  private interface ChunkWriter {
+    void write(StringRedisConnection connection, List<Row> chunk);
+  }
+
+  public static final class Row {
+
+    private final String key;
+    private final String value;
+    private final double score;
+
+    private Row(String key, String value, double score) {
+      this.key = key;
+      this.value = value;
+      this.score = score;
+    }
+
+    /**
+     * A set member or list value.
+     */
+    public static Row of(String key, String value) {
+      return new Row(key, value, 0);
+    }
+
+    /**
+     * A sorted set member.
+     */
+    public static Row scored(String key, String member, double score) {
+      return new Row(key, member, score);
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getValue() {
+      return value;
+    }
+
+    public double getScore() {
+      return score;
+    }
+  }
+
+  public static class Result {
+
+    private final long rows;
+    private final long chunks;
+    private final long elapsedNanos;
+
+    Result(long rows, long chunks, long elapsedNanos) {
+      this.rows = rows;
+      this.chunks = chunks;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getRows() {
+      return rows;
+    }
+
+    public long getChunks() {
+      return chunks;
+    }
+
+    public long getElapsedMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getRowsPerSecond() {
+      return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d rows in %d chunks, %d ms, %.0f rows/s", rows, chunks, getElapsedMillis(),
+          getRowsPerSecond());
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.ByteBuffer;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Passes {@link ByteBuffer}s through without copying where it can: replies are wrapped, not
+ * copied, and a heap buffer spanning its whole backing array is written as that array. Other
+ * buffers (direct, sliced or partially consumed ones) are copied from their position to their
+ * limit; the position is left untouched.
+ */
+public final class ByteBufferRedisSerializer implements RedisSerializer<ByteBuffer> {
+
+  public static final ByteBufferRedisSerializer INSTANCE = new ByteBufferRedisSerializer();
+
+  private ByteBufferRedisSerializer() {
+  }
+
+  @Override
+  public byte[] serialize(ByteBuffer buffer) {
+    if (buffer == null) {
+      return null;
+    }
+    if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+        && buffer.remaining() == buffer.array().length) {
+      return buffer.array();
+    }
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.duplicate().get(bytes);
+    return bytes;
+  }
+
+  @Override
+  public ByteBuffer deserialize(byte[] bytes) {
+    return bytes == null ? null : ByteBuffer.wrap(bytes);
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return ByteBuffer.class;
+  }
+}
@@ -0,0 +1,300 @@
+package com.redis.redis.sixtwo;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisListCommands.Direction;
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import io.lettuce.core.cluster.SlotHash;
+
+/**
+ * ZINTER/ZUNION (#7794), ZDIFF/ZDIFFSTORE (#7961) and LMOVE (#6929) for Redis Cluster, where
+ * multi-key commands fail with CROSSSLOT unless all keys hash to the same slot.
+ *
+ * Keys that share a slot (use a common {@link #hashTag(String, String) hash tag} to plan for
+ * that) are sent as the native command. Otherwise every input sorted set is read with
+ * {@code ZRANGE key 0 -1 WITHSCORES} in parallel, each from the node that owns it, and the
+ * result is computed client-side with the same weights and aggregate. The fallbacks are not
+ * atomic: inputs are read at slightly different times, the store writes the destination
+ * after reading, and a cross-slot move is a pop followed by a push.
+ *
+ * Against a standalone server everything is native unless the planner is forced on.
+ */
+public class ClusterCollectionOperations implements AutoCloseable {
+
+  private static final Comparator<TypedTuple<String>> BY_SCORE = Comparator
+      .comparing((TypedTuple<String> tuple) -> tuple.getScore())
+      .thenComparing(TypedTuple::getValue);
+
+  private final ZSetOperations<String, String> zSetOps;
+  private final ListOperations<String, String> listOps;
+  private final StringRedisTemplate template;
+  private final boolean cluster;
+  private final ExecutorService fanOut;
+
+  private final LongAdder nativeCalls = new LongAdder();
+  private final LongAdder fallbackCalls = new LongAdder();
+
+  public ClusterCollectionOperations(StringRedisTemplate template) {
+    this(template, isCluster(template.getConnectionFactory()), 8);
+  }
+
+  /**
+   * @param cluster plan by slot even when the connection isn't to a cluster, to exercise the
+   * fallbacks against a single node
+   * @param fanOutThreads parallel reads of the fallback path
+   */
+  public ClusterCollectionOperations(StringRedisTemplate template, boolean cluster, int fanOutThreads) {
+    this.template = template;
+    this.zSetOps = template.opsForZSet();
+    this.listOps = template.opsForList();
+    this.cluster = cluster;
+    this.fanOut = Executors.newFixedThreadPool(fanOutThreads, new CustomizableThreadFactory("cluster-fanout-"));
+  }
+
+  /**
+   * {@code name{tag}}, keys with the same tag hash to the same slot.
+   */
+  public static String hashTag(String name, String tag) {
+    return name + "{" + tag + "}";
+  }
+
+  public static int slot(String key) {
+    return SlotHash.getSlot(key);
+  }
+
+  public boolean sameSlot(Collection<String> keys) {
+    if (!cluster) {
+      return true;
+    }
+    int slot = -1;
+    for (String key : keys) {
+      int keySlot = slot(key);
+      if (slot != -1 && keySlot != slot) {
+        return false;
+      }
+      slot = keySlot;
+    }
+    return true;
+  }
+
+  public Set<TypedTuple<String>> intersectWithScores(String key, Collection<String> otherKeys) {
+    return intersectWithScores(key, otherKeys, Aggregate.SUM, Weights.fromSetCount(otherKeys.size() + 1));
+  }
+
+  public Set<TypedTuple<String>> intersectWithScores(String key, Collection<String> otherKeys, Aggregate aggregate,
+      Weights weights) {
+    List<String> keys = keys(key, otherKeys);
+    if (sameSlot(keys)) {
+      nativeCalls.increment();
+      return zSetOps.intersectWithScores(key, otherKeys, aggregate, weights);
+    }
+    fallbackCalls.increment();
+    return combine(fetchAll(keys), aggregate, weights, true);
+  }
+
+  public Set<TypedTuple<String>> unionWithScores(String key, Collection<String> otherKeys) {
+    return unionWithScores(key, otherKeys, Aggregate.SUM, Weights.fromSetCount(otherKeys.size() + 1));
+  }
+
+  public Set<TypedTuple<String>> unionWithScores(String key, Collection<String> otherKeys, Aggregate aggregate,
+      Weights weights) {
+    List<String> keys = keys(key, otherKeys);
+    if (sameSlot(keys)) {
+      nativeCalls.increment();
+      return zSetOps.unionWithScores(key, otherKeys, aggregate, weights);
+    }
+    fallbackCalls.increment();
+    return combine(fetchAll(keys), aggregate, weights, false);
+  }
+
+  public Set<TypedTuple<String>> differenceWithScores(String key, Collection<String> otherKeys) {
+    List<String> keys = keys(key, otherKeys);
+    if (sameSlot(keys)) {
+      nativeCalls.increment();
+      return zSetOps.differenceWithScores(key, otherKeys);
+    }
+    fallbackCalls.increment();
+    return difference(fetchAll(keys));
+  }
+
+  /**
+   * ZDIFFSTORE, the destination counts as one of the keys that have to share a slot.
+   *
+   * @return the number of members stored in {@code destKey}
+   */
+  public Long differenceAndStore(String key, Collection<String> otherKeys, String destKey) {
+    List<String> keys = keys(key, otherKeys);
+    keys.add(destKey);
+    if (sameSlot(keys)) {
+      nativeCalls.increment();
+      return zSetOps.differenceAndStore(key, otherKeys, destKey);
+    }
+    fallbackCalls.increment();
+    Set<TypedTuple<String>> difference = difference(fetchAll(keys.subList(0, keys.size() - 1)));
+    template.delete(destKey);
+    if (!difference.isEmpty()) {
+      zSetOps.add(destKey, difference);
+    }
+    return (long) difference.size();
+  }
+
+  /**
+   * LMOVE. Across slots the element is popped from {@code source} and pushed onto
+   * {@code destination}; if the push fails it is put back where it came from.
+   */
+  public String move(String source, Direction from, String destination, Direction to) {
+    if (sameSlot(List.of(source, destination))) {
+      nativeCalls.increment();
+      return listOps.move(source, from, destination, to);
+    }
+    fallbackCalls.increment();
+    String element = from == Direction.LEFT ? listOps.leftPop(source) : listOps.rightPop(source);
+    if (element == null) {
+      return null;
+    }
+    try {
+      push(destination, to, element);
+    } catch (RuntimeException e) {
+      push(source, from, element);
+      throw e;
+    }
+    return element;
+  }
+
+  public long getNativeCalls() {
+    return nativeCalls.sum();
+  }
+
+  public long getFallbackCalls() {
+    return fallbackCalls.sum();
+  }
+
+  @Override
+  public void close() {
+    fanOut.shutdownNow();
+  }
+
+  private void push(String key, Direction to, String element) {
+    if (to == Direction.LEFT) {
+      listOps.leftPush(key, element);
+    } else {
+      listOps.rightPush(key, element);
+    }
+  }
+
+  private static List<String> keys(String key, Collection<String> otherKeys) {
+    List<String> keys = new ArrayList<>(otherKeys.size() + 2);
+    keys.add(key);
+    keys.addAll(otherKeys);
+    return keys;
+  }
+
+  private List<Set<TypedTuple<String>>> fetchAll(List<String> keys) {
+    List<CompletableFuture<Set<TypedTuple<String>>>> reads = new ArrayList<>(keys.size());
+    for (String key : keys) {
+      reads.add(CompletableFuture.supplyAsync(() -> zSetOps.rangeWithScores(key, 0, -1), fanOut));
+    }
+    List<Set<TypedTuple<String>>> sets = new ArrayList<>(keys.size());
+    try {
+      for (CompletableFuture<Set<TypedTuple<String>>> read : reads) {
+        sets.add(read.join());
+      }
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+    return sets;
+  }
+
+  /**
+   * Weighted scores aggregated per member, keeping only members present in every input when
+   * {@code intersect} is set.
+   */
+  static Set<TypedTuple<String>> combine(List<Set<TypedTuple<String>>> inputs, Aggregate aggregate, Weights weights,
+      boolean intersect) {
+    Map<String, double[]> merged = new HashMap<>();
+    for (int i = 0; i < inputs.size(); i++) {
+      double weight = weights.getWeight(i);
+      for (TypedTuple<String> tuple : inputs.get(i)) {
+        double score = weight * tuple.getScore();
+        // [aggregated score, number of inputs seen in]
+        double[] entry = merged.get(tuple.getValue());
+        if (entry == null) {
+          if (intersect && i > 0) {
+            continue;
+          }
+          merged.put(tuple.getValue(), new double[] { score, 1 });
+        } else if (!intersect || entry[1] == i) {
+          entry[0] = aggregate(aggregate, entry[0], score);
+          entry[1]++;
+        }
+      }
+    }
+    List<TypedTuple<String>> result = new ArrayList<>(merged.size());
+    merged.forEach((member, entry) -> {
+      if (!intersect || entry[1] == inputs.size()) {
+        result.add(TypedTuple.of(member, entry[0]));
+      }
+    });
+    return sorted(result);
+  }
+
+  static Set<TypedTuple<String>> difference(List<Set<TypedTuple<String>>> inputs) {
+    Set<String> excluded = new HashSet<>();
+    for (Set<TypedTuple<String>> input : inputs.subList(1, inputs.size())) {
+      input.forEach(tuple -> excluded.add(tuple.getValue()));
+    }
+    List<TypedTuple<String>> result = new ArrayList<>();
+    for (TypedTuple<String> tuple : inputs.get(0)) {
+      if (!excluded.contains(tuple.getValue())) {
+        result.add(tuple);
+      }
+    }
+    return sorted(result);
+  }
+
+  private static double aggregate(Aggregate aggregate, double current, double score) {
+    switch (aggregate) {
+    case MIN:
+      return Math.min(current, score);
+    case MAX:
+      return Math.max(current, score);
+    default:
+      return current + score;
+    }
+  }
+
+  private static Set<TypedTuple<String>> sorted(List<TypedTuple<String>> tuples) {
+    tuples.sort(BY_SCORE);
+    return new LinkedHashSet<>(tuples);
+  }
+
+  private static boolean isCluster(RedisConnectionFactory connectionFactory) {
+    return connectionFactory instanceof LettuceConnectionFactory
+        && ((LettuceConnectionFactory) connectionFactory).isClusterAware();
+  }
+}
@@ -0,0 +1,202 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.ScoredValueScanCursor;
+import io.lettuce.core.ValueScanCursor;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+/**
+ * Large sets and sorted sets as lazily evaluated {@link Stream}s, instead of SMEMBERS or
+ * {@code ZRANGE key 0 -1} loading the whole collection into the heap (and blocking Redis while
+ * it is serialized).
+ *
+ * Each page is one SSCAN/ZSCAN (with the configured COUNT hint) or one ZRANGE of
+ * {@code pageSize} ranks, so memory use is bounded by the page size. With prefetch enabled the
+ * next page is requested in the background as soon as the current one is handed out.
+ *
+ * Scans may return a member more than once and don't see a consistent snapshot, see the SCAN
+ * guarantees. Rank pages shift when members are added or removed while streaming.
+ */
+public class CollectionStreams implements AutoCloseable {
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final SortedSetRangeCommands ranges;
+  private final int pageSize;
+  private final ExecutorService prefetcher;
+  private final Duration timeout = Duration.ofSeconds(60);
+
+  public CollectionStreams(StringRedisTemplate template, int pageSize, boolean prefetch) {
+    Assert.isTrue(pageSize > 0, "pageSize must be positive");
+    this.template = template;
+    this.serializer = template.getStringSerializer();
+    this.ranges = new SortedSetRangeCommands(template);
+    this.pageSize = pageSize;
+    this.prefetcher = prefetch
+        ? Executors.newCachedThreadPool(new CustomizableThreadFactory("collection-streams-prefetch-"))
+        : null;
+  }
+
+  /**
+   * The members of a set, page by page with {@code SSCAN key cursor COUNT pageSize}.
+   */
+  public Stream<String> members(String key) {
+    byte[] rawKey = serializer.serialize(key);
+    ScanArgs args = ScanArgs.Builder.limit(pageSize);
+    return stream(cursor -> {
+      ValueScanCursor<byte[]> page = await(
+          commands -> commands.sscan(rawKey, ScanCursor.of(cursor), args));
+      List<String> members = new ArrayList<>(page.getValues().size());
+      for (byte[] member : page.getValues()) {
+        members.add(serializer.deserialize(member));
+      }
+      return new Page<>(members, page.isFinished() ? null : page.getCursor());
+    }, "0");
+  }
+
+  /**
+   * The members of a sorted set with their scores, in no particular order, page by page with
+   * {@code ZSCAN key cursor COUNT pageSize}.
+   */
+  public Stream<TypedTuple<String>> scoredMembers(String key) {
+    byte[] rawKey = serializer.serialize(key);
+    ScanArgs args = ScanArgs.Builder.limit(pageSize);
+    return stream(cursor -> {
+      ScoredValueScanCursor<byte[]> page = await(
+          commands -> commands.zscan(rawKey, ScanCursor.of(cursor), args));
+      List<TypedTuple<String>> tuples = new ArrayList<>(page.getValues().size());
+      for (ScoredValue<byte[]> value : page.getValues()) {
+        tuples.add(TypedTuple.of(serializer.deserialize(value.getValue()), value.getScore()));
+      }
+      return new Page<>(tuples, page.isFinished() ? null : page.getCursor());
+    }, "0");
+  }
+
+  /**
+   * The members of a sorted set in rank order (highest score first with {@code rev}), page by
+   * page with {@code ZRANGE key start start+pageSize-1 [REV] WITHSCORES}.
+   */
+  public Stream<TypedTuple<String>> byRank(String key, boolean rev) {
+    return stream(start -> {
+      long from = Long.parseLong(start);
+      List<TypedTuple<String>> tuples = ranges.rangeWithScores(key, from, from + pageSize - 1, rev);
+      return new Page<>(tuples, tuples.size() < pageSize ? null : String.valueOf(from + pageSize));
+    }, "0");
+  }
+
+  @Override
+  public void close() {
+    if (prefetcher != null) {
+      prefetcher.shutdownNow();
+    }
+  }
+
+  private <T> Stream<T> stream(Function<String, Page<T>> fetch, String firstCursor) {
+    Pages<T> pages = new Pages<>(fetch, firstCursor);
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.NONNULL), false)
+        .onClose(pages::cancel);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> T await(Function<RedisClusterAsyncCommands<byte[], byte[]>, RedisFuture<T>> command) {
+    return template.execute((RedisCallback<T>) connection -> LettuceFutures.awaitOrCancel(
+        command.apply((RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection()),
+        timeout.toMillis(), TimeUnit.MILLISECONDS));
+  }
+
+  private static final class Page<T> {
+
+    final List<T> items;
+    final String next;
+
+    Page(List<T> items, String next) {
+      this.items = items;
+      this.next = next;
+    }
+  }
+
+  private final class Pages<T> implements Iterator<T> {
+
+    private final Function<String, Page<T>> fetch;
+    private String cursor;
+    private Iterator<T> current = Collections.emptyIterator();
+    private CompletableFuture<Page<T>> prefetched;
+
+    Pages(Function<String, Page<T>> fetch, String firstCursor) {
+      this.fetch = fetch;
+      this.cursor = firstCursor;
+    }
+
+    @Override
+    public boolean hasNext() {
+      // a scan page may be empty without the scan being finished
+      while (!current.hasNext()) {
+        if (cursor == null) {
+          return false;
+        }
+        Page<T> page = prefetched != null ? join(prefetched) : fetch.apply(cursor);
+        prefetched = null;
+        cursor = page.next;
+        if (cursor != null && prefetcher != null) {
+          String next = cursor;
+          prefetched = CompletableFuture.supplyAsync(() -> fetch.apply(next), prefetcher);
+        }
+        current = page.items.iterator();
+      }
+      return true;
+    }
+
+    @Override
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return current.next();
+    }
+
+    void cancel() {
+      if (prefetched != null) {
+        prefetched.cancel(false);
+      }
+    }
+
+    private Page<T> join(CompletableFuture<Page<T>> future) {
+      try {
+        return future.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+  }
+}
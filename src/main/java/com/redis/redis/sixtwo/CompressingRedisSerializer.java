@@ -0,0 +1,131 @@
+package com.redis.redis.sixtwo;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.util.Assert;
+
+/**
+ * Deflates what the delegate serializes once it reaches {@code threshold} bytes, for list
+ * payloads that are mostly small but sometimes large. Each value starts with a marker byte,
+ * {@code 0} for stored as is and {@code 1} for deflated, so values below the threshold only
+ * grow by one byte and a value that does not shrink is stored as is.
+ *
+ * Values are opaque to Redis: LREM, LPOS and set membership still work because equal values
+ * encode to equal bytes, but nothing can be matched on a prefix.
+ */
+public final class CompressingRedisSerializer<T> implements RedisSerializer<T> {
+
+  private static final byte STORED = 0;
+  private static final byte DEFLATED = 1;
+
+  private final RedisSerializer<T> delegate;
+  private final int threshold;
+
+  public CompressingRedisSerializer(RedisSerializer<T> delegate, int threshold) {
+    Assert.notNull(delegate, "delegate must not be null");
+    Assert.isTrue(threshold >= 0, "threshold must not be negative");
+    this.delegate = delegate;
+    this.threshold = threshold;
+  }
+
+  @Override
+  public byte[] serialize(T value) {
+    byte[] raw = delegate.serialize(value);
+    if (raw == null) {
+      return null;
+    }
+    if (raw.length >= threshold) {
+      byte[] deflated = deflate(raw);
+      if (deflated != null) {
+        return deflated;
+      }
+    }
+    byte[] stored = new byte[raw.length + 1];
+    stored[0] = STORED;
+    System.arraycopy(raw, 0, stored, 1, raw.length);
+    return stored;
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+    if (bytes.length == 0) {
+      throw new SerializationException("Missing compression marker");
+    }
+    switch (bytes[0]) {
+      case STORED:
+        return delegate.deserialize(Arrays.copyOfRange(bytes, 1, bytes.length));
+      case DEFLATED:
+        return delegate.deserialize(inflate(bytes));
+      default:
+        throw new SerializationException("Unknown compression marker " + bytes[0]);
+    }
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return delegate.getTargetType();
+  }
+
+  /**
+   * @return the marker, the raw length as 4 bytes and the deflated bytes, or {@code null} if
+   *         that is not smaller than storing the value as is
+   */
+  private static byte[] deflate(byte[] raw) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try {
+      deflater.setInput(raw);
+      deflater.finish();
+      // room for the header even when the value is shorter, such a value is stored as is
+      byte[] out = new byte[Math.max(5, raw.length + 1)];
+      out[0] = DEFLATED;
+      out[1] = (byte) (raw.length >>> 24);
+      out[2] = (byte) (raw.length >>> 16);
+      out[3] = (byte) (raw.length >>> 8);
+      out[4] = (byte) raw.length;
+      int length = 5;
+      while (!deflater.finished() && length < out.length) {
+        length += deflater.deflate(out, length, out.length - length);
+      }
+      return deflater.finished() ? Arrays.copyOf(out, length) : null;
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(byte[] bytes) {
+    if (bytes.length < 5) {
+      throw new SerializationException("Truncated compressed value");
+    }
+    int length = ((bytes[1] & 0xFF) << 24) | ((bytes[2] & 0xFF) << 16) | ((bytes[3] & 0xFF) << 8)
+        | (bytes[4] & 0xFF);
+    Inflater inflater = new Inflater(true);
+    try {
+      inflater.setInput(bytes, 5, bytes.length - 5);
+      byte[] raw = new byte[length];
+      int read = 0;
+      while (read < length) {
+        int n = inflater.inflate(raw, read, length - read);
+        if (n == 0 && (inflater.finished() || inflater.needsInput())) {
+          break;
+        }
+        read += n;
+      }
+      if (read != length) {
+        throw new SerializationException("Compressed value is shorter than its header says");
+      }
+      return raw;
+    } catch (DataFormatException e) {
+      throw new SerializationException("Corrupt compressed value", e);
+    } finally {
+      inflater.end();
+    }
+  }
+}
@@ -0,0 +1,466 @@
+package com.redis.redis.sixtwo;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.connection.RedisZSetCommands.ZAddArgs;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.IntegerOutput;
+
+/**
+ * Delayed jobs on a sorted set scored by their due time, moved onto a ready list in batches by
+ * one poller per node. By default the ready list is {@code <name>:pending}, so a
+ * {@link ReliableQueue} of the same name consumes the jobs with BLMOVE (#6929).
+ *
+ * Jobs are ZADDed to {@code <name>:scheduled}. The poller claims up to {@code batchSize} due
+ * jobs in one MULTI: ZRANGESTORE (#7961) copies them to the node's {@code <name>:claimed:<node>}
+ * sorted set and ZPOPMIN takes them off the schedule. A second MULTI LPUSHes them onto the
+ * ready list, oldest first, and the claim is dropped once that has succeeded. A node that dies
+ * or fails in between leaves its claim behind and merges it back into the schedule before it
+ * claims again, so a job is dispatched at least once, and by only one node while all of them
+ * are up.
+ *
+ * Instead of polling at a fixed rate, the poller sleeps until the earliest job is due, but at
+ * most {@code maxPollInterval}, and goes again right away while there is a backlog. A job
+ * scheduled on this node that is due before the poller would wake up wakes it immediately;
+ * {@code maxPollInterval} bounds the extra dispatch lag of jobs scheduled by other nodes.
+ *
+ * Jobs are sorted set members: scheduling a job that is already scheduled moves it to the new
+ * due time, so give jobs that must run twice distinct payloads (an ID).
+ */
+public class DelayedJobScheduler implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(DelayedJobScheduler.class);
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final String name;
+  private final String scheduledKey;
+  private final String claimKey;
+  private final String readyKey;
+  private final int batchSize;
+  private final long maxPollMillis;
+
+  private final Object wakeUp = new Object();
+  private volatile long sleepingUntil;
+  private volatile boolean running;
+  private Thread poller;
+
+  private final LongAdder scheduled = new LongAdder();
+  private final LongAdder dispatched = new LongAdder();
+  private final LongAdder returned = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder polls = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder lagMillis = new LongAdder();
+  private final AtomicLong maxLagMillis = new AtomicLong();
+
+  private DelayedJobScheduler(Builder builder) {
+    this.template = builder.template;
+    this.serializer = builder.template.getStringSerializer();
+    this.name = builder.name;
+    this.scheduledKey = name + ":scheduled";
+    this.claimKey = name + ":claimed:" + builder.nodeId;
+    this.readyKey = builder.readyKey != null ? builder.readyKey : name + ":pending";
+    this.batchSize = builder.batchSize;
+    this.maxPollMillis = builder.maxPollInterval.toMillis();
+  }
+
+  public static Builder builder(StringRedisTemplate template, String name) {
+    return new Builder(template, name);
+  }
+
+  public String getScheduledKey() {
+    return scheduledKey;
+  }
+
+  public String getReadyKey() {
+    return readyKey;
+  }
+
+  public void schedule(String job, Instant dueAt) {
+    template.opsForZSet().add(scheduledKey, job, dueAt.toEpochMilli());
+    scheduled.increment();
+    wake(dueAt.toEpochMilli());
+  }
+
+  public void schedule(String job, Duration delay) {
+    schedule(job, Instant.now().plus(delay));
+  }
+
+  /**
+   * Schedules all jobs with one ZADD.
+   */
+  public void scheduleAll(Map<String, Instant> jobs) {
+    if (jobs.isEmpty()) {
+      return;
+    }
+    Set<TypedTuple<String>> tuples = new LinkedHashSet<>();
+    long earliest = Long.MAX_VALUE;
+    for (Map.Entry<String, Instant> job : jobs.entrySet()) {
+      long dueAt = job.getValue().toEpochMilli();
+      tuples.add(TypedTuple.of(job.getKey(), (double) dueAt));
+      earliest = Math.min(earliest, dueAt);
+    }
+    template.opsForZSet().add(scheduledKey, tuples);
+    scheduled.add(tuples.size());
+    wake(earliest);
+  }
+
+  /**
+   * @return whether the job was still scheduled; false once it has been dispatched
+   */
+  public boolean cancel(String job) {
+    Long removed = template.opsForZSet().remove(scheduledKey, job);
+    return removed != null && removed > 0;
+  }
+
+  public synchronized void start() {
+    Assert.state(!running, "Scheduler " + name + " is already running");
+    running = true;
+    poller = new Thread(this::poll, "delayed-jobs-" + name + "-poller");
+    poller.setDaemon(true);
+    poller.start();
+  }
+
+  /**
+   * Stops the poller after its current batch. Jobs that are not due yet stay scheduled.
+   */
+  @Override
+  public synchronized void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    synchronized (wakeUp) {
+      wakeUp.notifyAll();
+    }
+    try {
+      poller.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public Metrics metrics() {
+    return new Metrics(scheduled.sum(), dispatched.sum(), returned.sum(), batches.sum(), polls.sum(),
+        failures.sum(), lagMillis.sum(), maxLagMillis.get());
+  }
+
+  private void poll() {
+    byte[] rawScheduled = serializer.serialize(scheduledKey);
+    byte[] rawClaim = serializer.serialize(claimKey);
+    byte[] rawReady = serializer.serialize(readyKey);
+
+    LettuceConnection connection = (LettuceConnection) template.getRequiredConnectionFactory().getConnection();
+    try {
+      boolean recovered = false;
+      while (running) {
+        long sleepMillis;
+        try {
+          if (!recovered) {
+            recover(connection, rawScheduled, rawClaim);
+            recovered = true;
+          }
+          sleepMillis = pollOnce(connection, rawScheduled, rawClaim, rawReady);
+        } catch (RuntimeException e) {
+          failures.increment();
+          log.warn("Polling {} failed", scheduledKey, e);
+          discardQuietly(connection);
+          // a batch may be left claimed, the next ZRANGESTORE would overwrite it
+          recovered = false;
+          sleepMillis = maxPollMillis;
+        }
+        if (sleepMillis > 0) {
+          sleep(sleepMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      connection.close();
+    }
+  }
+
+  /**
+   * @return how long to sleep before polling again
+   */
+  private long pollOnce(LettuceConnection connection, byte[] rawScheduled, byte[] rawClaim, byte[] rawReady) {
+    polls.increment();
+    Long due = connection.zSetCommands().zCount(rawScheduled, Double.NEGATIVE_INFINITY, System.currentTimeMillis());
+    if (due == null || due == 0) {
+      Set<Tuple> head = connection.zSetCommands().zRangeWithScores(rawScheduled, 0, 0);
+      if (head == null || head.isEmpty()) {
+        return maxPollMillis;
+      }
+      long untilDue = head.iterator().next().getScore().longValue() - System.currentTimeMillis();
+      return Math.min(Math.max(untilDue, 0), maxPollMillis);
+    }
+    Set<Tuple> claimed = claim(connection, rawScheduled, rawClaim, (int) Math.min(due, batchSize));
+    dispatch(connection, rawScheduled, rawClaim, rawReady, claimed);
+    // poll again right away: after a full batch more may be due, otherwise this finds the next due time
+    return 0;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Set<Tuple> claim(LettuceConnection connection, byte[] rawScheduled, byte[] rawClaim, int count) {
+    connection.multi();
+    connection.execute("ZRANGESTORE", new IntegerOutput<>(ByteArrayCodec.INSTANCE), rawClaim, rawScheduled,
+        bytes(0), bytes(count - 1));
+    connection.zSetCommands().zPopMin(rawScheduled, count);
+    List<Object> results = connection.exec();
+    return (Set<Tuple>) results.get(1);
+  }
+
+  private void dispatch(LettuceConnection connection, byte[] rawScheduled, byte[] rawClaim, byte[] rawReady,
+      Set<Tuple> claimed) {
+    long now = System.currentTimeMillis();
+    List<byte[]> ready = new ArrayList<>(claimed.size());
+    Set<Tuple> notDue = new LinkedHashSet<>();
+    long lag = 0;
+    long maxLag = 0;
+    // ZPOPMIN replies in score order, so the oldest job is pushed first and fetched first
+    for (Tuple tuple : claimed) {
+      long dueAt = tuple.getScore().longValue();
+      if (dueAt <= now) {
+        ready.add(tuple.getValue());
+        lag += now - dueAt;
+        maxLag = Math.max(maxLag, now - dueAt);
+      } else {
+        // another node took the due ones between ZCOUNT and ZPOPMIN
+        notDue.add(tuple);
+      }
+    }
+
+    connection.multi();
+    if (!ready.isEmpty()) {
+      connection.listCommands().lPush(rawReady, ready.toArray(new byte[0][]));
+    }
+    if (!notDue.isEmpty()) {
+      // NX: a job rescheduled in the meantime keeps its new due time
+      connection.zSetCommands().zAdd(rawScheduled, notDue, ZAddArgs.ifNotExists());
+    }
+    // EXEC still runs the other commands when one of them fails, so the claim is only dropped
+    // once every job is back on the schedule or on the ready list
+    connection.exec();
+    connection.keyCommands().del(rawClaim);
+
+    batches.increment();
+    dispatched.add(ready.size());
+    returned.add(notDue.size());
+    lagMillis.add(lag);
+    maxLagMillis.accumulateAndGet(maxLag, Math::max);
+  }
+
+  private void recover(LettuceConnection connection, byte[] rawScheduled, byte[] rawClaim) {
+    Long left = connection.zSetCommands().zCard(rawClaim);
+    if (left == null || left == 0) {
+      return;
+    }
+    connection.multi();
+    connection.zSetCommands().zUnionStore(rawScheduled, Aggregate.MIN, Weights.of(1, 1), rawScheduled, rawClaim);
+    connection.keyCommands().del(rawClaim);
+    connection.exec();
+    log.info("Returned {} jobs left claimed to {}", left, scheduledKey);
+  }
+
+  private static void discardQuietly(LettuceConnection connection) {
+    if (connection.isQueueing()) {
+      try {
+        connection.discard();
+      } catch (RuntimeException e) {
+        log.debug("DISCARD failed", e);
+      }
+    }
+  }
+
+  private void sleep(long millis) throws InterruptedException {
+    synchronized (wakeUp) {
+      sleepingUntil = System.currentTimeMillis() + millis;
+      try {
+        long remaining;
+        while (running && (remaining = sleepingUntil - System.currentTimeMillis()) > 0) {
+          wakeUp.wait(remaining);
+        }
+      } finally {
+        sleepingUntil = 0;
+      }
+    }
+  }
+
+  private void wake(long dueAt) {
+    if (dueAt >= sleepingUntil) {
+      return;
+    }
+    synchronized (wakeUp) {
+      if (dueAt < sleepingUntil) {
+        sleepingUntil = dueAt;
+        wakeUp.notifyAll();
+      }
+    }
+  }
+
+  private static byte[] bytes(long value) {
+    return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+  }
+
+  public static class Builder {
+
+    private final StringRedisTemplate template;
+    private final String name;
+    private String readyKey;
+    private String nodeId = localHostName();
+    private int batchSize = 1000;
+    private Duration maxPollInterval = Duration.ofMillis(50);
+
+    private Builder(StringRedisTemplate template, String name) {
+      this.template = template;
+      this.name = name;
+    }
+
+    /**
+     * The list due jobs are LPUSHed onto, {@code <name>:pending} by default.
+     */
+    public Builder readyKey(String readyKey) {
+      this.readyKey = readyKey;
+      return this;
+    }
+
+    /**
+     * Names this node's claim key. Must be stable across restarts for claims to be recovered,
+     * and unique per scheduler: the host name by default.
+     */
+    public Builder nodeId(String nodeId) {
+      this.nodeId = nodeId;
+      return this;
+    }
+
+    /**
+     * Jobs claimed and dispatched per round trip.
+     */
+    public Builder batchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * The longest the poller sleeps while nothing is due.
+     */
+    public Builder maxPollInterval(Duration maxPollInterval) {
+      this.maxPollInterval = maxPollInterval;
+      return this;
+    }
+
+    public DelayedJobScheduler build() {
+      Assert.hasText(nodeId, "nodeId must not be empty");
+      Assert.isTrue(batchSize > 0, "batchSize must be positive");
+      Assert.isTrue(!maxPollInterval.isNegative() && !maxPollInterval.isZero(), "maxPollInterval must be positive");
+      return new DelayedJobScheduler(this);
+    }
+
+    private static String localHostName() {
+      try {
+        return InetAddress.getLocalHost().getHostName();
+      } catch (UnknownHostException e) {
+        return "localhost";
+      }
+    }
+  }
+
+  public static class Metrics {
+
+    private final long scheduled;
+    private final long dispatched;
+    private final long returned;
+    private final long batches;
+    private final long polls;
+    private final long failures;
+    private final long lagMillis;
+    private final long maxLagMillis;
+
+    Metrics(long scheduled, long dispatched, long returned, long batches, long polls, long failures, long lagMillis,
+        long maxLagMillis) {
+      this.scheduled = scheduled;
+      this.dispatched = dispatched;
+      this.returned = returned;
+      this.batches = batches;
+      this.polls = polls;
+      this.failures = failures;
+      this.lagMillis = lagMillis;
+      this.maxLagMillis = maxLagMillis;
+    }
+
+    /**
+     * Jobs scheduled through this instance.
+     */
+    public long getScheduled() {
+      return scheduled;
+    }
+
+    /**
+     * Jobs this node moved onto the ready list, whoever scheduled them.
+     */
+    public long getDispatched() {
+      return dispatched;
+    }
+
+    /**
+     * Claimed jobs that were not due yet and went back onto the schedule.
+     */
+    public long getReturned() {
+      return returned;
+    }
+
+    public long getBatches() {
+      return batches;
+    }
+
+    public long getPolls() {
+      return polls;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * How long after their due time jobs reached the ready list, on average.
+     */
+    public double getAverageLagMillis() {
+      return dispatched == 0 ? 0 : (double) lagMillis / dispatched;
+    }
+
+    public long getMaxLagMillis() {
+      return maxLagMillis;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "scheduled=%d dispatched=%d returned=%d batches=%d polls=%d failures=%d avgLag=%.1fms maxLag=%dms",
+          scheduled, dispatched, returned, batches, polls, failures, getAverageLagMillis(), maxLagMillis);
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.redis.redis.sixtwo;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.connection.PoolException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionProvider;
+
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.support.ConnectionPoolSupport;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * A pool of connections per connection type, like the one Spring Data Redis uses for
+ * {@code LettucePoolingClientConfiguration}, that also records how long callers wait for a
+ * connection ({@code redis.pool.wait}) and exposes the pool sizes as gauges
+ * ({@code redis.pool.active}, {@code redis.pool.idle}, {@code redis.pool.waiting}).
+ */
+class InstrumentedPoolingConnectionProvider implements LettuceConnectionProvider, DisposableBean {
+
+  private final LettuceConnectionProvider delegate;
+  private final GenericObjectPoolConfig<StatefulConnection<?, ?>> config;
+  private final MeterRegistry registry;
+  private final String name;
+  private final Timer wait;
+
+  private final Map<Class<?>, GenericObjectPool<StatefulConnection<?, ?>>> pools = new ConcurrentHashMap<>();
+  private final Map<StatefulConnection<?, ?>, GenericObjectPool<StatefulConnection<?, ?>>> borrowed = new ConcurrentHashMap<>();
+
+  InstrumentedPoolingConnectionProvider(LettuceConnectionProvider delegate,
+      GenericObjectPoolConfig<StatefulConnection<?, ?>> config, MeterRegistry registry, String name) {
+    this.delegate = delegate;
+    this.config = config;
+    this.registry = registry;
+    this.name = name;
+    this.wait = Timer.builder("redis.pool.wait") //
+        .description("Time spent waiting for a pooled Redis connection") //
+        .tag("pool", name) //
+        .publishPercentileHistogram() //
+        .register(registry);
+  }
+
+  @Override
+  public <T extends StatefulConnection<?, ?>> T getConnection(Class<T> connectionType) {
+    GenericObjectPool<StatefulConnection<?, ?>> pool = pools.computeIfAbsent(connectionType, this::createPool);
+    long start = System.nanoTime();
+    try {
+      StatefulConnection<?, ?> connection = pool.borrowObject();
+      borrowed.put(connection, pool);
+      return connectionType.cast(connection);
+    } catch (Exception e) {
+      throw new PoolException("Could not get a resource from the pool", e);
+    } finally {
+      wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @Override
+  public <T extends StatefulConnection<?, ?>> CompletionStage<T> getConnectionAsync(Class<T> connectionType) {
+    try {
+      return CompletableFuture.completedFuture(getConnection(connectionType));
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public void release(StatefulConnection<?, ?> connection) {
+    GenericObjectPool<StatefulConnection<?, ?>> pool = borrowed.remove(connection);
+    if (pool == null) {
+      delegate.release(connection);
+      return;
+    }
+    if (!connection.isOpen()) {
+      try {
+        pool.invalidateObject(connection);
+      } catch (Exception e) {
+        throw new PoolException("Could not invalidate the broken connection", e);
+      }
+      return;
+    }
+    // don't hand the next borrower a connection in the middle of a MULTI
+    if (connection instanceof StatefulRedisConnection && ((StatefulRedisConnection<?, ?>) connection).isMulti()) {
+      ((StatefulRedisConnection<?, ?>) connection).sync().discard();
+    }
+    pool.returnObject(connection);
+  }
+
+  @Override
+  public CompletableFuture<Void> releaseAsync(StatefulConnection<?, ?> connection) {
+    try {
+      release(connection);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  @Override
+  public void destroy() throws Exception {
+    pools.values().forEach(GenericObjectPool::close);
+    pools.clear();
+    if (delegate instanceof DisposableBean) {
+      ((DisposableBean) delegate).destroy();
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private GenericObjectPool<StatefulConnection<?, ?>> createPool(Class<?> connectionType) {
+    Class<StatefulConnection<?, ?>> type = (Class<StatefulConnection<?, ?>>) connectionType;
+    GenericObjectPool<StatefulConnection<?, ?>> pool = ConnectionPoolSupport
+        .createGenericObjectPool(() -> delegate.getConnection(type), config, false);
+    String typeName = connectionType.getSimpleName();
+    Gauge.builder("redis.pool.active", pool, GenericObjectPool::getNumActive) //
+        .tags("pool", name, "type", typeName) //
+        .register(registry);
+    Gauge.builder("redis.pool.idle", pool, GenericObjectPool::getNumIdle) //
+        .tags("pool", name, "type", typeName) //
+        .register(registry);
+    Gauge.builder("redis.pool.waiting", pool, GenericObjectPool::getNumWaiters) //
+        .tags("pool", name, "type", typeName) //
+        .register(registry);
+    return pool;
+  }
+}
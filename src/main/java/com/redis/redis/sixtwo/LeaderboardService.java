@@ -0,0 +1,160 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Leaderboard pages served with the 6.2 ZRANGE forms, so no page ever reads the whole sorted
+ * set: top-N and around-me pages are an index range with REV, score bands use BYSCORE REV with
+ * LIMIT. Every page costs one round trip, around-me two (ZREVRANK, then the range).
+ *
+ * Expensive views can be materialized with {@link #snapshot(String, String, int, Duration)}:
+ * the top of a board is copied with ZRANGESTORE into a scratch key and RENAMEd over the
+ * snapshot, so readers always see a complete board.
+ */
+public class LeaderboardService implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(LeaderboardService.class);
+
+  private final StringRedisTemplate template;
+  private final SortedSetRangeCommands ranges;
+  private final ScheduledExecutorService refresher;
+
+  public LeaderboardService(StringRedisTemplate template) {
+    this.template = template;
+    this.ranges = new SortedSetRangeCommands(template);
+    this.refresher = Executors
+        .newSingleThreadScheduledExecutor(new CustomizableThreadFactory("leaderboard-snapshots-"));
+  }
+
+  /**
+   * The {@code n} highest scores, best first.
+   */
+  public List<Entry> top(String board, int n) {
+    Assert.isTrue(n >= 0, "n must not be negative");
+    if (n == 0) {
+      return Collections.emptyList();
+    }
+    return entries(ranges.rangeWithScores(board, 0, n - 1, true), 0);
+  }
+
+  /**
+   * {@code member} with up to {@code k} members ranked above and below it, or an empty list if
+   * the member is not on the board.
+   */
+  public List<Entry> aroundMe(String board, String member, int k) {
+    Long rank = template.opsForZSet().reverseRank(board, member);
+    if (rank == null) {
+      return Collections.emptyList();
+    }
+    long start = Math.max(0, rank - k);
+    return entries(ranges.rangeWithScores(board, start, rank + k, true), start);
+  }
+
+  /**
+   * A page of the members scoring between {@code min} and {@code max} (inclusive), best first.
+   * Ranks are not known for band pages and are reported as -1.
+   */
+  public List<Entry> scoreBand(String board, double min, double max, long offset, int count) {
+    return entries(ranges.rangeByScoreWithScores(board, min, max, true, offset, count), -1);
+  }
+
+  /**
+   * 0-based rank, best first, or {@code null} if the member is not on the board.
+   */
+  public Long rank(String board, String member) {
+    return template.opsForZSet().reverseRank(board, member);
+  }
+
+  /**
+   * Copies the top {@code size} members of {@code board} into {@code snapshot}. The copy is
+   * staged under a key of its own and renamed, so nodes refreshing the same snapshot don't
+   * overwrite each other's copy half way.
+   *
+   * @return the number of members in the snapshot
+   */
+  public long refreshSnapshot(String board, String snapshot, int size) {
+    Assert.isTrue(size > 0, "size must be positive");
+    String building = snapshot + ":building:" + UUID.randomUUID();
+    long stored = ranges.rangeAndStore(building, board, 0, size - 1, true);
+    if (stored == 0) {
+      // ZRANGESTORE of nothing leaves no key to rename
+      template.delete(snapshot);
+    } else {
+      template.rename(building, snapshot);
+    }
+    return stored;
+  }
+
+  /**
+   * Keeps {@code snapshot} refreshed from {@code board} every {@code interval}, starting now.
+   * Pages are read from the snapshot with the same methods, e.g. {@code top(snapshot, 10)}.
+   */
+  public void snapshot(String board, String snapshot, int size, Duration interval) {
+    Assert.isTrue(size > 0, "size must be positive");
+    refresher.scheduleWithFixedDelay(() -> {
+      try {
+        refreshSnapshot(board, snapshot, size);
+      } catch (RuntimeException e) {
+        log.warn("Refreshing snapshot {} of {} failed", snapshot, board, e);
+      }
+    }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void close() {
+    refresher.shutdownNow();
+  }
+
+  private static List<Entry> entries(List<TypedTuple<String>> tuples, long firstRank) {
+    List<Entry> entries = new ArrayList<>(tuples.size());
+    for (int i = 0; i < tuples.size(); i++) {
+      TypedTuple<String> tuple = tuples.get(i);
+      entries.add(new Entry(firstRank < 0 ? -1 : firstRank + i, tuple.getValue(), tuple.getScore()));
+    }
+    return entries;
+  }
+
+  public static class Entry {
+
+    private final long rank;
+    private final String member;
+    private final double score;
+
+    Entry(long rank, String member, double score) {
+      this.rank = rank;
+      this.member = member;
+      this.score = score;
+    }
+
+    public long getRank() {
+      return rank;
+    }
+
+    public String getMember() {
+      return member;
+    }
+
+    public double getScore() {
+      return score;
+    }
+
+    @Override
+    public String toString() {
+      return rank + ". " + member + " (" + score + ")";
+    }
+  }
+}
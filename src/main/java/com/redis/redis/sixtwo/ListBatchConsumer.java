@@ -0,0 +1,339 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Drains a list with {@code LPOP key count} (#8179) instead of one round trip per item.
+ *
+ * The COUNT doubles while every pop comes back full (the list is deep) and halves when a pop
+ * returns less than half of what was asked for. Batches are handed to the handler on a
+ * bounded pool; when the pool and its queue are full the drainer stops popping, so items are
+ * never taken off the list faster than they can be handled.
+ *
+ * Items are removed from Redis before they are handled: a failing handler or a crash loses
+ * the batch (at most once delivery).
+ */
+public class ListBatchConsumer implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ListBatchConsumer.class);
+
+  private final ListOperations<String, String> listOps;
+  private final String key;
+  private final Consumer<List<String>> handler;
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final Duration idleBackoff;
+  private final Duration shutdownTimeout;
+  private final ThreadPoolExecutor workers;
+  private final Semaphore capacity;
+
+  private final LongAdder items = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder emptyPolls = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  private volatile int batchSize;
+  private volatile boolean running;
+  private volatile long startedAt;
+  private volatile long stoppedAt;
+  private Thread drainer;
+  private final Object parking = new Object();
+  private boolean parked;
+
+  private ListBatchConsumer(Builder builder) {
+    this.listOps = builder.listOps;
+    this.key = builder.key;
+    this.handler = builder.handler;
+    this.minBatchSize = builder.minBatchSize;
+    this.maxBatchSize = builder.maxBatchSize;
+    this.idleBackoff = builder.idleBackoff;
+    this.shutdownTimeout = builder.shutdownTimeout;
+    this.batchSize = builder.minBatchSize;
+    this.workers = new ThreadPoolExecutor(builder.workers, builder.workers, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(builder.queueCapacity), new CustomizableThreadFactory("list-batch-" + key + "-"));
+    this.capacity = new Semaphore(builder.workers + builder.queueCapacity);
+  }
+
+  public static Builder builder(ListOperations<String, String> listOps, String key,
+      Consumer<List<String>> handler) {
+    return new Builder(listOps, key, handler);
+  }
+
+  public synchronized void start() {
+    Assert.state(!running, "Consumer for " + key + " is already running");
+    running = true;
+    startedAt = System.nanoTime();
+    drainer = new Thread(this::drain, "list-batch-drainer-" + key);
+    drainer.setDaemon(true);
+    drainer.start();
+  }
+
+  /**
+   * Stops popping and waits for the handlers. A pop in flight is not cancelled: its batch is
+   * handed to the workers like any other.
+   */
+  @Override
+  public synchronized void close() {
+    if (!running) {
+      return;
+    }
+    synchronized (parking) {
+      running = false;
+      // only cut short a wait, an interrupted LPOP would drop a batch Redis already popped
+      if (parked) {
+        drainer.interrupt();
+      }
+    }
+    stoppedAt = System.nanoTime();
+    try {
+      drainer.join(shutdownTimeout.toMillis());
+      workers.shutdown();
+      if (!workers.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        log.warn("Handlers for {} did not finish within {}", key, shutdownTimeout);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public Metrics metrics() {
+    long elapsed = startedAt == 0 ? 0 : (running ? System.nanoTime() : stoppedAt) - startedAt;
+    return new Metrics(items.sum(), batches.sum(), emptyPolls.sum(), failures.sum(), batchSize, elapsed);
+  }
+
+  private void drain() {
+    long backoff = 1;
+    while (running) {
+      if (!park(capacity::acquire)) {
+        break;
+      }
+      if (!running) {
+        capacity.release();
+        break;
+      }
+
+      List<String> batch;
+      try {
+        batch = listOps.leftPop(key, batchSize);
+      } catch (RuntimeException e) {
+        capacity.release();
+        log.warn("LPOP {} {} failed", key, batchSize, e);
+        if (!pause(idleBackoff.toMillis())) {
+          break;
+        }
+        continue;
+      }
+
+      if (batch == null || batch.isEmpty()) {
+        capacity.release();
+        emptyPolls.increment();
+        batchSize = minBatchSize;
+        if (!pause(backoff)) {
+          break;
+        }
+        backoff = Math.min(backoff * 2, idleBackoff.toMillis());
+        continue;
+      }
+
+      backoff = 1;
+      resize(batch.size());
+      items.add(batch.size());
+      batches.increment();
+      try {
+        workers.execute(() -> handle(batch));
+      } catch (RejectedExecutionException e) {
+        // closed while the pop was in flight and the workers are gone
+        handle(batch);
+      }
+    }
+  }
+
+  private void resize(int popped) {
+    int requested = batchSize;
+    if (popped >= requested) {
+      batchSize = Math.min(requested * 2, maxBatchSize);
+    } else if (popped < requested / 2) {
+      batchSize = Math.max(requested / 2, minBatchSize);
+    }
+  }
+
+  private void handle(List<String> batch) {
+    try {
+      handler.accept(batch);
+    } catch (RuntimeException e) {
+      failures.increment();
+      log.error("Handler failed for a batch of {} items from {}", batch.size(), key, e);
+    } finally {
+      capacity.release();
+    }
+  }
+
+  private boolean pause(long millis) {
+    return park(() -> Thread.sleep(millis));
+  }
+
+  /**
+   * Runs a wait that {@link #close()} may interrupt.
+   *
+   * @return false if the consumer is closing
+   */
+  private boolean park(Wait wait) {
+    synchronized (parking) {
+      if (!running) {
+        return false;
+      }
+      parked = true;
+    }
+    try {
+      wait.run();
+      return true;
+    } catch (InterruptedException e) {
+      return false;
+    } finally {
+      synchronized (parking) {
+        parked = false;
+        // an interrupt that came in as the wait ended must not reach the next pop
+        Thread.interrupted();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Wait {
+    void run() throws InterruptedException;
+  }
+
+  public static class Builder {
+
+    private final ListOperations<String, String> listOps;
+    private final String key;
+    private final Consumer<List<String>> handler;
+    private int minBatchSize = 1;
+    private int maxBatchSize = 1000;
+    private int workers = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = -1;
+    private Duration idleBackoff = Duration.ofMillis(100);
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+    private Builder(ListOperations<String, String> listOps, String key, Consumer<List<String>> handler) {
+      this.listOps = listOps;
+      this.key = key;
+      this.handler = handler;
+    }
+
+    public Builder minBatchSize(int minBatchSize) {
+      this.minBatchSize = minBatchSize;
+      return this;
+    }
+
+    public Builder maxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    public Builder workers(int workers) {
+      this.workers = workers;
+      return this;
+    }
+
+    /**
+     * Batches that may wait for a free worker, defaults to twice the number of workers.
+     */
+    public Builder queueCapacity(int queueCapacity) {
+      this.queueCapacity = queueCapacity;
+      return this;
+    }
+
+    /**
+     * Longest pause between pops while the list is empty.
+     */
+    public Builder idleBackoff(Duration idleBackoff) {
+      this.idleBackoff = idleBackoff;
+      return this;
+    }
+
+    public Builder shutdownTimeout(Duration shutdownTimeout) {
+      this.shutdownTimeout = shutdownTimeout;
+      return this;
+    }
+
+    public ListBatchConsumer build() {
+      Assert.isTrue(minBatchSize > 0 && minBatchSize <= maxBatchSize, "Need 0 < minBatchSize <= maxBatchSize");
+      Assert.isTrue(workers > 0, "Need at least one worker");
+      if (queueCapacity < 0) {
+        queueCapacity = workers * 2;
+      }
+      return new ListBatchConsumer(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long items;
+    private final long batches;
+    private final long emptyPolls;
+    private final long failures;
+    private final int batchSize;
+    private final long elapsedNanos;
+
+    Metrics(long items, long batches, long emptyPolls, long failures, int batchSize, long elapsedNanos) {
+      this.items = items;
+      this.batches = batches;
+      this.emptyPolls = emptyPolls;
+      this.failures = failures;
+      this.batchSize = batchSize;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getItems() {
+      return items;
+    }
+
+    public long getBatches() {
+      return batches;
+    }
+
+    public long getEmptyPolls() {
+      return emptyPolls;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * The COUNT the next pop will ask for.
+     */
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public double getAverageBatchSize() {
+      return batches == 0 ? 0 : (double) items / batches;
+    }
+
+    public double getItemsPerSecond() {
+      return elapsedNanos == 0 ? 0 : items * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("items=%d batches=%d avgBatch=%.1f batchSize=%d emptyPolls=%d failures=%d items/s=%.0f",
+          items, batches, getAverageBatchSize(), batchSize, emptyPolls, failures, getItemsPerSecond());
+    }
+  }
+}
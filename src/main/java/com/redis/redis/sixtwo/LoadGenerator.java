@@ -0,0 +1,526 @@
+package com.redis.redis.sixtwo;
+
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redis.redis.sixtwo.LoadGeneratorProperties.Format;
+
+/**
+ * Drives a weighted mix of the 6.2 list, set and sorted set commands at a fixed rate and
+ * records the latency of every command type in an HdrHistogram.
+ *
+ * The load is open loop: operation {@code i} is due at {@code start + i / rate} whatever
+ * happened to the ones before it. Workers take the next due operation, wait for its time if
+ * they are early and run it straight away if they are late, and latency is taken from the due
+ * time. A stall therefore shows up as the queue of late operations it caused (as users would
+ * see it) instead of as one slow sample, which is the coordinated omission a closed loop
+ * benchmark suffers from. Service time, from when the command was actually sent, is recorded
+ * next to it; the two drifting apart means the target rate is more than Redis, or
+ * {@code concurrency} workers, can sustain.
+ *
+ * Operations during the warmup are run but not recorded. Items popped by LPOP_COUNT and
+ * RPOP_COUNT are pushed back by a separate pool, so the workers only ever run scheduled
+ * operations; the push-backs still reach Redis on top of {@code rate}.
+ */
+public class LoadGenerator {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+  public enum Operation {
+    /** LMOVE (#6929) from the tail of one list to the head of another. */
+    LMOVE,
+    /** LPOP with COUNT (#8179), the items pushed back off the schedule (not timed). */
+    LPOP_COUNT,
+    /** RPOP with COUNT (#8179), the items pushed back off the schedule (not timed). */
+    RPOP_COUNT,
+    /** SMISMEMBER (#7615), half of the members absent. */
+    SMISMEMBER,
+    /** ZMSCORE (#7593), half of the members absent. */
+    ZMSCORE,
+    /** ZRANDMEMBER (#8297) with a count. */
+    ZRANDMEMBER,
+    /** ZDIFF (#7961) of two sorted sets. */
+    ZDIFF,
+    /** ZRANGE ... REV WITHSCORES, the top of a sorted set. */
+    ZRANGE_REV,
+    /** ZRANGESTORE ... REV of the top into a key of its own. */
+    ZRANGESTORE
+  }
+
+  private final StringRedisTemplate template;
+  private final SortedSetRangeCommands ranges;
+  private final LoadGeneratorProperties properties;
+  private final String[] values;
+  private final Operation[] operations;
+  private final int[] cumulativeWeights;
+
+  public LoadGenerator(StringRedisTemplate template, LoadGeneratorProperties properties) {
+    Assert.isTrue(properties.getRate() > 0 && properties.getConcurrency() > 0, "rate and concurrency must be positive");
+    Assert.isTrue(properties.getKeys() > 1 && properties.getMembers() > 0 && properties.getBatch() > 0,
+        "Need at least two keys, one member and a batch of one");
+    this.template = template;
+    this.ranges = new SortedSetRangeCommands(template);
+    this.properties = properties;
+
+    // the first half are loaded, the second half never are
+    this.values = new String[properties.getMembers() * 2];
+    for (int i = 0; i < values.length; i++) {
+      StringBuilder value = new StringBuilder(Integer.toString(i)).append(':');
+      while (value.length() < properties.getValueSize()) {
+        value.append('x');
+      }
+      values[i] = value.toString();
+    }
+
+    List<Operation> weighted = new ArrayList<>();
+    List<Integer> cumulative = new ArrayList<>();
+    int total = 0;
+    for (Map.Entry<Operation, Integer> entry : new EnumMap<>(properties.getMix()).entrySet()) {
+      if (entry.getValue() != null && entry.getValue() > 0) {
+        total += entry.getValue();
+        weighted.add(entry.getKey());
+        cumulative.add(total);
+      }
+    }
+    Assert.notEmpty(weighted, "The mix has no operation with a positive weight");
+    this.operations = weighted.toArray(new Operation[0]);
+    this.cumulativeWeights = cumulative.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Replaces the key space with {@code keys} lists, sets and sorted sets of {@code members}
+   * entries each, one pipeline per key.
+   */
+  public void populate() {
+    RedisSerializer<String> serializer = template.getStringSerializer();
+    byte[][] members = new byte[properties.getMembers()][];
+    for (int i = 0; i < members.length; i++) {
+      members[i] = serializer.serialize(values[i]);
+    }
+    for (int k = 0; k < properties.getKeys(); k++) {
+      byte[] list = serializer.serialize(list(k));
+      byte[] set = serializer.serialize(set(k));
+      byte[] zset = serializer.serialize(zset(k));
+      template.executePipelined((RedisCallback<Object>) connection -> {
+        connection.keyCommands().del(list, set, zset);
+        connection.listCommands().rPush(list, members);
+        connection.setCommands().sAdd(set, members);
+        for (int i = 0; i < members.length; i++) {
+          connection.zSetCommands().zAdd(zset, i, members[i]);
+        }
+        return null;
+      });
+    }
+    log.info("Loaded {} lists, sets and sorted sets of {} members", properties.getKeys(), properties.getMembers());
+  }
+
+  /**
+   * Runs the warmup and the measured duration, blocking until both are over.
+   */
+  public Report run() throws InterruptedException {
+    long interval = TimeUnit.SECONDS.toNanos(1) / properties.getRate();
+    long warmupOps = properties.getWarmup().toNanos() / interval;
+    long totalOps = warmupOps + properties.getDuration().toNanos() / interval;
+
+    Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    for (Operation operation : operations) {
+      stats.put(operation, new Stats());
+    }
+    AtomicLong next = new AtomicLong();
+    Instant startedAt = Instant.now();
+    long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+
+    ExecutorService workers = Executors.newFixedThreadPool(properties.getConcurrency(),
+        new CustomizableThreadFactory("loadgen-"));
+    ExecutorService restorers = Executors.newFixedThreadPool(properties.getConcurrency(),
+        new CustomizableThreadFactory("loadgen-restore-"));
+    for (int w = 0; w < properties.getConcurrency(); w++) {
+      workers.execute(() -> {
+        long i;
+        while ((i = next.getAndIncrement()) < totalOps && !Thread.currentThread().isInterrupted()) {
+          long due = start + i * interval;
+          long early;
+          while ((early = due - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(early);
+          }
+          Operation operation = pick();
+          long sent = System.nanoTime();
+          Runnable restore = null;
+          boolean failed = false;
+          try {
+            restore = execute(operation);
+          } catch (RuntimeException e) {
+            failed = true;
+            log.debug("{} failed", operation, e);
+          }
+          long done = System.nanoTime();
+          if (i >= warmupOps) {
+            stats.get(operation).record(done - due, done - sent, failed);
+          }
+          if (restore != null) {
+            try {
+              restorers.execute(restore);
+            } catch (RejectedExecutionException e) {
+              // a worker that outlived the timeout
+              restore.run();
+            }
+          }
+        }
+      });
+    }
+    workers.shutdown();
+    long timeout = properties.getWarmup().plus(properties.getDuration()).multipliedBy(2).plusSeconds(60).toMillis();
+    if (!workers.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+      workers.shutdownNow();
+      log.warn("Load generator workers did not finish in time, the report is partial");
+    }
+    long measuredNanos = Math.max(1, System.nanoTime() - (start + warmupOps * interval));
+    restorers.shutdown();
+    if (!restorers.awaitTermination(1, TimeUnit.MINUTES)) {
+      restorers.shutdownNow();
+      log.warn("Popped items were not all pushed back, lists may be shorter than {}", properties.getMembers());
+    }
+
+    List<Result> results = new ArrayList<>();
+    stats.forEach((operation, stat) -> results.add(new Result(operation, stat, measuredNanos)));
+    return new Report(startedAt, properties, results);
+  }
+
+  private Operation pick() {
+    int roll = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (roll < cumulativeWeights[i]) {
+        return operations[i];
+      }
+    }
+    return operations[operations.length - 1];
+  }
+
+  /**
+   * @return what puts popped items back, run off the schedule once the operation is timed
+   */
+  private Runnable execute(Operation operation) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int key = random.nextInt(properties.getKeys());
+    int batch = properties.getBatch();
+    switch (operation) {
+    case LMOVE:
+      template.opsForList().move(list(key), RIGHT, list(otherKey(key)), LEFT);
+      return null;
+    case LPOP_COUNT:
+      return pushBack(template.opsForList().leftPop(list(key), batch), list(key), false);
+    case RPOP_COUNT:
+      return pushBack(template.opsForList().rightPop(list(key), batch), list(key), true);
+    case SMISMEMBER:
+      template.opsForSet().isMember(set(key), randomValues(random, batch));
+      return null;
+    case ZMSCORE:
+      template.opsForZSet().score(zset(key), randomValues(random, batch));
+      return null;
+    case ZRANDMEMBER:
+      template.opsForZSet().randomMembers(zset(key), batch);
+      return null;
+    case ZDIFF:
+      template.opsForZSet().difference(zset(key), zset(otherKey(key)));
+      return null;
+    case ZRANGE_REV:
+      ranges.rangeWithScores(zset(key), 0, batch - 1, true);
+      return null;
+    case ZRANGESTORE:
+      ranges.rangeAndStore("loadgen:top:" + key, zset(key), 0, batch - 1, true);
+      return null;
+    default:
+      throw new IllegalArgumentException("Unsupported operation " + operation);
+    }
+  }
+
+  /**
+   * Pushes popped items back onto the end they were popped from, so lists keep their size.
+   */
+  private Runnable pushBack(List<String> popped, String list, boolean tail) {
+    if (popped == null || popped.isEmpty()) {
+      return null;
+    }
+    return () -> {
+      try {
+        if (tail) {
+          template.opsForList().rightPushAll(list, popped);
+        } else {
+          template.opsForList().leftPushAll(list, popped);
+        }
+      } catch (RuntimeException e) {
+        log.debug("Pushing {} items back onto {} failed", popped.size(), list, e);
+      }
+    };
+  }
+
+  /**
+   * {@code count} members, each absent with even odds.
+   */
+  private Object[] randomValues(ThreadLocalRandom random, int count) {
+    Object[] picked = new Object[count];
+    for (int i = 0; i < count; i++) {
+      picked[i] = values[random.nextInt(values.length)];
+    }
+    return picked;
+  }
+
+  private int otherKey(int key) {
+    return (key + 1 + ThreadLocalRandom.current().nextInt(properties.getKeys() - 1)) % properties.getKeys();
+  }
+
+  private static String list(int key) {
+    return "loadgen:list:" + key;
+  }
+
+  private static String set(int key) {
+    return "loadgen:set:" + key;
+  }
+
+  private static String zset(int key) {
+    return "loadgen:zset:" + key;
+  }
+
+  private static final class Stats {
+
+    final Histogram latency = new ConcurrentHistogram(3);
+    final Histogram service = new ConcurrentHistogram(3);
+    final LongAdder errors = new LongAdder();
+
+    void record(long latencyNanos, long serviceNanos, boolean failed) {
+      latency.recordValue(latencyNanos);
+      service.recordValue(serviceNanos);
+      if (failed) {
+        errors.increment();
+      }
+    }
+  }
+
+  /**
+   * Latency and service time percentiles of one operation, in microseconds.
+   */
+  public static class Result {
+
+    private static final double[] PERCENTILES = { 50, 90, 99, 99.9, 99.99 };
+
+    private final Operation operation;
+    private final long count;
+    private final long errors;
+    private final double throughput;
+    private final Histogram latency;
+    private final Histogram service;
+
+    Result(Operation operation, Stats stats, long measuredNanos) {
+      this.operation = operation;
+      this.latency = stats.latency;
+      this.service = stats.service;
+      this.count = latency.getTotalCount();
+      this.errors = stats.errors.sum();
+      this.throughput = count * 1e9 / measuredNanos;
+    }
+
+    public Operation getOperation() {
+      return operation;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getErrors() {
+      return errors;
+    }
+
+    /**
+     * Operations per second over the measured duration.
+     */
+    public double getThroughput() {
+      return throughput;
+    }
+
+    /**
+     * Time from when the operation was due, in microseconds.
+     */
+    public double latencyAt(double percentile) {
+      return latency.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    /**
+     * Time from when the command was sent, in microseconds.
+     */
+    public double serviceTimeAt(double percentile) {
+      return service.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    Map<String, Object> toMap() {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("operation", operation.name());
+      map.put("count", count);
+      map.put("errors", errors);
+      map.put("throughput", throughput);
+      map.put("latencyMicros", percentiles(latency));
+      map.put("serviceTimeMicros", percentiles(service));
+      return map;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+      Map<String, Object> map = new LinkedHashMap<>();
+      map.put("mean", histogram.getMean() / 1000.0);
+      for (double percentile : PERCENTILES) {
+        map.put("p" + percentileLabel(percentile), histogram.getValueAtPercentile(percentile) / 1000.0);
+      }
+      map.put("max", histogram.getMaxValue() / 1000.0);
+      return map;
+    }
+
+    private static String percentileLabel(double percentile) {
+      return percentile == Math.rint(percentile) ? Long.toString((long) percentile)
+          : Double.toString(percentile).replace(".", "");
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%-12s count=%d errors=%d %.0f/s latency p50=%.0fus p99=%.0fus p99.9=%.0fus max=%.0fus "
+          + "service p50=%.0fus p99=%.0fus", operation, count, errors, throughput, latencyAt(50), latencyAt(99),
+          latencyAt(99.9), latency.getMaxValue() / 1000.0, serviceTimeAt(50), serviceTimeAt(99));
+    }
+  }
+
+  /**
+   * The results of one run, written as {@code loadgen-<time>.csv} and {@code .json}.
+   */
+  public static class Report {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+        .withZone(ZoneOffset.UTC);
+
+    private final Instant startedAt;
+    private final LoadGeneratorProperties properties;
+    private final List<Result> results;
+
+    Report(Instant startedAt, LoadGeneratorProperties properties, List<Result> results) {
+      this.startedAt = startedAt;
+      this.properties = properties;
+      this.results = results;
+    }
+
+    public List<Result> getResults() {
+      return results;
+    }
+
+    /**
+     * @return the files written
+     */
+    public List<Path> write(Path directory, Set<Format> formats) throws IOException {
+      Files.createDirectories(directory);
+      String name = "loadgen-" + FILE_TIME.format(startedAt);
+      List<Path> written = new ArrayList<>();
+      if (formats.contains(Format.CSV)) {
+        written.add(writeCsv(directory.resolve(name + ".csv")));
+      }
+      if (formats.contains(Format.JSON)) {
+        written.add(writeJson(directory.resolve(name + ".json")));
+      }
+      return written;
+    }
+
+    private Path writeCsv(Path file) throws IOException {
+      List<Map<String, Object>> rows = new ArrayList<>();
+      for (Result result : results) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        result.toMap().forEach((column, value) -> flatten(column, value, row));
+        rows.add(row);
+      }
+      try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file))) {
+        if (rows.isEmpty()) {
+          return file;
+        }
+        // latencyMicros.p99, serviceTimeMicros.max, ...
+        out.println(String.join(",", rows.get(0).keySet()));
+        for (Map<String, Object> row : rows) {
+          List<String> cells = new ArrayList<>();
+          row.values().forEach(value -> cells.add(value instanceof Double
+              ? String.format(Locale.ROOT, "%.1f", (Double) value)
+              : String.valueOf(value)));
+          out.println(String.join(",", cells));
+        }
+      }
+      return file;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String column, Object value, Map<String, Object> row) {
+      if (value instanceof Map) {
+        ((Map<String, Object>) value).forEach((nested, nestedValue) -> flatten(column + "." + nested, nestedValue,
+            row));
+      } else {
+        row.put(column, value);
+      }
+    }
+
+    private Path writeJson(Path file) throws IOException {
+      Map<String, Object> settings = new LinkedHashMap<>();
+      settings.put("rate", properties.getRate());
+      settings.put("concurrency", properties.getConcurrency());
+      settings.put("keys", properties.getKeys());
+      settings.put("members", properties.getMembers());
+      settings.put("valueSize", properties.getValueSize());
+      settings.put("batch", properties.getBatch());
+      settings.put("warmup", properties.getWarmup().toString());
+      settings.put("duration", properties.getDuration().toString());
+      Map<String, Object> mix = new LinkedHashMap<>();
+      new EnumMap<>(properties.getMix()).forEach((operation, weight) -> mix.put(operation.name(), weight));
+      settings.put("mix", mix);
+
+      Map<String, Object> json = new LinkedHashMap<>();
+      json.put("startedAt", startedAt.toString());
+      json.put("settings", settings);
+      List<Map<String, Object>> operations = new ArrayList<>();
+      results.forEach(result -> operations.add(result.toMap()));
+      json.put("operations", operations);
+      new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file.toFile(), json);
+      return file;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder summary = new StringBuilder();
+      results.forEach(result -> summary.append(System.lineSeparator()).append(result));
+      return summary.toString();
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.redis.redis.sixtwo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+/**
+ * Runs the {@link LoadGenerator} once the application has started when
+ * {@code app.loadgen.enabled} is set, against whatever {@code spring.redis.*} and
+ * {@code app.redis.connection.*} point at, and writes its report to
+ * {@code app.loadgen.output}:
+ *
+ * <pre>
+ * ./mvnw spring-boot:run -Dspring-boot.run.arguments="--app.loadgen.enabled=true --app.loadgen.rate=5000"
+ * </pre>
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.loadgen", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(LoadGeneratorProperties.class)
+public class LoadGeneratorConfiguration {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadGeneratorConfiguration.class);
+
+  @Bean
+  public ApplicationRunner loadGeneratorRunner(StringRedisTemplate stringRedisTemplate,
+      LoadGeneratorProperties properties) {
+    return args -> {
+      LoadGenerator generator = new LoadGenerator(stringRedisTemplate, properties);
+      if (properties.isPopulate()) {
+        generator.populate();
+      }
+      log.info("Running {} ops/s for {} after a {} warmup", properties.getRate(), properties.getDuration(),
+          properties.getWarmup());
+      LoadGenerator.Report report = generator.run();
+      log.info("Load generator results:{}", report);
+      log.info("Wrote {}", report.write(properties.getOutput(), properties.getFormats()));
+    };
+  }
+}
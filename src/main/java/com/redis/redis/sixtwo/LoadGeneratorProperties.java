@@ -0,0 +1,190 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import com.redis.redis.sixtwo.LoadGenerator.Operation;
+
+/**
+ * {@code app.loadgen.*}, see {@link LoadGeneratorConfiguration}.
+ */
+@ConfigurationProperties("app.loadgen")
+public class LoadGeneratorProperties {
+
+  public enum Format {
+    CSV, JSON
+  }
+
+  /**
+   * Run the load generator instead of idling, the application exits once it is done.
+   */
+  private boolean enabled;
+
+  /**
+   * Relative weight of each operation, e.g. {@code app.loadgen.mix.smismember=5}. Every
+   * operation weighs 1 unless set, 0 leaves it out.
+   */
+  private Map<Operation, Integer> mix = defaultMix();
+
+  /**
+   * Lists, sets and sorted sets each, under {@code loadgen:*}.
+   */
+  private int keys = 1000;
+
+  /**
+   * Entries per key.
+   */
+  private int members = 100;
+
+  /**
+   * Bytes per list item and member.
+   */
+  private int valueSize = 32;
+
+  /**
+   * Members per multi-member command (SMISMEMBER, ZMSCORE, LPOP COUNT, ZRANGE limits).
+   */
+  private int batch = 10;
+
+  /**
+   * Worker threads, the most operations in flight at once.
+   */
+  private int concurrency = 16;
+
+  /**
+   * Target operations per second. The schedule doesn't slow down when Redis does: latency is
+   * measured from when an operation was due, not from when a connection was free.
+   */
+  private int rate = 1000;
+
+  private Duration warmup = Duration.ofSeconds(5);
+
+  private Duration duration = Duration.ofSeconds(30);
+
+  /**
+   * Load the key space before the run; turn off to reuse the data of a previous run.
+   */
+  private boolean populate = true;
+
+  private Path output = Path.of("target", "loadgen");
+
+  private Set<Format> formats = EnumSet.allOf(Format.class);
+
+  private static Map<Operation, Integer> defaultMix() {
+    Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+    for (Operation operation : Operation.values()) {
+      mix.put(operation, 1);
+    }
+    return mix;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Map<Operation, Integer> getMix() {
+    return mix;
+  }
+
+  public void setMix(Map<Operation, Integer> mix) {
+    this.mix = mix;
+  }
+
+  public int getKeys() {
+    return keys;
+  }
+
+  public void setKeys(int keys) {
+    this.keys = keys;
+  }
+
+  public int getMembers() {
+    return members;
+  }
+
+  public void setMembers(int members) {
+    this.members = members;
+  }
+
+  public int getValueSize() {
+    return valueSize;
+  }
+
+  public void setValueSize(int valueSize) {
+    this.valueSize = valueSize;
+  }
+
+  public int getBatch() {
+    return batch;
+  }
+
+  public void setBatch(int batch) {
+    this.batch = batch;
+  }
+
+  public int getConcurrency() {
+    return concurrency;
+  }
+
+  public void setConcurrency(int concurrency) {
+    this.concurrency = concurrency;
+  }
+
+  public int getRate() {
+    return rate;
+  }
+
+  public void setRate(int rate) {
+    this.rate = rate;
+  }
+
+  public Duration getWarmup() {
+    return warmup;
+  }
+
+  public void setWarmup(Duration warmup) {
+    this.warmup = warmup;
+  }
+
+  public Duration getDuration() {
+    return duration;
+  }
+
+  public void setDuration(Duration duration) {
+    this.duration = duration;
+  }
+
+  public boolean isPopulate() {
+    return populate;
+  }
+
+  public void setPopulate(boolean populate) {
+    this.populate = populate;
+  }
+
+  public Path getOutput() {
+    return output;
+  }
+
+  public void setOutput(Path output) {
+    this.output = output;
+  }
+
+  public Set<Format> getFormats() {
+    return formats;
+  }
+
+  public void setFormats(Set<Format> formats) {
+    this.formats = formats;
+  }
+}
@@ -0,0 +1,306 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Folds concurrent single member lookups against the same key into one SMISMEMBER (#7615) or
+ * ZMSCORE (#7593).
+ *
+ * The first lookup for a key opens a batch; lookups arriving within {@code window} join it.
+ * The batch is sent when the window closes or as soon as it holds {@code maxBatchSize}
+ * members, whichever comes first, and every caller's future is completed from its slot in the
+ * reply. A lookup therefore waits at most {@code window} longer than it would on its own.
+ */
+public class LookupCoalescer implements AutoCloseable {
+
+  private final SetOperations<String, String> setOps;
+  private final ZSetOperations<String, String> zSetOps;
+  private final long windowNanos;
+  private final int maxBatchSize;
+  private final ScheduledExecutorService timer;
+  private final ExecutorService dispatcher;
+
+  private final ConcurrentHashMap<String, Batch<Boolean>> membershipBatches = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Batch<Double>> scoreBatches = new ConcurrentHashMap<>();
+  private volatile boolean closed;
+
+  private final LongAdder lookups = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final AtomicLong largestBatch = new AtomicLong();
+  private final AtomicLong longestWaitNanos = new AtomicLong();
+
+  private LookupCoalescer(Builder builder) {
+    this.setOps = builder.setOps;
+    this.zSetOps = builder.zSetOps;
+    this.windowNanos = builder.window.toNanos();
+    this.maxBatchSize = builder.maxBatchSize;
+    this.timer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("lookup-coalescer-timer-"));
+    this.dispatcher = Executors.newFixedThreadPool(builder.dispatchThreads,
+        new CustomizableThreadFactory("lookup-coalescer-"));
+  }
+
+  public static Builder builder(SetOperations<String, String> setOps, ZSetOperations<String, String> zSetOps) {
+    return new Builder(setOps, zSetOps);
+  }
+
+  /**
+   * SISMEMBER, sent as part of an SMISMEMBER.
+   */
+  public CompletableFuture<Boolean> isMember(String key, String member) {
+    return enqueue(membershipBatches, key, member, this::sendMembership);
+  }
+
+  /**
+   * ZSCORE, sent as part of a ZMSCORE. Completes with {@code null} when the member is absent.
+   */
+  public CompletableFuture<Double> score(String key, String member) {
+    return enqueue(scoreBatches, key, member, this::sendScores);
+  }
+
+  public Metrics metrics() {
+    return new Metrics(lookups.sum(), batches.sum(), largestBatch.get(), waitNanos.sum(), longestWaitNanos.get());
+  }
+
+  /**
+   * Sends the open batches right away and stops accepting new lookups, which then fail with an
+   * {@link IllegalStateException}.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    timer.shutdownNow();
+    membershipBatches.values().forEach(batch -> flush(membershipBatches, batch, this::sendMembership));
+    scoreBatches.values().forEach(batch -> flush(scoreBatches, batch, this::sendScores));
+    dispatcher.shutdown();
+    try {
+      dispatcher.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private <T> CompletableFuture<T> enqueue(ConcurrentHashMap<String, Batch<T>> open, String key, String member,
+      Consumer<Batch<T>> sender) {
+    if (closed) {
+      return CompletableFuture.failedFuture(new IllegalStateException("LookupCoalescer is closed"));
+    }
+    CompletableFuture<T> future = new CompletableFuture<>();
+    lookups.increment();
+    while (true) {
+      Batch<T> batch = open.computeIfAbsent(key, Batch::new);
+      int size = batch.add(member, future);
+      if (size < 0) {
+        // raced with a flush, the next computeIfAbsent opens a fresh batch
+        open.remove(key, batch);
+        continue;
+      }
+      if (size == 1) {
+        try {
+          timer.schedule(() -> flush(open, batch, sender), windowNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+          // closed since the check above, send it now
+          flush(open, batch, sender);
+        }
+      }
+      if (size >= maxBatchSize) {
+        flush(open, batch, sender);
+      }
+      return future;
+    }
+  }
+
+  private <T> void flush(ConcurrentHashMap<String, Batch<T>> open, Batch<T> batch, Consumer<Batch<T>> sender) {
+    if (!batch.close()) {
+      return;
+    }
+    open.remove(batch.key, batch);
+    Runnable send = () -> {
+      record(batch);
+      sender.accept(batch);
+    };
+    try {
+      dispatcher.execute(send);
+    } catch (RejectedExecutionException e) {
+      // a lookup that raced with close, answered on the caller's thread
+      send.run();
+    }
+  }
+
+  private void sendMembership(Batch<Boolean> batch) {
+    try {
+      Map<Object, Boolean> result = setOps.isMember(batch.key, batch.members.toArray());
+      for (int i = 0; i < batch.members.size(); i++) {
+        batch.futures.get(i).complete(Boolean.TRUE.equals(result.get(batch.members.get(i))));
+      }
+    } catch (RuntimeException e) {
+      batch.futures.forEach(future -> future.completeExceptionally(e));
+    }
+  }
+
+  private void sendScores(Batch<Double> batch) {
+    try {
+      List<Double> scores = zSetOps.score(batch.key, batch.members.toArray());
+      for (int i = 0; i < batch.members.size(); i++) {
+        batch.futures.get(i).complete(scores.get(i));
+      }
+    } catch (RuntimeException e) {
+      batch.futures.forEach(future -> future.completeExceptionally(e));
+    }
+  }
+
+  private void record(Batch<?> batch) {
+    long waited = System.nanoTime() - batch.openedAt;
+    batches.increment();
+    waitNanos.add(waited);
+    largestBatch.accumulateAndGet(batch.members.size(), Math::max);
+    longestWaitNanos.accumulateAndGet(waited, Math::max);
+  }
+
+  private static final class Batch<T> {
+
+    final String key;
+    final long openedAt = System.nanoTime();
+    final List<String> members = new ArrayList<>();
+    final List<CompletableFuture<T>> futures = new ArrayList<>();
+    private boolean closed;
+
+    Batch(String key) {
+      this.key = key;
+    }
+
+    /**
+     * @return the batch size after adding, or -1 if the batch was already sent
+     */
+    synchronized int add(String member, CompletableFuture<T> future) {
+      if (closed) {
+        return -1;
+      }
+      members.add(member);
+      futures.add(future);
+      return members.size();
+    }
+
+    synchronized boolean close() {
+      if (closed) {
+        return false;
+      }
+      closed = true;
+      return true;
+    }
+  }
+
+  public static class Builder {
+
+    private final SetOperations<String, String> setOps;
+    private final ZSetOperations<String, String> zSetOps;
+    private Duration window = Duration.ofNanos(200_000);
+    private int maxBatchSize = 64;
+    private int dispatchThreads = Runtime.getRuntime().availableProcessors();
+
+    private Builder(SetOperations<String, String> setOps, ZSetOperations<String, String> zSetOps) {
+      this.setOps = setOps;
+      this.zSetOps = zSetOps;
+    }
+
+    /**
+     * How long the first lookup of a batch waits for others to join, 200µs by default.
+     */
+    public Builder window(Duration window) {
+      this.window = window;
+      return this;
+    }
+
+    public Builder maxBatchSize(int maxBatchSize) {
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Threads sending batches, i.e. the number of SMISMEMBER/ZMSCORE calls in flight.
+     */
+    public Builder dispatchThreads(int dispatchThreads) {
+      this.dispatchThreads = dispatchThreads;
+      return this;
+    }
+
+    public LookupCoalescer build() {
+      Assert.isTrue(maxBatchSize > 0 && dispatchThreads > 0, "maxBatchSize and dispatchThreads must be positive");
+      return new LookupCoalescer(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long lookups;
+    private final long batches;
+    private final long largestBatch;
+    private final long waitNanos;
+    private final long longestWaitNanos;
+
+    Metrics(long lookups, long batches, long largestBatch, long waitNanos, long longestWaitNanos) {
+      this.lookups = lookups;
+      this.batches = batches;
+      this.largestBatch = largestBatch;
+      this.waitNanos = waitNanos;
+      this.longestWaitNanos = longestWaitNanos;
+    }
+
+    public long getLookups() {
+      return lookups;
+    }
+
+    /**
+     * SMISMEMBER/ZMSCORE calls sent.
+     */
+    public long getBatches() {
+      return batches;
+    }
+
+    public double getAverageBatchSize() {
+      return batches == 0 ? 0 : (double) lookups / batches;
+    }
+
+    public long getLargestBatch() {
+      return largestBatch;
+    }
+
+    /**
+     * Average time the oldest lookup of a batch waited before it was sent, which bounds the
+     * latency coalescing added to every lookup in that batch.
+     */
+    public double getAverageAddedLatencyMicros() {
+      return batches == 0 ? 0 : waitNanos / 1000.0 / batches;
+    }
+
+    public double getMaxAddedLatencyMicros() {
+      return longestWaitNanos / 1000.0;
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "lookups=%d batches=%d avgBatch=%.1f largestBatch=%d avgAddedLatency=%.0fµs maxAddedLatency=%.0fµs",
+          lookups, batches, getAverageBatchSize(), largestBatch, getAverageAddedLatencyMicros(),
+          getMaxAddedLatencyMicros());
+    }
+  }
+}
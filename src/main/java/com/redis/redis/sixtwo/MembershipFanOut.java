@@ -0,0 +1,156 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+
+/**
+ * Membership checks across many sets at once: one SMISMEMBER (#7615) per key, or per chunk of
+ * {@code chunkSize} members for long member lists, all written to the connection before the
+ * first reply is read.
+ *
+ * Compared to a loop of {@code isMember(key, members...)} calls this pays one round trip for
+ * the whole map instead of one per key, which is what matters when a single member (a user)
+ * is checked against hundreds of keys (the groups it may belong to).
+ */
+public class MembershipFanOut {
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final int chunkSize;
+  private final Duration timeout;
+
+  public MembershipFanOut(StringRedisTemplate template) {
+    this(template, 500, Duration.ofSeconds(10));
+  }
+
+  public MembershipFanOut(StringRedisTemplate template, int chunkSize, Duration timeout) {
+    Assert.isTrue(chunkSize > 0, "chunkSize must be positive");
+    this.template = template;
+    this.serializer = template.getStringSerializer();
+    this.chunkSize = chunkSize;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Whether each member is in the set at its key. Keys and members come back in the order they
+   * were given; a missing key reports all its members as absent.
+   */
+  public Map<String, Map<String, Boolean>> isMember(Map<String, ? extends Collection<String>> membersByKey) {
+    if (membersByKey.isEmpty()) {
+      return new LinkedHashMap<>();
+    }
+    return template.execute((RedisCallback<Map<String, Map<String, Boolean>>>) connection -> {
+      List<Chunk> chunks = dispatch(connection, membersByKey);
+      RedisFuture<?>[] futures = chunks.stream().map(chunk -> chunk.reply).toArray(RedisFuture[]::new);
+      if (!LettuceFutures.awaitAll(timeout.toMillis(), TimeUnit.MILLISECONDS, futures)) {
+        throw new RedisSystemException("SMISMEMBER fan-out timed out after " + timeout, null);
+      }
+      return combine(membersByKey, chunks);
+    });
+  }
+
+  /**
+   * The same as {@link #isMember(Map)} without waiting for the replies. Uses its own connection
+   * from the factory, released once the last reply has arrived.
+   */
+  public CompletableFuture<Map<String, Map<String, Boolean>>> isMemberAsync(
+      Map<String, ? extends Collection<String>> membersByKey) {
+    if (membersByKey.isEmpty()) {
+      return CompletableFuture.completedFuture(new LinkedHashMap<>());
+    }
+    RedisConnection connection = template.getRequiredConnectionFactory().getConnection();
+    List<Chunk> chunks;
+    try {
+      chunks = dispatch(connection, membersByKey);
+    } catch (RuntimeException e) {
+      connection.close();
+      throw e;
+    }
+    CompletableFuture<?>[] futures = chunks.stream()
+        .map(chunk -> chunk.reply.toCompletableFuture())
+        .toArray(CompletableFuture[]::new);
+    return CompletableFuture.allOf(futures)
+        .orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+        .whenComplete((done, failure) -> connection.close())
+        .thenApply(done -> combine(membersByKey, chunks));
+  }
+
+  /**
+   * One member against many sets, e.g. a user against the groups that grant a permission.
+   */
+  public Map<String, Boolean> isMemberOfEach(String member, Collection<String> keys) {
+    Map<String, List<String>> membersByKey = new LinkedHashMap<>();
+    for (String key : keys) {
+      membersByKey.put(key, List.of(member));
+    }
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    isMember(membersByKey).forEach((key, members) -> result.put(key, members.get(member)));
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Chunk> dispatch(RedisConnection connection, Map<String, ? extends Collection<String>> membersByKey) {
+    RedisClusterAsyncCommands<byte[], byte[]> commands =
+        (RedisClusterAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+    List<Chunk> chunks = new ArrayList<>(membersByKey.size());
+    for (Map.Entry<String, ? extends Collection<String>> entry : membersByKey.entrySet()) {
+      byte[] rawKey = serializer.serialize(entry.getKey());
+      List<String> members = new ArrayList<>(entry.getValue());
+      for (int from = 0; from < members.size(); from += chunkSize) {
+        List<String> part = members.subList(from, Math.min(from + chunkSize, members.size()));
+        byte[][] rawMembers = new byte[part.size()][];
+        for (int i = 0; i < rawMembers.length; i++) {
+          rawMembers[i] = serializer.serialize(part.get(i));
+        }
+        chunks.add(new Chunk(entry.getKey(), part, commands.smismember(rawKey, rawMembers)));
+      }
+    }
+    return chunks;
+  }
+
+  private static Map<String, Map<String, Boolean>> combine(Map<String, ? extends Collection<String>> membersByKey,
+      List<Chunk> chunks) {
+    Map<String, Map<String, Boolean>> result = new LinkedHashMap<>();
+    for (String key : membersByKey.keySet()) {
+      result.put(key, new LinkedHashMap<>());
+    }
+    for (Chunk chunk : chunks) {
+      List<Boolean> flags = chunk.reply.toCompletableFuture().join();
+      Map<String, Boolean> members = result.get(chunk.key);
+      for (int i = 0; i < chunk.members.size(); i++) {
+        members.put(chunk.members.get(i), Boolean.TRUE.equals(flags.get(i)));
+      }
+    }
+    return result;
+  }
+
+  private static final class Chunk {
+
+    final String key;
+    final List<String> members;
+    final RedisFuture<List<Boolean>> reply;
+
+    Chunk(String key, List<String> members, RedisFuture<List<Boolean>> reply) {
+      this.key = key;
+      this.members = members;
+      this.reply = reply;
+    }
+  }
+}
@@ -0,0 +1,346 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * Random members of a set or sorted set served from a local buffer filled with
+ * {@code SRANDMEMBER key -count} or {@code ZRANDMEMBER key -count WITHSCORES} (#8297).
+ *
+ * Each batch is a uniform sample with replacement. Samples are handed out from it in order
+ * through an atomic cursor, so concurrent callers never take a lock. Once {@code refillRatio}
+ * of the batch has been used, or it is older than {@code maxAge}, the next batch is fetched in
+ * the background; callers that outrun the refill draw again at random from the current batch.
+ * Samples are therefore at most {@code maxAge} (plus one round trip) stale: once a background
+ * refill has failed, a batch older than {@code maxAge} is no longer served and callers fetch the
+ * next one themselves, getting the error if Redis still can't be reached.
+ *
+ * {@link #sampleWeighted()} picks from the batch in proportion to the members' scores, which
+ * over uniform batches samples the whole sorted set by score. Negative scores count as zero.
+ */
+public class RandomSampler implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(RandomSampler.class);
+
+  private final StringRedisTemplate template;
+  private final String key;
+  private final boolean sortedSet;
+  private final int batchSize;
+  private final double refillRatio;
+  private final long maxAgeNanos;
+  private final ExecutorService refiller;
+  private final AtomicBoolean refilling = new AtomicBoolean();
+  private volatile Batch batch;
+  private volatile boolean refillFailed;
+
+  private final LongAdder samples = new LongAdder();
+  private final LongAdder redraws = new LongAdder();
+  private final LongAdder refills = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+
+  private RandomSampler(Builder builder) {
+    this.template = builder.template;
+    this.key = builder.key;
+    this.sortedSet = builder.sortedSet;
+    this.batchSize = builder.batchSize;
+    this.refillRatio = builder.refillRatio;
+    this.maxAgeNanos = builder.maxAge.toNanos();
+    this.refiller = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("random-sampler-"));
+  }
+
+  public static Builder forSet(StringRedisTemplate template, String key) {
+    return new Builder(template, key, false);
+  }
+
+  public static Builder forSortedSet(StringRedisTemplate template, String key) {
+    return new Builder(template, key, true);
+  }
+
+  /**
+   * A uniformly random member, or {@code null} when the key is empty or missing.
+   */
+  public String sample() {
+    Batch current = current();
+    int draw = current.draw();
+    if (current.size() == 0) {
+      return null;
+    }
+    samples.increment();
+    if (draw < current.size()) {
+      return current.members[draw];
+    }
+    redraws.increment();
+    return current.members[ThreadLocalRandom.current().nextInt(current.size())];
+  }
+
+  /**
+   * A member picked with probability proportional to its score, or {@code null} when the key
+   * is empty or missing. Falls back to {@link #sample()} when no member has a positive score.
+   */
+  public String sampleWeighted() {
+    Assert.state(sortedSet, "weighted samples need a sorted set");
+    Batch current = current();
+    if (current.size() == 0 || current.totalWeight() <= 0) {
+      return sample();
+    }
+    current.draw();
+    samples.increment();
+    return current.members[current.pick(ThreadLocalRandom.current().nextDouble(current.totalWeight()))];
+  }
+
+  public List<String> sample(int count) {
+    List<String> members = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      String member = sample();
+      if (member == null) {
+        break;
+      }
+      members.add(member);
+    }
+    return members;
+  }
+
+  public Metrics metrics() {
+    return new Metrics(samples.sum(), redraws.sum(), refills.sum(), failures.sum());
+  }
+
+  @Override
+  public void close() {
+    refiller.shutdownNow();
+  }
+
+  private Batch current() {
+    Batch current = batch;
+    if (current == null) {
+      synchronized (this) {
+        if (batch == null) {
+          batch = fetch();
+          refills.increment();
+        }
+        current = batch;
+      }
+    }
+    if (refillFailed && current.expired()) {
+      current = refetch(current);
+    }
+    if (current.shouldRefill() && current == batch && refilling.compareAndSet(false, true)) {
+      refiller.execute(this::refill);
+    }
+    return current;
+  }
+
+  private void refill() {
+    try {
+      batch = fetch();
+      refills.increment();
+      refillFailed = false;
+    } catch (RuntimeException e) {
+      failures.increment();
+      refillFailed = true;
+      log.warn("Failed to refill random samples of {}", key, e);
+    } finally {
+      refilling.set(false);
+    }
+  }
+
+  /**
+   * Replaces an expired batch on the caller's thread, unless another caller already did.
+   */
+  private synchronized Batch refetch(Batch expired) {
+    if (batch != expired) {
+      return batch;
+    }
+    try {
+      batch = fetch();
+      refills.increment();
+      refillFailed = false;
+      return batch;
+    } catch (RuntimeException e) {
+      failures.increment();
+      throw e;
+    }
+  }
+
+  private Batch fetch() {
+    if (!sortedSet) {
+      List<String> members = template.opsForSet().randomMembers(key, batchSize);
+      return new Batch(members.toArray(new String[0]), null);
+    }
+    List<TypedTuple<String>> tuples = template.opsForZSet().randomMembersWithScore(key, batchSize);
+    String[] members = new String[tuples.size()];
+    double[] cumulativeWeights = new double[tuples.size()];
+    double total = 0;
+    for (int i = 0; i < members.length; i++) {
+      TypedTuple<String> tuple = tuples.get(i);
+      members[i] = tuple.getValue();
+      total += Math.max(0, tuple.getScore());
+      cumulativeWeights[i] = total;
+    }
+    return new Batch(members, cumulativeWeights);
+  }
+
+  private final class Batch {
+
+    final String[] members;
+    final double[] cumulativeWeights;
+    final AtomicInteger draws = new AtomicInteger();
+    final int refillAt;
+    final long fetchedAt = System.nanoTime();
+
+    Batch(String[] members, double[] cumulativeWeights) {
+      this.members = members;
+      this.cumulativeWeights = cumulativeWeights;
+      // an empty key is only looked at again once the batch is too old
+      this.refillAt = members.length == 0 ? Integer.MAX_VALUE : (int) (members.length * refillRatio);
+    }
+
+    int size() {
+      return members.length;
+    }
+
+    /**
+     * Counts up to {@link Integer#MAX_VALUE} and stays there, a batch that can't be refilled
+     * keeps being redrawn from.
+     */
+    int draw() {
+      return draws.getAndUpdate(d -> d == Integer.MAX_VALUE ? d : d + 1);
+    }
+
+    boolean shouldRefill() {
+      return draws.get() >= refillAt || expired();
+    }
+
+    boolean expired() {
+      return System.nanoTime() - fetchedAt > maxAgeNanos;
+    }
+
+    double totalWeight() {
+      return cumulativeWeights[cumulativeWeights.length - 1];
+    }
+
+    /**
+     * The first member whose cumulative weight exceeds {@code target}, so zero weight members
+     * are never picked.
+     */
+    int pick(double target) {
+      int low = 0;
+      int high = cumulativeWeights.length - 1;
+      while (low < high) {
+        int middle = (low + high) >>> 1;
+        if (cumulativeWeights[middle] > target) {
+          high = middle;
+        } else {
+          low = middle + 1;
+        }
+      }
+      return low;
+    }
+  }
+
+  public static class Builder {
+
+    private final StringRedisTemplate template;
+    private final String key;
+    private final boolean sortedSet;
+    private int batchSize = 1000;
+    private double refillRatio = 0.75;
+    private Duration maxAge = Duration.ofSeconds(1);
+
+    private Builder(StringRedisTemplate template, String key, boolean sortedSet) {
+      this.template = template;
+      this.key = key;
+      this.sortedSet = sortedSet;
+    }
+
+    /**
+     * Members fetched per SRANDMEMBER/ZRANDMEMBER, 1000 by default.
+     */
+    public Builder batchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    /**
+     * The share of a batch handed out before the next one is fetched, 0.75 by default.
+     */
+    public Builder refillRatio(double refillRatio) {
+      this.refillRatio = refillRatio;
+      return this;
+    }
+
+    /**
+     * How old a batch may get before it is replaced, 1s by default.
+     */
+    public Builder maxAge(Duration maxAge) {
+      this.maxAge = maxAge;
+      return this;
+    }
+
+    public RandomSampler build() {
+      Assert.isTrue(batchSize > 0, "batchSize must be positive");
+      Assert.isTrue(refillRatio > 0 && refillRatio <= 1, "refillRatio must be in (0, 1]");
+      return new RandomSampler(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long samples;
+    private final long redraws;
+    private final long refills;
+    private final long failures;
+
+    Metrics(long samples, long redraws, long refills, long failures) {
+      this.samples = samples;
+      this.redraws = redraws;
+      this.refills = refills;
+      this.failures = failures;
+    }
+
+    public long getSamples() {
+      return samples;
+    }
+
+    /**
+     * Uniform samples drawn again from a used up batch while the refill was in flight.
+     */
+    public long getRedraws() {
+      return redraws;
+    }
+
+    /**
+     * SRANDMEMBER/ZRANDMEMBER calls made.
+     */
+    public long getRefills() {
+      return refills;
+    }
+
+    public long getFailures() {
+      return failures;
+    }
+
+    public double getSamplesPerRefill() {
+      return refills == 0 ? 0 : (double) samples / refills;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("samples=%d redraws=%d refills=%d failures=%d samplesPerRefill=%.1f", samples, redraws,
+          refills, failures, getSamplesPerRefill());
+    }
+  }
+}
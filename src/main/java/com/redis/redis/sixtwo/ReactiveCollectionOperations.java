@@ -0,0 +1,295 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.data.redis.connection.RedisListCommands.Direction;
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.core.ReactiveListOperations;
+import org.springframework.data.redis.core.ReactiveSetOperations;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveZSetOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.util.Assert;
+
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The 6.2 List/Set/ZSet commands on top of {@link ReactiveStringRedisTemplate}, so callers don't
+ * park a thread per command.
+ *
+ * The {@code Publisher} variants of {@link #isMember(String, Publisher)} and
+ * {@link #score(String, Publisher)} coalesce the incoming members into SMISMEMBER/ZMSCORE calls
+ * of at most {@code maxBatchSize} members. Batching follows demand: members are only requested
+ * from upstream for the batches downstream has room for, at most {@code concurrency} batches
+ * are in flight, and results are emitted in the order the members arrived. A partial batch is
+ * sent {@code maxDelay} after its first member arrived, or when the source completes.
+ */
+public class ReactiveCollectionOperations {
+
+  private final ReactiveListOperations<String, String> listOps;
+  private final ReactiveSetOperations<String, String> setOps;
+  private final ReactiveZSetOperations<String, String> zSetOps;
+  private final int maxBatchSize;
+  private final int concurrency;
+  private final Duration maxDelay;
+
+  public ReactiveCollectionOperations(ReactiveStringRedisTemplate template) {
+    this(template, 100, 4);
+  }
+
+  public ReactiveCollectionOperations(ReactiveStringRedisTemplate template, int maxBatchSize, int concurrency) {
+    this(template, maxBatchSize, concurrency, Duration.ofMillis(10));
+  }
+
+  public ReactiveCollectionOperations(ReactiveStringRedisTemplate template, int maxBatchSize, int concurrency,
+      Duration maxDelay) {
+    Assert.isTrue(maxBatchSize > 0 && concurrency > 0, "maxBatchSize and concurrency must be positive");
+    Assert.isTrue(!maxDelay.isNegative() && !maxDelay.isZero(), "maxDelay must be positive");
+    this.listOps = template.opsForList();
+    this.setOps = template.opsForSet();
+    this.zSetOps = template.opsForZSet();
+    this.maxBatchSize = maxBatchSize;
+    this.concurrency = concurrency;
+    this.maxDelay = maxDelay;
+  }
+
+  // LMOVE / BLMOVE (#6929)
+
+  public Mono<String> move(String source, Direction from, String destination, Direction to) {
+    return listOps.move(source, from, destination, to);
+  }
+
+  public Mono<String> move(String source, Direction from, String destination, Direction to, Duration timeout) {
+    return listOps.move(source, from, destination, to, timeout);
+  }
+
+  // LPOP / RPOP with COUNT (#8179)
+
+  public Flux<String> leftPop(String key, long count) {
+    return listOps.leftPop(key, count);
+  }
+
+  public Flux<String> rightPop(String key, long count) {
+    return listOps.rightPop(key, count);
+  }
+
+  // SMISMEMBER (#7615)
+
+  public Mono<Map<Object, Boolean>> isMember(String key, Object... members) {
+    return setOps.isMember(key, members);
+  }
+
+  public Flux<Map.Entry<String, Boolean>> isMember(String key, Publisher<String> members) {
+    return batches(members) //
+        .flatMapSequential(batch -> setOps.isMember(key, batch.toArray()) //
+            .flatMapIterable(result -> {
+              List<Map.Entry<String, Boolean>> entries = new ArrayList<>(batch.size());
+              for (String member : batch) {
+                entries.add(new SimpleImmutableEntry<>(member, Boolean.TRUE.equals(result.get(member))));
+              }
+              return entries;
+            }), concurrency);
+  }
+
+  // ZMSCORE (#7593)
+
+  public Mono<List<Double>> score(String key, Object... members) {
+    return zSetOps.score(key, members);
+  }
+
+  /**
+   * Entries of members that are not in the sorted set have a {@code null} score.
+   */
+  public Flux<Map.Entry<String, Double>> score(String key, Publisher<String> members) {
+    return batches(members) //
+        .flatMapSequential(batch -> zSetOps.score(key, batch.toArray()) //
+            .flatMapIterable(scores -> {
+              List<Map.Entry<String, Double>> entries = new ArrayList<>(batch.size());
+              for (int i = 0; i < batch.size(); i++) {
+                entries.add(new SimpleImmutableEntry<>(batch.get(i), scores.get(i)));
+              }
+              return entries;
+            }), concurrency);
+  }
+
+  // ZINTER / ZUNION (#7794) and ZDIFF (#7961)
+
+  public Flux<TypedTuple<String>> intersectWithScores(String key, Collection<String> otherKeys) {
+    return zSetOps.intersectWithScores(key, otherKeys);
+  }
+
+  public Flux<TypedTuple<String>> intersectWithScores(String key, Collection<String> otherKeys, Aggregate aggregate,
+      Weights weights) {
+    return zSetOps.intersectWithScores(key, otherKeys, aggregate, weights);
+  }
+
+  public Flux<TypedTuple<String>> unionWithScores(String key, Collection<String> otherKeys) {
+    return zSetOps.unionWithScores(key, otherKeys);
+  }
+
+  public Flux<TypedTuple<String>> unionWithScores(String key, Collection<String> otherKeys, Aggregate aggregate,
+      Weights weights) {
+    return zSetOps.unionWithScores(key, otherKeys, aggregate, weights);
+  }
+
+  public Flux<TypedTuple<String>> differenceWithScores(String key, Collection<String> otherKeys) {
+    return zSetOps.differenceWithScores(key, otherKeys);
+  }
+
+  public Mono<Long> differenceAndStore(String key, Collection<String> otherKeys, String destKey) {
+    return zSetOps.differenceAndStore(key, otherKeys, destKey);
+  }
+
+  /**
+   * {@code buffer(maxBatchSize)} that also closes a batch {@code maxDelay} after its first
+   * member. Unlike Reactor 3.4's bufferTimeout, which fails when the timer fires while
+   * downstream has no outstanding demand, a due batch waits for the next request.
+   */
+  private Flux<List<String>> batches(Publisher<String> members) {
+    return Flux.create(sink -> Flux.from(members).subscribe(new Batcher<>(sink, maxBatchSize, maxDelay)));
+  }
+
+  // SSCAN / ZSCAN, see CollectionStreams for the blocking variant
+
+  public Flux<String> scanMembers(String key, long count) {
+    return setOps.scan(key, ScanOptions.scanOptions().count(count).build());
+  }
+
+  public Flux<TypedTuple<String>> scanScoredMembers(String key, long count) {
+    return zSetOps.scan(key, ScanOptions.scanOptions().count(count).build());
+  }
+
+  /**
+   * Requests members from upstream only to fill the batch downstream has asked for, so at most
+   * {@code maxSize} members are buffered. Upstream signals, the timer and downstream requests
+   * all go through {@link #drain()} under the subscriber's lock.
+   */
+  private static final class Batcher<T> extends BaseSubscriber<T> {
+
+    private final FluxSink<List<T>> sink;
+    private final int maxSize;
+    private final Duration maxDelay;
+
+    private List<T> buffer;
+    private long demand;
+    private long outstanding;
+    private long generation;
+    private Disposable timer;
+    private boolean due;
+    private boolean done;
+    private boolean draining;
+    private boolean again;
+
+    Batcher(FluxSink<List<T>> sink, int maxSize, Duration maxDelay) {
+      this.sink = sink;
+      this.maxSize = maxSize;
+      this.maxDelay = maxDelay;
+      this.buffer = new ArrayList<>(maxSize);
+    }
+
+    @Override
+    protected void hookOnSubscribe(Subscription subscription) {
+      sink.onRequest(this::requested);
+      sink.onCancel(this::cancel);
+      sink.onDispose(this::stopTimer);
+    }
+
+    @Override
+    protected synchronized void hookOnNext(T value) {
+      outstanding--;
+      if (buffer.isEmpty()) {
+        long batch = generation;
+        timer = Schedulers.parallel().schedule(() -> timedOut(batch), maxDelay.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      buffer.add(value);
+      drain();
+    }
+
+    @Override
+    protected synchronized void hookOnComplete() {
+      done = true;
+      drain();
+    }
+
+    @Override
+    protected synchronized void hookOnError(Throwable throwable) {
+      stopTimer();
+      sink.error(throwable);
+    }
+
+    private synchronized void requested(long n) {
+      demand = Operators.addCap(demand, n);
+      drain();
+    }
+
+    private synchronized void timedOut(long batch) {
+      if (batch == generation && !buffer.isEmpty()) {
+        due = true;
+        drain();
+      }
+    }
+
+    private synchronized void stopTimer() {
+      if (timer != null) {
+        timer.dispose();
+        timer = null;
+      }
+    }
+
+    /**
+     * Emits what is ready and there is demand for, then tops up the members requested from
+     * upstream. Reentrant calls, e.g. a request made from within {@code sink.next}, only mark
+     * that another pass is needed.
+     */
+    private void drain() {
+      if (draining) {
+        again = true;
+        return;
+      }
+      draining = true;
+      try {
+        do {
+          again = false;
+          while (demand > 0 && !buffer.isEmpty() && (buffer.size() >= maxSize || due || done)) {
+            List<T> batch = buffer;
+            buffer = new ArrayList<>(maxSize);
+            due = false;
+            generation++;
+            stopTimer();
+            demand--;
+            sink.next(batch);
+          }
+          if (done) {
+            if (buffer.isEmpty()) {
+              sink.complete();
+            }
+            return;
+          }
+          long wanted = demand > 0 ? maxSize - buffer.size() - outstanding : 0;
+          if (wanted > 0) {
+            outstanding += wanted;
+            request(wanted);
+          }
+        } while (again);
+      } finally {
+        draining = false;
+      }
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package com.redis.redis.sixtwo;
+
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisPassword;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration.LettuceClientConfigurationBuilder;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionProvider;
+
+import com.redis.redis.sixtwo.RedisConnectionProperties.Profile;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.metrics.MicrometerCommandLatencyRecorder;
+import io.lettuce.core.metrics.MicrometerOptions;
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Replaces the auto-configured connection factory when {@code app.redis.connection.profile} is
+ * set to one of the {@link Profile profiles}. Host, port, credentials and timeout still come
+ * from {@code spring.redis.*}.
+ *
+ * Every command's latency is recorded as a {@code lettuce.command.completion} timer with a
+ * histogram per command type (LMOVE, ZMSCORE, SMISMEMBER, ...), next to the pool metrics of
+ * {@link InstrumentedPoolingConnectionProvider}. A shared connection that saturates shows up as
+ * completion times growing while Redis' own command stats stay flat; pool wait time tells
+ * whether a pool is too small.
+ *
+ * With {@code dedicated}, size {@code app.redis.connection.pool.max-active} for the number of
+ * blocking consumers plus one, the shared connection is taken from the pool too.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "app.redis.connection", name = "profile")
+@EnableConfigurationProperties(RedisConnectionProperties.class)
+public class RedisConnectionConfiguration {
+
+  @Bean(destroyMethod = "shutdown")
+  public ClientResources profiledClientResources(RedisConnectionProperties properties, MeterRegistry meterRegistry) {
+    MicrometerOptions options = MicrometerOptions.builder().histogram(true).build();
+    DefaultClientResources.Builder builder = DefaultClientResources.builder()
+        .commandLatencyRecorder(new MicrometerCommandLatencyRecorder(meterRegistry, options));
+    if (properties.getIoThreads() > 0) {
+      builder.ioThreadPoolSize(properties.getIoThreads());
+    }
+    return builder.build();
+  }
+
+  @Bean
+  public LettuceConnectionFactory redisConnectionFactory(RedisProperties redisProperties,
+      RedisConnectionProperties properties, ClientResources profiledClientResources, MeterRegistry meterRegistry,
+      ObjectProvider<LettuceClientConfigurationBuilderCustomizer> customizers) {
+    RedisStandaloneConfiguration standalone = new RedisStandaloneConfiguration(redisProperties.getHost(),
+        redisProperties.getPort());
+    standalone.setDatabase(redisProperties.getDatabase());
+    standalone.setUsername(redisProperties.getUsername());
+    standalone.setPassword(RedisPassword.of(redisProperties.getPassword()));
+
+    LettuceClientConfigurationBuilder client = LettuceClientConfiguration.builder()
+        .clientResources(profiledClientResources);
+    if (redisProperties.getTimeout() != null) {
+      client.commandTimeout(redisProperties.getTimeout());
+    }
+    if (redisProperties.isSsl()) {
+      client.useSsl();
+    }
+    customizers.orderedStream().forEach(customizer -> customizer.customize(client));
+
+    Profile profile = properties.getProfile();
+    LettuceConnectionFactory factory = profile == Profile.SHARED
+        ? new LettuceConnectionFactory(standalone, client.build())
+        : new PooledConnectionFactory(standalone, client.build(), poolConfig(properties.getPool()), meterRegistry);
+    factory.setShareNativeConnection(profile != Profile.POOLED);
+    return factory;
+  }
+
+  private static GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig(RedisConnectionProperties.Pool pool) {
+    GenericObjectPoolConfig<StatefulConnection<?, ?>> config = new GenericObjectPoolConfig<>();
+    config.setMaxTotal(pool.getMaxActive());
+    config.setMaxIdle(pool.getMaxIdle());
+    config.setMinIdle(pool.getMinIdle());
+    config.setMaxWaitMillis(pool.getMaxWait().toMillis());
+    config.setTestOnBorrow(true);
+    // the gauges and timer are the instrumentation
+    config.setJmxEnabled(false);
+    return config;
+  }
+
+  static class PooledConnectionFactory extends LettuceConnectionFactory {
+
+    private final GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig;
+    private final MeterRegistry meterRegistry;
+
+    PooledConnectionFactory(RedisStandaloneConfiguration standalone, LettuceClientConfiguration client,
+        GenericObjectPoolConfig<StatefulConnection<?, ?>> poolConfig, MeterRegistry meterRegistry) {
+      super(standalone, client);
+      this.poolConfig = poolConfig;
+      this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected LettuceConnectionProvider doCreateConnectionProvider(AbstractRedisClient client, RedisCodec<?, ?> codec) {
+      // one pool for the imperative and one for the reactive codec
+      return new InstrumentedPoolingConnectionProvider(super.doCreateConnectionProvider(client, codec), poolConfig,
+          meterRegistry, codec.getClass().getSimpleName());
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * {@code app.redis.connection.*}, see {@link RedisConnectionConfiguration}.
+ */
+@ConfigurationProperties("app.redis.connection")
+public class RedisConnectionProperties {
+
+  public enum Profile {
+    /**
+     * Every command on one multiplexed connection, blocking commands and transactions open a
+     * connection of their own for the duration of the call.
+     */
+    SHARED,
+    /**
+     * Every template operation borrows a connection from the pool.
+     */
+    POOLED,
+    /**
+     * Ordinary commands on one multiplexed connection, blocking commands (BLMOVE) and
+     * transactions borrow a dedicated connection from the pool.
+     */
+    DEDICATED
+  }
+
+  private Profile profile = Profile.SHARED;
+
+  /**
+   * Event loop threads of the Lettuce client resources, the number of cores when 0.
+   */
+  private int ioThreads;
+
+  private final Pool pool = new Pool();
+
+  public Profile getProfile() {
+    return profile;
+  }
+
+  public void setProfile(Profile profile) {
+    this.profile = profile;
+  }
+
+  public int getIoThreads() {
+    return ioThreads;
+  }
+
+  public void setIoThreads(int ioThreads) {
+    this.ioThreads = ioThreads;
+  }
+
+  public Pool getPool() {
+    return pool;
+  }
+
+  public static class Pool {
+
+    private int maxActive = 8;
+    private int maxIdle = 8;
+    private int minIdle;
+    private Duration maxWait = Duration.ofSeconds(2);
+
+    public int getMaxActive() {
+      return maxActive;
+    }
+
+    public void setMaxActive(int maxActive) {
+      this.maxActive = maxActive;
+    }
+
+    public int getMaxIdle() {
+      return maxIdle;
+    }
+
+    public void setMaxIdle(int maxIdle) {
+      this.maxIdle = maxIdle;
+    }
+
+    public int getMinIdle() {
+      return minIdle;
+    }
+
+    public void setMinIdle(int minIdle) {
+      this.minIdle = minIdle;
+    }
+
+    public Duration getMaxWait() {
+      return maxWait;
+    }
+
+    public void setMaxWait(Duration maxWait) {
+      this.maxWait = maxWait;
+    }
+  }
+}
@@ -2,12 +2,17 @@ package com.redis.redis.sixtwo;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.ConfigurableApplicationContext;
 
 @SpringBootApplication
 public class RedisWhatsNewApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(RedisWhatsNewApplication.class, args);
+		ConfigurableApplicationContext context = SpringApplication.run(RedisWhatsNewApplication.class, args);
+		if (context.getEnvironment().getProperty("app.loadgen.enabled", Boolean.class, false)) {
+			// the run is over once the load generator's runner returns
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
@@ -0,0 +1,538 @@
+package com.redis.redis.sixtwo;
+
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.apache.commons.pool2.BasePooledObjectFactory;
+import org.apache.commons.pool2.PooledObject;
+import org.apache.commons.pool2.impl.DefaultPooledObject;
+import org.apache.commons.pool2.impl.GenericObjectPool;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * At least once work queue built on LMOVE/BLMOVE (#6929).
+ *
+ * Producers LPUSH onto {@code <name>:pending}. Each fetcher BLMOVEs the tail of the pending
+ * list onto its own {@code <name>:processing:<id>} list, so an item is never only in the
+ * client's memory, and hands it to a shared handler pool. A handled item is acked with LREM;
+ * a failed one is LREMed and pushed back onto the pending list. Acks and nacks are sent in
+ * pipelines instead of one round trip (or one MULTI/EXEC or script) per item.
+ *
+ * Fetchers refresh a heartbeat key while they run. A fetcher whose heartbeat has expired is
+ * considered dead and the reaper moves everything left on its processing list back onto the
+ * pending list.
+ *
+ * Fetchers borrow a connection for each blocking BLMOVE from a pool shared by the queue's
+ * fetchers, at most {@code maxConnections} ({@code fetchers} by default). That is the number of
+ * connections the queue ties up, independent of how many handlers run concurrently; with fewer
+ * connections than fetchers, fetchers take turns waiting.
+ * Fetchers and handlers run on platform threads unless {@link Builder#threadMode(ThreadMode)}
+ * asks for virtual ones.
+ */
+public class ReliableQueue implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReliableQueue.class);
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final String name;
+  private final Consumer<String> handler;
+  private final int fetchers;
+  private final Duration blockTimeout;
+  private final Duration heartbeatInterval;
+  private final Duration staleAfter;
+  private final Duration reapInterval;
+  private final int ackBatchSize;
+  private final ThreadMode threadMode;
+
+  private final String pendingKey;
+  private final String workersKey;
+  private final Semaphore capacity;
+  private final GenericObjectPool<RedisConnection> connections;
+  private final ExecutorService handlers;
+  private final BlockingQueue<Ack> acks = new LinkedBlockingQueue<>();
+  private final List<Thread> threads = new ArrayList<>();
+  private final List<String> workerIds = new ArrayList<>();
+  private ScheduledExecutorService scheduler;
+
+  private final LongAdder fetched = new LongAdder();
+  private final LongAdder acked = new LongAdder();
+  private final LongAdder nacked = new LongAdder();
+  private final LongAdder ackPipelines = new LongAdder();
+  private final LongAdder requeued = new LongAdder();
+
+  private volatile boolean running;
+
+  private ReliableQueue(Builder builder) {
+    this.template = builder.template;
+    this.serializer = builder.template.getStringSerializer();
+    this.name = builder.name;
+    this.handler = builder.handler;
+    this.fetchers = builder.fetchers;
+    this.blockTimeout = builder.blockTimeout;
+    this.heartbeatInterval = builder.heartbeatInterval;
+    this.staleAfter = builder.staleAfter;
+    this.reapInterval = builder.reapInterval;
+    this.ackBatchSize = builder.ackBatchSize;
+    this.threadMode = builder.threadMode;
+    this.pendingKey = name + ":pending";
+    this.workersKey = name + ":workers";
+    this.capacity = new Semaphore(builder.concurrency);
+    GenericObjectPoolConfig<RedisConnection> config = new GenericObjectPoolConfig<>();
+    int maxConnections = builder.maxConnections > 0 ? builder.maxConnections : fetchers;
+    config.setMaxTotal(maxConnections);
+    config.setMaxIdle(maxConnections);
+    config.setJmxEnabled(false);
+    this.connections = new GenericObjectPool<>(new BlockingConnections(template), config);
+    this.handlers = Executors.newFixedThreadPool(builder.concurrency, threadMode == ThreadMode.VIRTUAL
+        ? threadMode.threadFactory("reliable-queue-" + name + "-")
+        : new CustomizableThreadFactory("reliable-queue-" + name + "-"));
+  }
+
+  public static Builder builder(StringRedisTemplate template, String name, Consumer<String> handler) {
+    return new Builder(template, name, handler);
+  }
+
+  public String getPendingKey() {
+    return pendingKey;
+  }
+
+  public String processingKey(String workerId) {
+    return name + ":processing:" + workerId;
+  }
+
+  private String heartbeatKey(String workerId) {
+    return name + ":heartbeat:" + workerId;
+  }
+
+  public Long enqueue(String... items) {
+    return template.opsForList().leftPushAll(pendingKey, items);
+  }
+
+  public synchronized void start() {
+    Assert.state(!running, "Queue " + name + " is already running");
+    running = true;
+
+    for (int i = 0; i < fetchers; i++) {
+      workerIds.add(UUID.randomUUID().toString());
+    }
+    heartbeat();
+    template.opsForSet().add(workersKey, workerIds.toArray(new String[0]));
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+        new CustomizableThreadFactory("reliable-queue-" + name + "-timer-"));
+    scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatInterval.toMillis(), heartbeatInterval.toMillis(),
+        TimeUnit.MILLISECONDS);
+    scheduler.scheduleWithFixedDelay(this::reapQuietly, 0, reapInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+    ThreadFactory fetcherThreads = threadMode.threadFactory("reliable-queue-" + name + "-fetcher-");
+    for (String workerId : workerIds) {
+      Thread fetcher = fetcherThreads.newThread(() -> fetch(workerId));
+      fetcher.setName("reliable-queue-" + name + "-fetcher-" + workerId);
+      threads.add(fetcher);
+      fetcher.start();
+    }
+    startThread("reliable-queue-" + name + "-acker", this::flushAcks);
+  }
+
+  /**
+   * Stops fetching, waits for running handlers, flushes their acks and moves whatever is still
+   * on this queue's processing lists back onto the pending list.
+   */
+  @Override
+  public synchronized void close() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    try {
+      for (Thread thread : threads) {
+        thread.join(blockTimeout.toMillis() * 2 + 1000);
+      }
+      handlers.shutdown();
+      handlers.awaitTermination(staleAfter.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    scheduler.shutdownNow();
+    connections.close();
+
+    List<Ack> remaining = new ArrayList<>();
+    acks.drainTo(remaining);
+    sendAcks(remaining);
+
+    for (String workerId : workerIds) {
+      requeue(workerId);
+      template.delete(heartbeatKey(workerId));
+    }
+    threads.clear();
+    workerIds.clear();
+  }
+
+  /**
+   * Requeues the in-flight items of every registered worker whose heartbeat has expired.
+   *
+   * @return the number of items moved back onto the pending list
+   */
+  public long reap() {
+    Set<String> registered = template.opsForSet().members(workersKey);
+    if (registered == null) {
+      return 0;
+    }
+    long moved = 0;
+    for (String workerId : registered) {
+      if (!Boolean.TRUE.equals(template.hasKey(heartbeatKey(workerId)))) {
+        moved += requeue(workerId);
+      }
+    }
+    return moved;
+  }
+
+  public Metrics metrics() {
+    return new Metrics(fetched.sum(), acked.sum(), nacked.sum(), ackPipelines.sum(), requeued.sum());
+  }
+
+  private long requeue(String workerId) {
+    String processingKey = processingKey(workerId);
+    long moved = 0;
+    // newest first onto the tail, so the oldest in-flight item ends up being fetched first
+    while (template.opsForList().move(processingKey, LEFT, pendingKey, RIGHT) != null) {
+      moved++;
+    }
+    template.opsForSet().remove(workersKey, workerId);
+    if (moved > 0) {
+      log.info("Requeued {} in-flight items of worker {} on {}", moved, workerId, name);
+    }
+    requeued.add(moved);
+    return moved;
+  }
+
+  private void fetch(String workerId) {
+    byte[] source = serializer.serialize(pendingKey);
+    byte[] destination = serializer.serialize(processingKey(workerId));
+    double timeout = blockTimeout.toMillis() / 1000.0;
+
+    try {
+      while (running) {
+        if (!capacity.tryAcquire(blockTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+          continue;
+        }
+        byte[] item;
+        RedisConnection connection = null;
+        try {
+          connection = connections.borrowObject(blockTimeout.toMillis());
+          item = connection.listCommands().bLMove(source, destination, RIGHT, LEFT, timeout);
+          connections.returnObject(connection);
+        } catch (NoSuchElementException e) {
+          // every connection is taken by other fetchers
+          capacity.release();
+          continue;
+        } catch (InterruptedException e) {
+          capacity.release();
+          throw e;
+        } catch (Exception e) {
+          capacity.release();
+          if (connection != null) {
+            invalidateQuietly(connection);
+          }
+          log.warn("BLMOVE on {} failed", pendingKey, e);
+          Thread.sleep(blockTimeout.toMillis());
+          continue;
+        }
+        if (item == null) {
+          capacity.release();
+          continue;
+        }
+        fetched.increment();
+        handlers.execute(() -> handle(destination, item));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void invalidateQuietly(RedisConnection connection) {
+    try {
+      connections.invalidateObject(connection);
+    } catch (Exception e) {
+      log.debug("Closing a broken connection of {} failed", name, e);
+    }
+  }
+
+  private void handle(byte[] processingKey, byte[] item) {
+    boolean ok = false;
+    try {
+      handler.accept(serializer.deserialize(item));
+      ok = true;
+    } catch (RuntimeException e) {
+      log.error("Handler failed on {}, returning the item to {}", name, pendingKey, e);
+    } finally {
+      acks.add(new Ack(processingKey, item, ok));
+      capacity.release();
+    }
+  }
+
+  private void flushAcks() {
+    List<Ack> batch = new ArrayList<>(ackBatchSize);
+    while (running || !acks.isEmpty()) {
+      try {
+        Ack first = acks.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        acks.drainTo(batch, ackBatchSize - 1);
+        sendAcks(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (RuntimeException e) {
+        // the items stay on the processing list and are requeued when this worker is reaped
+        log.warn("Failed to ack {} items on {}", batch.size(), name, e);
+      }
+      batch.clear();
+    }
+  }
+
+  private void sendAcks(List<Ack> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    byte[] pending = serializer.serialize(pendingKey);
+    template.executePipelined((RedisCallback<Object>) connection -> {
+      for (Ack ack : batch) {
+        connection.listCommands().lRem(ack.processingKey, 1, ack.item);
+        if (!ack.ok) {
+          connection.listCommands().lPush(pending, ack.item);
+        }
+      }
+      return null;
+    });
+    ackPipelines.increment();
+    for (Ack ack : batch) {
+      (ack.ok ? acked : nacked).increment();
+    }
+  }
+
+  private void heartbeat() {
+    try {
+      for (String workerId : workerIds) {
+        template.opsForValue().set(heartbeatKey(workerId), "1", staleAfter);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Heartbeat for {} failed", name, e);
+    }
+  }
+
+  private void reapQuietly() {
+    try {
+      reap();
+    } catch (RuntimeException e) {
+      log.warn("Reaping {} failed", name, e);
+    }
+  }
+
+  private void startThread(String threadName, Runnable task) {
+    Thread thread = new Thread(task, threadName);
+    thread.setDaemon(true);
+    threads.add(thread);
+    thread.start();
+  }
+
+  private static class Ack {
+
+    final byte[] processingKey;
+    final byte[] item;
+    final boolean ok;
+
+    Ack(byte[] processingKey, byte[] item, boolean ok) {
+      this.processingKey = processingKey;
+      this.item = item;
+      this.ok = ok;
+    }
+  }
+
+  /**
+   * Connections of the template's factory, for the fetchers' blocking commands.
+   */
+  private static final class BlockingConnections extends BasePooledObjectFactory<RedisConnection> {
+
+    private final StringRedisTemplate template;
+
+    BlockingConnections(StringRedisTemplate template) {
+      this.template = template;
+    }
+
+    @Override
+    public RedisConnection create() {
+      return template.getRequiredConnectionFactory().getConnection();
+    }
+
+    @Override
+    public PooledObject<RedisConnection> wrap(RedisConnection connection) {
+      return new DefaultPooledObject<>(connection);
+    }
+
+    @Override
+    public void destroyObject(PooledObject<RedisConnection> pooled) {
+      pooled.getObject().close();
+    }
+  }
+
+  public static class Builder {
+
+    private final StringRedisTemplate template;
+    private final String name;
+    private final Consumer<String> handler;
+    private int fetchers = 2;
+    private int maxConnections;
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private Duration blockTimeout = Duration.ofSeconds(1);
+    private Duration heartbeatInterval = Duration.ofSeconds(2);
+    private Duration staleAfter = Duration.ofSeconds(10);
+    private Duration reapInterval = Duration.ofSeconds(5);
+    private int ackBatchSize = 100;
+    private ThreadMode threadMode = ThreadMode.PLATFORM;
+
+    private Builder(StringRedisTemplate template, String name, Consumer<String> handler) {
+      this.template = template;
+      this.name = name;
+      this.handler = handler;
+    }
+
+    /**
+     * Blocking BLMOVE loops.
+     */
+    public Builder fetchers(int fetchers) {
+      this.fetchers = fetchers;
+      return this;
+    }
+
+    /**
+     * Connections the fetchers share for their blocking BLMOVEs, one per fetcher by default.
+     */
+    public Builder maxConnections(int maxConnections) {
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * Items handled at the same time across all fetchers.
+     */
+    public Builder concurrency(int concurrency) {
+      this.concurrency = concurrency;
+      return this;
+    }
+
+    public Builder blockTimeout(Duration blockTimeout) {
+      this.blockTimeout = blockTimeout;
+      return this;
+    }
+
+    public Builder heartbeatInterval(Duration heartbeatInterval) {
+      this.heartbeatInterval = heartbeatInterval;
+      return this;
+    }
+
+    /**
+     * How long a worker may miss heartbeats before its in-flight items are requeued.
+     */
+    public Builder staleAfter(Duration staleAfter) {
+      this.staleAfter = staleAfter;
+      return this;
+    }
+
+    public Builder reapInterval(Duration reapInterval) {
+      this.reapInterval = reapInterval;
+      return this;
+    }
+
+    public Builder ackBatchSize(int ackBatchSize) {
+      this.ackBatchSize = ackBatchSize;
+      return this;
+    }
+
+    /**
+     * Threads the fetchers and handlers run on; with {@link ThreadMode#VIRTUAL} many fetchers
+     * cost connections but no platform threads.
+     */
+    public Builder threadMode(ThreadMode threadMode) {
+      this.threadMode = threadMode;
+      return this;
+    }
+
+    public ReliableQueue build() {
+      Assert.isTrue(fetchers > 0 && concurrency > 0, "Need at least one fetcher and one handler");
+      Assert.isTrue(staleAfter.compareTo(heartbeatInterval) > 0, "staleAfter must be longer than heartbeatInterval");
+      return new ReliableQueue(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long fetched;
+    private final long acked;
+    private final long nacked;
+    private final long ackPipelines;
+    private final long requeued;
+
+    Metrics(long fetched, long acked, long nacked, long ackPipelines, long requeued) {
+      this.fetched = fetched;
+      this.acked = acked;
+      this.nacked = nacked;
+      this.ackPipelines = ackPipelines;
+      this.requeued = requeued;
+    }
+
+    public long getFetched() {
+      return fetched;
+    }
+
+    public long getAcked() {
+      return acked;
+    }
+
+    public long getNacked() {
+      return nacked;
+    }
+
+    public long getAckPipelines() {
+      return ackPipelines;
+    }
+
+    public long getRequeued() {
+      return requeued;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("fetched=%d acked=%d nacked=%d ackPipelines=%d requeued=%d", fetched, acked, nacked,
+          ackPipelines, requeued);
+    }
+  }
+}
@@ -0,0 +1,522 @@
+package com.redis.redis.sixtwo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+
+/**
+ * Write-behind for sorted set scores: increments and absolute scores are merged per (key,
+ * member) in memory and written in batches, so a member updated a thousand times between two
+ * flushes costs one command instead of a thousand.
+ *
+ * Updates go into a {@link ConcurrentHashMap} of cells that are changed with compare-and-set,
+ * so writers never lock each other out and a flush never loses an update racing with it. A
+ * flush is triggered every {@code maxDelay}, as soon as {@code maxPending} members have
+ * pending updates, and on {@link #close()}. A healthy accumulator therefore writes an update
+ * within {@code maxDelay} plus the time of one flush.
+ *
+ * A flush sends ZINCRBY per incremented member and one multi-member ZADD per key for members
+ * whose score was set, {@code batchSize} commands per MULTI/EXEC in one pipeline. A batch whose
+ * EXEC fails is merged back into the pending updates and retried with the next flush; only a
+ * connection lost after EXEC was sent can apply a batch twice. A command Redis rejects inside
+ * EXEC (WRONGTYPE) fails alone while the rest of the batch applies, so its updates are logged
+ * and dropped rather than retried.
+ */
+public class ScoreAccumulator implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ScoreAccumulator.class);
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final int maxPending;
+  private final int batchSize;
+  private final ScheduledExecutorService flusher;
+
+  private final ConcurrentHashMap<Member, Cell> cells = new ConcurrentHashMap<>();
+  private final AtomicInteger pending = new AtomicInteger();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private volatile boolean closed;
+
+  private final LongAdder updates = new LongAdder();
+  private final LongAdder flushes = new LongAdder();
+  private final LongAdder commands = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final AtomicLong maxStalenessNanos = new AtomicLong();
+
+  private ScoreAccumulator(Builder builder) {
+    this.template = builder.template;
+    this.serializer = builder.template.getStringSerializer();
+    this.maxPending = builder.maxPending;
+    this.batchSize = builder.batchSize;
+    this.flusher = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("score-accumulator-"));
+    long delay = builder.maxDelay.toNanos();
+    this.flusher.scheduleWithFixedDelay(this::flushQuietly, delay, delay, TimeUnit.NANOSECONDS);
+  }
+
+  public static Builder builder(StringRedisTemplate template) {
+    return new Builder(template);
+  }
+
+  /**
+   * ZINCRBY, merged with the member's other pending updates.
+   */
+  public void incrementScore(String key, String member, double delta) {
+    Assert.isTrue(Double.isFinite(delta), "delta must be finite");
+    update(key, member, delta, false);
+  }
+
+  /**
+   * ZADD, replacing the member's pending increments. Later increments add to this score.
+   */
+  public void setScore(String key, String member, double score) {
+    Assert.isTrue(Double.isFinite(score), "score must be finite");
+    update(key, member, score, true);
+  }
+
+  /**
+   * The score Redis has plus what is still pending here, what it will be after the next flush.
+   */
+  public Double score(String key, String member) {
+    Cell cell = cells.get(new Member(key, member));
+    Update update = cell != null ? cell.state.get() : null;
+    if (update != null && update != Update.RETIRED && update.absolute) {
+      return update.value;
+    }
+    Double stored = template.opsForZSet().score(key, member);
+    if (update == null || update == Update.RETIRED) {
+      return stored;
+    }
+    return (stored != null ? stored : 0) + update.value;
+  }
+
+  /**
+   * Writes everything pending now, on the caller's thread.
+   */
+  public void flush() {
+    flushNow();
+  }
+
+  public int getPending() {
+    return pending.get();
+  }
+
+  public Metrics metrics() {
+    return new Metrics(updates.sum(), flushes.sum(), commands.sum(), failures.sum(), dropped.sum(),
+        maxStalenessNanos.get());
+  }
+
+  /**
+   * Stops accepting updates and flushes what is pending.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushNow();
+    if (pending.get() > 0) {
+      log.warn("Closed with {} members whose updates could not be written", pending.get());
+    }
+  }
+
+  private void update(String key, String member, double value, boolean absolute) {
+    Assert.state(!closed, "ScoreAccumulator is closed");
+    updates.increment();
+    merge(new Member(key, member), value, absolute);
+    if (pending.get() >= maxPending && flushRequested.compareAndSet(false, true)) {
+      flusher.execute(() -> {
+        flushRequested.set(false);
+        flushQuietly();
+      });
+    }
+  }
+
+  private void merge(Member id, double value, boolean absolute) {
+    while (true) {
+      Cell cell = cells.computeIfAbsent(id, this::newCell);
+      if (cell.apply(value, absolute)) {
+        return;
+      }
+      // drained by a flush in the meantime, start a fresh cell
+      cells.remove(id, cell);
+    }
+  }
+
+  private Cell newCell(Member id) {
+    pending.incrementAndGet();
+    return new Cell(id);
+  }
+
+  private void flushQuietly() {
+    try {
+      flushNow();
+    } catch (RuntimeException e) {
+      log.warn("Flushing scores failed", e);
+    }
+  }
+
+  private synchronized void flushNow() {
+    if (cells.isEmpty()) {
+      return;
+    }
+    long now = System.nanoTime();
+    List<Drained> drained = new ArrayList<>(pending.get());
+    for (Cell cell : cells.values()) {
+      Update update = cell.state.getAndSet(Update.RETIRED);
+      cells.remove(cell.id, cell);
+      if (update == Update.RETIRED) {
+        continue;
+      }
+      pending.decrementAndGet();
+      if (update == null) {
+        // created but not written to yet, the writer retries on a fresh cell
+        continue;
+      }
+      maxStalenessNanos.accumulateAndGet(now - cell.createdAt, Math::max);
+      if (update.absolute || update.value != 0) {
+        drained.add(new Drained(cell.id, update));
+      }
+    }
+    flushes.increment();
+
+    for (int from = 0; from < drained.size(); from += batchSize) {
+      List<Drained> batch = drained.subList(from, Math.min(from + batchSize, drained.size()));
+      try {
+        commands.add(write(batch));
+      } catch (RuntimeException e) {
+        failures.increment();
+        log.warn("Writing {} score updates failed, keeping them for the next flush", batch.size(), e);
+        for (Drained update : batch) {
+          requeue(update);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the number of ZINCRBY and ZADD commands Redis applied
+   */
+  private int write(List<Drained> batch) {
+    // the updates of each command, in the order EXEC replies
+    List<List<Drained>> sent = new ArrayList<>();
+    Map<String, List<Drained>> absolute = new LinkedHashMap<>();
+    for (Drained update : batch) {
+      if (update.update.absolute) {
+        absolute.computeIfAbsent(update.id.key, k -> new ArrayList<>()).add(update);
+      }
+    }
+    sent.addAll(absolute.values());
+    for (Drained update : batch) {
+      if (!update.update.absolute) {
+        sent.add(List.of(update));
+      }
+    }
+
+    TransactionResult result = template.execute((RedisCallback<TransactionResult>) connection -> {
+      // the native commands of a pipelined connection go to a dedicated connection, MULTI
+      // must not be sent on the shared one
+      connection.openPipeline();
+      try {
+        return exec(connection, sent);
+      } finally {
+        connection.closePipeline();
+      }
+    });
+    if (result == null || result.wasDiscarded()) {
+      throw new IllegalStateException("EXEC was discarded");
+    }
+
+    int applied = 0;
+    for (int i = 0; i < sent.size(); i++) {
+      Object reply = result.get(i);
+      if (reply instanceof Exception) {
+        // the rest of the batch is applied, retrying would apply it again
+        dropped.add(sent.get(i).size());
+        log.error("Dropping {} score updates of {} that Redis rejected", sent.get(i).size(), sent.get(i).get(0).id.key,
+            (Exception) reply);
+      } else {
+        applied++;
+      }
+    }
+    return applied;
+  }
+
+  @SuppressWarnings("unchecked")
+  private TransactionResult exec(RedisConnection connection, List<List<Drained>> sent) {
+    RedisAsyncCommands<byte[], byte[]> commands = (RedisAsyncCommands<byte[], byte[]>) connection.getNativeConnection();
+    commands.multi();
+    for (List<Drained> updates : sent) {
+      byte[] rawKey = serializer.serialize(updates.get(0).id.key);
+      Update first = updates.get(0).update;
+      if (first.absolute) {
+        ScoredValue<byte[]>[] scores = new ScoredValue[updates.size()];
+        for (int i = 0; i < scores.length; i++) {
+          Drained update = updates.get(i);
+          scores[i] = ScoredValue.just(update.update.value, serializer.serialize(update.id.member));
+        }
+        commands.zadd(rawKey, scores);
+      } else {
+        commands.zincrby(rawKey, first.value, serializer.serialize(updates.get(0).id.member));
+      }
+    }
+    return commands.exec().toCompletableFuture().join();
+  }
+
+  /**
+   * Puts a failed update back in front of whatever arrived since it was drained.
+   */
+  private void requeue(Drained older) {
+    while (true) {
+      Cell cell = cells.computeIfAbsent(older.id, this::newCell);
+      if (cell.applyOlder(older.update)) {
+        return;
+      }
+      cells.remove(older.id, cell);
+    }
+  }
+
+  private static final class Member {
+
+    final String key;
+    final String member;
+
+    Member(String key, String member) {
+      this.key = key;
+      this.member = member;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Member)) {
+        return false;
+      }
+      Member other = (Member) o;
+      return key.equals(other.key) && member.equals(other.member);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(key, member);
+    }
+  }
+
+  /**
+   * Pending update of one member: an increment, or an absolute score plus later increments.
+   */
+  private static final class Update {
+
+    static final Update RETIRED = new Update(false, Double.NaN);
+
+    final boolean absolute;
+    final double value;
+
+    Update(boolean absolute, double value) {
+      this.absolute = absolute;
+      this.value = value;
+    }
+  }
+
+  private static final class Cell {
+
+    final Member id;
+    final long createdAt = System.nanoTime();
+    final AtomicReference<Update> state = new AtomicReference<>();
+
+    Cell(Member id) {
+      this.id = id;
+    }
+
+    /**
+     * @return false if the cell has been drained and must not be written to any more
+     */
+    boolean apply(double value, boolean absolute) {
+      while (true) {
+        Update current = state.get();
+        if (current == Update.RETIRED) {
+          return false;
+        }
+        Update next = absolute || current == null ? new Update(absolute, value)
+            : new Update(current.absolute, current.value + value);
+        if (state.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+
+    boolean applyOlder(Update older) {
+      while (true) {
+        Update current = state.get();
+        if (current == Update.RETIRED) {
+          return false;
+        }
+        Update next;
+        if (current == null) {
+          next = older;
+        } else if (current.absolute) {
+          // a newer ZADD wins over anything before it
+          next = current;
+        } else {
+          next = new Update(older.absolute, older.value + current.value);
+        }
+        if (state.compareAndSet(current, next)) {
+          return true;
+        }
+      }
+    }
+  }
+
+  private static final class Drained {
+
+    final Member id;
+    final Update update;
+
+    Drained(Member id, Update update) {
+      this.id = id;
+      this.update = update;
+    }
+  }
+
+  public static class Builder {
+
+    private final StringRedisTemplate template;
+    private Duration maxDelay = Duration.ofMillis(100);
+    private int maxPending = 10_000;
+    private int batchSize = 500;
+
+    private Builder(StringRedisTemplate template) {
+      this.template = template;
+    }
+
+    /**
+     * How long an update may stay in memory before it is written, give or take one flush.
+     */
+    public Builder maxDelay(Duration maxDelay) {
+      this.maxDelay = maxDelay;
+      return this;
+    }
+
+    /**
+     * Members with pending updates that trigger a flush before {@code maxDelay} is up.
+     */
+    public Builder maxPending(int maxPending) {
+      this.maxPending = maxPending;
+      return this;
+    }
+
+    /**
+     * Commands per MULTI/EXEC.
+     */
+    public Builder batchSize(int batchSize) {
+      this.batchSize = batchSize;
+      return this;
+    }
+
+    public ScoreAccumulator build() {
+      Assert.isTrue(!maxDelay.isNegative() && !maxDelay.isZero(), "maxDelay must be positive");
+      Assert.isTrue(maxPending > 0 && batchSize > 0, "maxPending and batchSize must be positive");
+      return new ScoreAccumulator(this);
+    }
+  }
+
+  public static class Metrics {
+
+    private final long updates;
+    private final long flushes;
+    private final long commands;
+    private final long failures;
+    private final long dropped;
+    private final long maxStalenessNanos;
+
+    Metrics(long updates, long flushes, long commands, long failures, long dropped, long maxStalenessNanos) {
+      this.updates = updates;
+      this.flushes = flushes;
+      this.commands = commands;
+      this.failures = failures;
+      this.dropped = dropped;
+      this.maxStalenessNanos = maxStalenessNanos;
+    }
+
+    public long getUpdates() {
+      return updates;
+    }
+
+    public long getFlushes() {
+      return flushes;
+    }
+
+    /**
+     * ZINCRBY and ZADD commands written.
+     */
+    public long getCommands() {
+      return commands;
+    }
+
+    /**
+     * Batches whose EXEC failed and that were kept for the next flush.
+     */
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * Merged updates Redis rejected inside EXEC, logged and not retried.
+     */
+    public long getDropped() {
+      return dropped;
+    }
+
+    /**
+     * Updates absorbed per command written.
+     */
+    public double getUpdatesPerCommand() {
+      return commands == 0 ? 0 : (double) updates / commands;
+    }
+
+    /**
+     * The longest a member's updates waited in memory before a flush picked them up.
+     */
+    public long getMaxStalenessMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(maxStalenessNanos);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "updates=%d flushes=%d commands=%d failures=%d dropped=%d updatesPerCommand=%.1f maxStaleness=%dms",
+          updates, flushes, commands, failures, dropped, getUpdatesPerCommand(), getMaxStalenessMillis());
+    }
+  }
+}
@@ -0,0 +1,278 @@
+package com.redis.redis.sixtwo;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.IsoFields;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.util.Assert;
+
+/**
+ * Hour → day → week rollups of per-shard score sets, materialized with weighted ZUNIONSTORE.
+ *
+ * Shards write into {@code <board>:input:<yyyyMMddHH>:<shard>} and mark the hour dirty. A
+ * {@link #refresh()} moves the dirty hours to {@code <board>:refreshing} and recomputes only
+ * those hours, the days they fall in and the weeks those days fall in; everything else keeps
+ * its materialized result. The refreshing set is deleted once every rollup is stored, so the
+ * hours of a refresh that fails are picked up by the next one. Run one refresh per board at a
+ * time. Reads are served from the materialized keys:
+ *
+ * <ul>
+ * <li>{@code <board>:hour:<yyyyMMddHH>}: union of the hour's shard inputs, weighted per shard</li>
+ * <li>{@code <board>:day:<yyyyMMdd>}: union of the day's 24 hours</li>
+ * <li>{@code <board>:week:<yyyy>W<ww>}: union of the ISO week's 7 days, older days optionally
+ * decayed</li>
+ * </ul>
+ */
+public class ScoreRollups {
+
+  public enum Granularity {
+    HOUR, DAY, WEEK
+  }
+
+  private static final DateTimeFormatter HOUR = DateTimeFormatter.ofPattern("yyyyMMddHH");
+  private static final DateTimeFormatter DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+  private static final int DIRTY_BATCH = 1000;
+
+  private final StringRedisTemplate template;
+  private final String board;
+  private final ZoneId zone;
+  private final Aggregate aggregate;
+  private final Map<String, Double> shardWeights = new HashMap<>();
+  private double dayDecay = 1.0;
+
+  public ScoreRollups(StringRedisTemplate template, String board, ZoneId zone) {
+    this(template, board, zone, Aggregate.SUM);
+  }
+
+  public ScoreRollups(StringRedisTemplate template, String board, ZoneId zone, Aggregate aggregate) {
+    this.template = template;
+    this.board = board;
+    this.zone = zone;
+    this.aggregate = aggregate;
+  }
+
+  /**
+   * Weight applied to a shard's scores when its hours are rolled up, 1 by default.
+   */
+  public ScoreRollups shardWeight(String shard, double weight) {
+    shardWeights.put(shard, weight);
+    return this;
+  }
+
+  /**
+   * Weight factor per day of age within a week: Sunday counts fully, Saturday {@code decay},
+   * Friday {@code decay²} and so on. 1 (no decay) by default.
+   */
+  public ScoreRollups dayDecay(double decay) {
+    this.dayDecay = decay;
+    return this;
+  }
+
+  /**
+   * ZINCRBY on the shard's input for the hour of {@code at}, and marks that hour dirty. One
+   * round trip.
+   */
+  public void record(String shard, String member, double delta, Instant at) {
+    String hour = HOUR.format(at.atZone(zone));
+    String input = inputKey(hour, shard);
+    template.executePipelined((RedisCallback<Object>) connection -> {
+      StringRedisConnection stringConnection = (StringRedisConnection) connection;
+      stringConnection.zIncrBy(input, delta, member);
+      stringConnection.sAdd(inputsKey(hour), shard);
+      stringConnection.sAdd(dirtyKey(), hour);
+      return null;
+    });
+  }
+
+  /**
+   * For shards that write their input keys directly: registers the shard's input for the hour
+   * of {@code at} and marks the hour dirty.
+   */
+  public String markChanged(String shard, Instant at) {
+    String hour = HOUR.format(at.atZone(zone));
+    template.opsForSet().add(inputsKey(hour), shard);
+    template.opsForSet().add(dirtyKey(), hour);
+    return inputKey(hour, shard);
+  }
+
+  /**
+   * Recomputes the dirty hours and the days and weeks above them.
+   */
+  public Refresh refresh() {
+    claimDirty();
+    Set<String> days = new TreeSet<>();
+    int hours = 0;
+    try (Cursor<String> dirty = template.opsForSet().scan(refreshingKey(),
+        ScanOptions.scanOptions().count(DIRTY_BATCH).build())) {
+      while (dirty.hasNext()) {
+        String hour = dirty.next();
+        rollUpHour(hour);
+        days.add(hour.substring(0, 8));
+        hours++;
+      }
+    }
+
+    Map<String, LocalDate> weeks = new TreeMap<>();
+    for (String day : days) {
+      LocalDate date = LocalDate.parse(day, DAY);
+      List<String> inputs = new ArrayList<>(24);
+      for (int h = 0; h < 24; h++) {
+        inputs.add(key(Granularity.HOUR, day + String.format("%02d", h)));
+      }
+      unionAndStore(inputs, Weights.fromSetCount(24), key(Granularity.DAY, day));
+      weeks.put(weekId(date), date.with(DayOfWeek.MONDAY));
+    }
+
+    for (Map.Entry<String, LocalDate> week : weeks.entrySet()) {
+      LocalDate monday = week.getValue();
+      List<String> inputs = new ArrayList<>(7);
+      double[] weights = new double[7];
+      for (int d = 0; d < 7; d++) {
+        inputs.add(key(Granularity.DAY, DAY.format(monday.plusDays(d))));
+        weights[d] = Math.pow(dayDecay, 6 - d);
+      }
+      unionAndStore(inputs, Weights.of(weights), key(Granularity.WEEK, week.getKey()));
+    }
+    template.delete(refreshingKey());
+    return new Refresh(hours, days.size(), weeks.size());
+  }
+
+  /**
+   * The materialized bucket containing {@code at}, best first.
+   */
+  public Set<TypedTuple<String>> top(Granularity granularity, Instant at, int n) {
+    Assert.isTrue(n >= 0, "n must not be negative");
+    if (n == 0) {
+      return Collections.emptySet();
+    }
+    return template.opsForZSet().reverseRangeWithScores(key(granularity, at), 0, n - 1);
+  }
+
+  public String key(Granularity granularity, Instant at) {
+    LocalDate date = at.atZone(zone).toLocalDate();
+    switch (granularity) {
+    case HOUR:
+      return key(granularity, HOUR.format(at.atZone(zone)));
+    case DAY:
+      return key(granularity, DAY.format(date));
+    default:
+      return key(granularity, weekId(date));
+    }
+  }
+
+  private void rollUpHour(String hour) {
+    Set<String> shards = template.opsForSet().members(inputsKey(hour));
+    if (shards == null || shards.isEmpty()) {
+      template.delete(key(Granularity.HOUR, hour));
+      return;
+    }
+    List<String> inputs = new ArrayList<>(shards.size());
+    double[] weights = new double[shards.size()];
+    int i = 0;
+    for (String shard : shards) {
+      inputs.add(inputKey(hour, shard));
+      weights[i++] = shardWeights.getOrDefault(shard, 1.0);
+    }
+    unionAndStore(inputs, Weights.of(weights), key(Granularity.HOUR, hour));
+  }
+
+  private void unionAndStore(List<String> inputs, Weights weights, String destination) {
+    // missing inputs count as empty sets
+    template.opsForZSet().unionAndStore(inputs.get(0), inputs.subList(1, inputs.size()), destination, aggregate,
+        weights);
+  }
+
+  /**
+   * Adds the dirty hours to what a failed refresh left behind, hours marked from now on go into
+   * a fresh dirty set.
+   */
+  private void claimDirty() {
+    String refreshing = refreshingKey();
+    template.execute(new SessionCallback<List<Object>>() {
+      @Override
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      public List<Object> execute(RedisOperations operations) {
+        operations.multi();
+        operations.opsForSet().unionAndStore(refreshing, dirtyKey(), refreshing);
+        operations.delete(dirtyKey());
+        return operations.exec();
+      }
+    });
+  }
+
+  private static String weekId(LocalDate date) {
+    return String.format("%04dW%02d", date.get(IsoFields.WEEK_BASED_YEAR),
+        date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+  }
+
+  private String key(Granularity granularity, String id) {
+    return board + ":" + granularity.name().toLowerCase() + ":" + id;
+  }
+
+  private String inputKey(String hour, String shard) {
+    return board + ":input:" + hour + ":" + shard;
+  }
+
+  private String inputsKey(String hour) {
+    return board + ":inputs:" + hour;
+  }
+
+  private String dirtyKey() {
+    return board + ":dirty";
+  }
+
+  private String refreshingKey() {
+    return board + ":refreshing";
+  }
+
+  public static class Refresh {
+
+    private final int hours;
+    private final int days;
+    private final int weeks;
+
+    Refresh(int hours, int days, int weeks) {
+      this.hours = hours;
+      this.days = days;
+      this.weeks = weeks;
+    }
+
+    public int getHours() {
+      return hours;
+    }
+
+    public int getDays() {
+      return days;
+    }
+
+    public int getWeeks() {
+      return weeks;
+    }
+
+    @Override
+    public String toString() {
+      return "hours=" + hours + " days=" + days + " weeks=" + weeks;
+    }
+  }
+}
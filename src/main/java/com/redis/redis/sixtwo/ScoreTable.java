@@ -0,0 +1,123 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.springframework.util.Assert;
+
+/**
+ * Sorted set members and scores decoded into parallel primitive arrays: a {@code double[]} of
+ * scores and the raw member bytes packed back to back into one slab. Filled by
+ * {@link ScoreTableCommands} and meant to be reused across calls (one table per thread), so a
+ * read of thousands of members allocates nothing once the arrays have grown to fit.
+ *
+ * Missing scores (ZMSCORE of a member that isn't in the set) are {@link Double#NaN}, which Redis
+ * never stores as a score.
+ */
+public final class ScoreTable {
+
+  private double[] scores;
+  private int[] ends;
+  private byte[] members;
+  private int size;
+  private int memberCount;
+  private int slabSize;
+
+  public ScoreTable() {
+    this(16, 256);
+  }
+
+  public ScoreTable(int initialSize, int initialMemberBytes) {
+    this.scores = new double[Math.max(1, initialSize)];
+    this.ends = new int[Math.max(1, initialSize)];
+    this.members = new byte[Math.max(1, initialMemberBytes)];
+  }
+
+  /**
+   * The number of scores in the table.
+   */
+  public int size() {
+    return size;
+  }
+
+  public double score(int index) {
+    Assert.isTrue(index < size, "index out of range");
+    return scores[index];
+  }
+
+  /**
+   * The backing score array, valid up to {@link #size()}. Overwritten by the next read into
+   * this table.
+   */
+  public double[] scores() {
+    return scores;
+  }
+
+  /**
+   * Whether the table holds members, ZMSCORE replies only have scores.
+   */
+  public boolean hasMembers() {
+    return memberCount > 0 || size == 0;
+  }
+
+  public String member(int index) {
+    Assert.isTrue(index < memberCount, "index out of range");
+    int start = start(index);
+    return new String(members, start, ends[index] - start, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * A read-only view of the member bytes, valid until the next read into this table.
+   */
+  public ByteBuffer memberBytes(int index) {
+    Assert.isTrue(index < memberCount, "index out of range");
+    int start = start(index);
+    return ByteBuffer.wrap(members, start, ends[index] - start).slice().asReadOnlyBuffer();
+  }
+
+  public boolean memberEquals(int index, byte[] member) {
+    Assert.isTrue(index < memberCount, "index out of range");
+    int start = start(index);
+    return Arrays.equals(members, start, ends[index], member, 0, member.length);
+  }
+
+  public void clear() {
+    size = 0;
+    memberCount = 0;
+    slabSize = 0;
+  }
+
+  void ensureCapacity(int count) {
+    if (count > scores.length) {
+      int length = Math.max(count, scores.length * 2);
+      scores = Arrays.copyOf(scores, length);
+      ends = Arrays.copyOf(ends, length);
+    }
+  }
+
+  void addMember(ByteBuffer bytes) {
+    ensureCapacity(memberCount + 1);
+    int length = bytes.remaining();
+    if (slabSize + length > members.length) {
+      members = Arrays.copyOf(members, Math.max(members.length * 2, slabSize + length));
+    }
+    bytes.duplicate().get(members, slabSize, length);
+    slabSize += length;
+    ends[memberCount++] = slabSize;
+  }
+
+  void addScore(double score) {
+    ensureCapacity(size + 1);
+    scores[size++] = score;
+  }
+
+  private int start(int index) {
+    return index == 0 ? 0 : ends[index - 1];
+  }
+
+  @Override
+  public String toString() {
+    return String.format("ScoreTable[size=%d, memberBytes=%d]", size, slabSize);
+  }
+}
@@ -0,0 +1,179 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+
+import io.lettuce.core.LettuceStrings;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+
+/**
+ * ZRANGE WITHSCORES, ZMSCORE (#7593) and ZINTER WITHSCORES (#7794) decoded straight into a
+ * reusable {@link ScoreTable}, instead of a {@code TypedTuple} with a boxed {@code Double} and a
+ * deserialized {@code String} per member.
+ *
+ * Scores arrive as bulk strings over RESP2 and as doubles over RESP3; both are handled. Bulk
+ * scores are parsed without allocating when they have at most 15 significant digits, which
+ * covers integer and most decimal scores.
+ */
+public class ScoreTableCommands {
+
+  /**
+   * Exact powers of ten, a decimal with a mantissa below 2^53 divided by one of these is
+   * correctly rounded.
+   */
+  private static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final RedisSerializer<String> serializer;
+  private final SortedSetRangeCommands commands;
+
+  public ScoreTableCommands(StringRedisTemplate template) {
+    this.serializer = template.getStringSerializer();
+    this.commands = new SortedSetRangeCommands(template);
+  }
+
+  /**
+   * {@code ZRANGE key start stop [REV] WITHSCORES} into {@code table}.
+   */
+  public ScoreTable rangeWithScores(String key, long start, long stop, boolean rev, ScoreTable table) {
+    CommandArgs<byte[], byte[]> args = args().addKey(serializer.serialize(key)).add(start).add(stop);
+    if (rev) {
+      args.add("REV");
+    }
+    args.add("WITHSCORES");
+    return commands.dispatch(CommandType.ZRANGE, new ScoreTableOutput(table, true), args);
+  }
+
+  /**
+   * {@code ZMSCORE key member [member ...]} into {@code table}, {@code NaN} for missing members.
+   */
+  public ScoreTable scores(String key, ScoreTable table, String... members) {
+    Assert.notEmpty(members, "at least one member is required");
+    CommandArgs<byte[], byte[]> args = args().addKey(serializer.serialize(key));
+    for (String member : members) {
+      args.addValue(serializer.serialize(member));
+    }
+    return commands.dispatch(CommandType.ZMSCORE, new ScoreTableOutput(table, false), args);
+  }
+
+  /**
+   * {@code ZINTER numkeys key [key ...] WITHSCORES} into {@code table}.
+   */
+  public ScoreTable intersectWithScores(ScoreTable table, String... keys) {
+    Assert.notEmpty(keys, "at least one key is required");
+    CommandArgs<byte[], byte[]> args = args().add(keys.length);
+    for (String key : keys) {
+      args.addKey(serializer.serialize(key));
+    }
+    args.add("WITHSCORES");
+    return commands.dispatch(CommandType.ZINTER, new ScoreTableOutput(table, true), args);
+  }
+
+  private static CommandArgs<byte[], byte[]> args() {
+    return new CommandArgs<>(ByteArrayCodec.INSTANCE);
+  }
+
+  static double parseScore(ByteBuffer bytes) {
+    int position = bytes.position();
+    int limit = bytes.limit();
+    boolean negative = false;
+    if (position < limit && (bytes.get(position) == '-' || bytes.get(position) == '+')) {
+      negative = bytes.get(position) == '-';
+      position++;
+    }
+    long mantissa = 0;
+    int exponent = 0;
+    boolean digits = false;
+    boolean fraction = false;
+    for (; position < limit; position++) {
+      byte b = bytes.get(position);
+      if (b >= '0' && b <= '9') {
+        mantissa = mantissa * 10 + (b - '0');
+        if (mantissa > MAX_EXACT_MANTISSA) {
+          return parseSlowly(bytes);
+        }
+        digits = true;
+        if (fraction) {
+          exponent++;
+        }
+      } else if (b == '.' && !fraction) {
+        fraction = true;
+      } else {
+        // exponents, inf and nan
+        return parseSlowly(bytes);
+      }
+    }
+    if (!digits || exponent >= POWERS_OF_TEN.length) {
+      return parseSlowly(bytes);
+    }
+    double value = mantissa / POWERS_OF_TEN[exponent];
+    return negative ? -value : value;
+  }
+
+  private static double parseSlowly(ByteBuffer bytes) {
+    byte[] copy = new byte[bytes.remaining()];
+    bytes.duplicate().get(copy);
+    return LettuceStrings.toDouble(new String(copy, StandardCharsets.US_ASCII));
+  }
+
+  /**
+   * Fills a {@link ScoreTable} from either alternating member/score replies or score-only
+   * replies. RESP3 nests each member/score pair in its own array, which doesn't change the
+   * order of the callbacks.
+   */
+  static final class ScoreTableOutput extends CommandOutput<byte[], byte[], ScoreTable> {
+
+    private final boolean withMembers;
+    private boolean sized;
+    private boolean expectScore;
+
+    ScoreTableOutput(ScoreTable table, boolean withMembers) {
+      super(ByteArrayCodec.INSTANCE, table);
+      this.withMembers = withMembers;
+      this.expectScore = !withMembers;
+      table.clear();
+    }
+
+    @Override
+    public void multi(int count) {
+      if (!sized && count > 0) {
+        output.ensureCapacity(withMembers ? count / 2 : count);
+        sized = true;
+      }
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+      if (!expectScore) {
+        output.addMember(bytes);
+        expectScore = true;
+        return;
+      }
+      score(bytes == null ? Double.NaN : parseScore(bytes));
+    }
+
+    @Override
+    public void set(double number) {
+      score(number);
+    }
+
+    @Override
+    public void set(long integer) {
+      score(integer);
+    }
+
+    private void score(double score) {
+      output.addScore(score);
+      expectScore = !withMembers;
+    }
+  }
+}
@@ -0,0 +1,276 @@
+package com.redis.redis.sixtwo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntFunction;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+/**
+ * One logical sorted set (a leaderboard) split over {@code shards} keys by member hash, so its
+ * writes spread over as many Redis cores or cluster nodes as there are shards instead of
+ * pinning one hot key.
+ *
+ * Shard {@code i} is {@code <board>:<i>}, without a hash tag so that a cluster places the shards
+ * on different nodes. A member always lives on the same shard, so writes and score lookups go
+ * to one key. Top-N reads the top N of every shard in parallel and merges them client-side
+ * with a k-way heap merge; ranks add up the members scoring higher on every shard. Reads that
+ * span shards are not a snapshot: a write landing during the fan-out may or may not be seen.
+ *
+ * Members with equal scores are ordered like ZREVRANGE orders them, by member descending.
+ */
+public class ShardedSortedSet implements AutoCloseable {
+
+  private static final Comparator<TypedTuple<String>> HIGHEST_FIRST = Comparator
+      .comparing((TypedTuple<String> tuple) -> tuple.getScore()).reversed()
+      .thenComparing(TypedTuple::getValue, Comparator.reverseOrder());
+
+  private final ZSetOperations<String, String> zSetOps;
+  private final String board;
+  private final String[] keys;
+  private final ExecutorService fanOut;
+
+  public ShardedSortedSet(StringRedisTemplate template, String board, int shards) {
+    this(template, board, shards, Math.min(shards, 2 * Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * @param fanOutThreads shards queried at the same time by reads that span shards
+   */
+  public ShardedSortedSet(StringRedisTemplate template, String board, int shards, int fanOutThreads) {
+    Assert.isTrue(shards > 0 && fanOutThreads > 0, "shards and fanOutThreads must be positive");
+    this.zSetOps = template.opsForZSet();
+    this.board = board;
+    this.keys = new String[shards];
+    for (int i = 0; i < shards; i++) {
+      keys[i] = board + ":" + i;
+    }
+    this.fanOut = Executors.newFixedThreadPool(fanOutThreads, new CustomizableThreadFactory("sharded-zset-"));
+  }
+
+  public String getBoard() {
+    return board;
+  }
+
+  public List<String> getShardKeys() {
+    return List.of(keys);
+  }
+
+  /**
+   * The key holding {@code member}.
+   */
+  public String shardKey(String member) {
+    return keys[shardIndex(member)];
+  }
+
+  public Boolean add(String member, double score) {
+    return zSetOps.add(shardKey(member), member, score);
+  }
+
+  public Double incrementScore(String member, double delta) {
+    return zSetOps.incrementScore(shardKey(member), member, delta);
+  }
+
+  public Long remove(String member) {
+    return zSetOps.remove(shardKey(member), member);
+  }
+
+  /**
+   * One multi-member ZADD per shard, the shards written in parallel.
+   *
+   * @return the number of members added
+   */
+  public long addAll(Map<String, Double> scores) {
+    List<Set<TypedTuple<String>>> byShard = new ArrayList<>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      byShard.add(new LinkedHashSet<>());
+    }
+    scores.forEach((member, score) -> byShard.get(shardIndex(member)).add(TypedTuple.of(member, score)));
+    return fanOut(i -> byShard.get(i).isEmpty() ? 0L : zSetOps.add(keys[i], byShard.get(i))).stream()
+        .mapToLong(added -> added != null ? added : 0)
+        .sum();
+  }
+
+  public Double score(String member) {
+    return zSetOps.score(shardKey(member), member);
+  }
+
+  /**
+   * ZMSCORE (#7593) on every shard holding one of the members, in parallel. Scores come back in
+   * the order of {@code members}, {@code null} for absent members.
+   */
+  public List<Double> scores(String... members) {
+    List<List<Integer>> positions = new ArrayList<>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      positions.add(new ArrayList<>());
+    }
+    for (int m = 0; m < members.length; m++) {
+      positions.get(shardIndex(members[m])).add(m);
+    }
+    List<List<Double>> replies = fanOut(i -> {
+      List<Integer> owned = positions.get(i);
+      if (owned.isEmpty()) {
+        return List.of();
+      }
+      Object[] shardMembers = owned.stream().map(m -> members[m]).toArray();
+      return zSetOps.score(keys[i], shardMembers);
+    });
+    Double[] scores = new Double[members.length];
+    for (int i = 0; i < keys.length; i++) {
+      List<Integer> owned = positions.get(i);
+      for (int j = 0; j < owned.size(); j++) {
+        scores[owned.get(j)] = replies.get(i).get(j);
+      }
+    }
+    return Arrays.asList(scores);
+  }
+
+  /**
+   * The {@code n} highest scores: {@code ZRANGE <shard> 0 n-1 REV WITHSCORES} on every shard,
+   * merged.
+   */
+  public List<TypedTuple<String>> top(int n) {
+    Assert.isTrue(n >= 0, "n must not be negative");
+    if (n == 0) {
+      return List.of();
+    }
+    List<Set<TypedTuple<String>>> shardTops = fanOut(i -> zSetOps.reverseRangeWithScores(keys[i], 0, n - 1));
+    return merge(shardTops, n);
+  }
+
+  /**
+   * The 0-based position of {@code member} in the whole board, highest score first, like
+   * ZREVRANK; {@code null} if it is absent.
+   *
+   * Two ZCOUNTs per other shard when nothing there ties with the member. Redis cannot count
+   * members by name within one score, so ties are fetched and compared client-side: the cost
+   * grows with the number of members sharing the score.
+   */
+  public Long rank(String member) {
+    String ownKey = shardKey(member);
+    Double score = zSetOps.score(ownKey, member);
+    if (score == null) {
+      return null;
+    }
+    double above = Math.nextUp(score);
+    List<Long> ahead = fanOut(i -> {
+      if (keys[i].equals(ownKey)) {
+        // the shard's own order already places ties
+        return zSetOps.reverseRank(ownKey, member);
+      }
+      long higher = orZero(zSetOps.count(keys[i], above, Double.POSITIVE_INFINITY));
+      long atLeast = orZero(zSetOps.count(keys[i], score, Double.POSITIVE_INFINITY));
+      if (atLeast > higher) {
+        Set<String> ties = zSetOps.rangeByScore(keys[i], score, score);
+        if (ties != null) {
+          higher += ties.stream().filter(tie -> tie.compareTo(member) > 0).count();
+        }
+      }
+      return higher;
+    });
+    return ahead.stream().mapToLong(ShardedSortedSet::orZero).sum();
+  }
+
+  /**
+   * ZCARD of every shard, added up.
+   */
+  public long size() {
+    return fanOut(i -> zSetOps.size(keys[i])).stream().mapToLong(ShardedSortedSet::orZero).sum();
+  }
+
+  @Override
+  public void close() {
+    fanOut.shutdownNow();
+  }
+
+  private int shardIndex(String member) {
+    // String.hashCode is fixed by the JLS, so every client maps a member to the same shard
+    int hash = member.hashCode();
+    hash ^= hash >>> 16;
+    // the high bits of the Fibonacci hash are the well mixed ones, scaled down to [0, shards)
+    long mixed = (hash * 0x9E3779B9) & 0xFFFFFFFFL;
+    return (int) ((mixed * keys.length) >>> 32);
+  }
+
+  /**
+   * Runs {@code read} for every shard in parallel, results in shard order.
+   */
+  private <T> List<T> fanOut(IntFunction<T> read) {
+    if (keys.length == 1) {
+      return Collections.singletonList(read.apply(0));
+    }
+    List<CompletableFuture<T>> reads = new ArrayList<>(keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      int shard = i;
+      reads.add(CompletableFuture.supplyAsync(() -> read.apply(shard), fanOut));
+    }
+    List<T> results = new ArrayList<>(keys.length);
+    for (CompletableFuture<T> read : reads) {
+      results.add(read.join());
+    }
+    return results;
+  }
+
+  /**
+   * k-way merge of the shards' already sorted tops, taking the next entry from whichever shard
+   * holds the highest remaining one, until {@code n} are taken.
+   */
+  static List<TypedTuple<String>> merge(Collection<? extends Collection<TypedTuple<String>>> sortedShards, int n) {
+    PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, sortedShards.size()),
+        (a, b) -> HIGHEST_FIRST.compare(a.head, b.head));
+    for (Collection<TypedTuple<String>> shard : sortedShards) {
+      if (shard != null && !shard.isEmpty()) {
+        Cursor cursor = new Cursor(shard);
+        cursor.advance();
+        heads.add(cursor);
+      }
+    }
+    List<TypedTuple<String>> merged = new ArrayList<>(n);
+    while (merged.size() < n && !heads.isEmpty()) {
+      Cursor cursor = heads.poll();
+      merged.add(cursor.head);
+      if (cursor.advance()) {
+        heads.add(cursor);
+      }
+    }
+    return merged;
+  }
+
+  private static long orZero(Long value) {
+    return value != null ? value : 0;
+  }
+
+  private static final class Cursor {
+
+    final Iterator<TypedTuple<String>> remaining;
+    TypedTuple<String> head;
+
+    Cursor(Collection<TypedTuple<String>> shard) {
+      this.remaining = shard.iterator();
+    }
+
+    boolean advance() {
+      if (!remaining.hasNext()) {
+        return false;
+      }
+      head = remaining.next();
+      return true;
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package com.redis.redis.sixtwo;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.api.async.BaseRedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.output.IntegerOutput;
+import io.lettuce.core.output.ScoredValueListOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+
+/**
+ * The unified ZRANGE (REV, BYSCORE and LIMIT) and ZRANGESTORE forms added in 6.2, which
+ * {@code ZSetOperations} doesn't expose yet. Commands are dispatched on the template's native
+ * Lettuce connection.
+ *
+ * Results are returned as lists, in reply order, rather than the sets ZSetOperations uses.
+ */
+public class SortedSetRangeCommands {
+
+  enum Command implements ProtocolKeyword {
+    ZRANGE, ZRANGESTORE;
+
+    private final byte[] bytes = name().getBytes(StandardCharsets.US_ASCII);
+
+    @Override
+    public byte[] getBytes() {
+      return bytes;
+    }
+  }
+
+  private final StringRedisTemplate template;
+  private final RedisSerializer<String> serializer;
+  private final Duration timeout;
+
+  public SortedSetRangeCommands(StringRedisTemplate template) {
+    this(template, Duration.ofSeconds(60));
+  }
+
+  public SortedSetRangeCommands(StringRedisTemplate template, Duration timeout) {
+    this.template = template;
+    this.serializer = template.getStringSerializer();
+    this.timeout = timeout;
+  }
+
+  /**
+   * {@code ZRANGE key start stop [REV] WITHSCORES}
+   */
+  public List<TypedTuple<String>> rangeWithScores(String key, long start, long stop, boolean rev) {
+    CommandArgs<byte[], byte[]> args = args(key).add(start).add(stop);
+    if (rev) {
+      args.add("REV");
+    }
+    args.add("WITHSCORES");
+    return tuples(dispatch(Command.ZRANGE, new ScoredValueListOutput<>(ByteArrayCodec.INSTANCE), args));
+  }
+
+  /**
+   * {@code ZRANGE key min max BYSCORE [REV] LIMIT offset count WITHSCORES}, highest scores first
+   * when {@code rev} is set.
+   */
+  public List<TypedTuple<String>> rangeByScoreWithScores(String key, double min, double max, boolean rev, long offset,
+      long count) {
+    CommandArgs<byte[], byte[]> args = byScore(args(key), min, max, rev, offset, count).add("WITHSCORES");
+    return tuples(dispatch(Command.ZRANGE, new ScoredValueListOutput<>(ByteArrayCodec.INSTANCE), args));
+  }
+
+  /**
+   * {@code ZRANGESTORE dst src start stop [REV]}
+   *
+   * @return the number of members stored in {@code destination}
+   */
+  public long rangeAndStore(String destination, String source, long start, long stop, boolean rev) {
+    CommandArgs<byte[], byte[]> args = args(destination).addKey(serializer.serialize(source)).add(start).add(stop);
+    if (rev) {
+      args.add("REV");
+    }
+    return dispatch(Command.ZRANGESTORE, new IntegerOutput<>(ByteArrayCodec.INSTANCE), args);
+  }
+
+  /**
+   * {@code ZRANGESTORE dst src min max BYSCORE [REV] LIMIT offset count}
+   *
+   * @return the number of members stored in {@code destination}
+   */
+  public long rangeByScoreAndStore(String destination, String source, double min, double max, boolean rev,
+      long offset, long count) {
+    CommandArgs<byte[], byte[]> args = byScore(args(destination).addKey(serializer.serialize(source)), min, max, rev,
+        offset, count);
+    return dispatch(Command.ZRANGESTORE, new IntegerOutput<>(ByteArrayCodec.INSTANCE), args);
+  }
+
+  private CommandArgs<byte[], byte[]> args(String key) {
+    return new CommandArgs<>(ByteArrayCodec.INSTANCE).addKey(serializer.serialize(key));
+  }
+
+  private static CommandArgs<byte[], byte[]> byScore(CommandArgs<byte[], byte[]> args, double min, double max,
+      boolean rev, long offset, long count) {
+    // with REV the range is given from the high end
+    args.add(score(rev ? max : min)).add(score(rev ? min : max)).add("BYSCORE");
+    if (rev) {
+      args.add("REV");
+    }
+    return args.add("LIMIT").add(offset).add(count);
+  }
+
+  static String score(double score) {
+    if (score == Double.POSITIVE_INFINITY) {
+      return "+inf";
+    }
+    if (score == Double.NEGATIVE_INFINITY) {
+      return "-inf";
+    }
+    return Double.toString(score);
+  }
+
+  private List<TypedTuple<String>> tuples(List<ScoredValue<byte[]>> values) {
+    List<TypedTuple<String>> tuples = new ArrayList<>(values.size());
+    for (ScoredValue<byte[]> value : values) {
+      tuples.add(TypedTuple.of(serializer.deserialize(value.getValue()), value.getScore()));
+    }
+    return tuples;
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T dispatch(ProtocolKeyword command, CommandOutput<byte[], byte[], T> output, CommandArgs<byte[], byte[]> args) {
+    return template.execute((RedisCallback<T>) connection -> {
+      BaseRedisAsyncCommands<byte[], byte[]> commands = (BaseRedisAsyncCommands<byte[], byte[]>) connection
+          .getNativeConnection();
+      return LettuceFutures.awaitOrCancel(commands.dispatch(command, output, args), timeout.toMillis(),
+          TimeUnit.MILLISECONDS);
+    });
+  }
+}
@@ -0,0 +1,62 @@
+package com.redis.redis.sixtwo;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * The threads blocking list consumers (BLMOVE, BLPOP) wait on.
+ *
+ * A consumer parked in a blocking command holds its thread for as long as the list stays
+ * empty. Platform threads cost a native stack each (1 MB reserved by default), so a JVM tops
+ * out at a few thousand waiting consumers; a virtual thread parked on the command's future
+ * costs a few hundred bytes of heap. Either way each waiting consumer still ties up one Redis
+ * connection.
+ */
+public enum ThreadMode {
+
+  PLATFORM {
+    @Override
+    public ThreadFactory threadFactory(String prefix) {
+      CustomizableThreadFactory factory = new CustomizableThreadFactory(prefix);
+      factory.setDaemon(true);
+      return factory;
+    }
+  },
+
+  /**
+   * Needs Java 21 (build with {@code -Pjdk21}). Looked up reflectively so the project still
+   * builds and runs on Java 11 with {@link #PLATFORM}.
+   */
+  VIRTUAL {
+    @Override
+    public ThreadFactory threadFactory(String prefix) {
+      try {
+        Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+        Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+        builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 1L);
+        return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+      } catch (NoSuchMethodException | ClassNotFoundException e) {
+        throw new IllegalStateException(
+            "Virtual threads need Java 21, running on " + System.getProperty("java.version"), e);
+      } catch (IllegalAccessException | InvocationTargetException e) {
+        throw new IllegalStateException("Virtual threads are not available", e);
+      }
+    }
+  };
+
+  /**
+   * Factory for threads named {@code prefix} followed by a counter.
+   */
+  public abstract ThreadFactory threadFactory(String prefix);
+
+  public static boolean virtualThreadsAvailable() {
+    try {
+      Thread.class.getMethod("ofVirtual");
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+}
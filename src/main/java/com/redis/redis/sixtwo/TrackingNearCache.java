@@ -0,0 +1,303 @@
+package com.redis.redis.sixtwo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.TrackingArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.push.PushMessage;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.codec.StringCodec;
+
+/**
+ * Near cache for SMISMEMBER (#7615) and ZMSCORE (#7593) lookups, kept coherent with Redis 6
+ * client side caching.
+ *
+ * Lookups go through a dedicated RESP3 connection with {@code CLIENT TRACKING on}, so Redis
+ * remembers which keys this client has read and pushes an {@code invalidate} message when one
+ * of them changes. Entries are held in a size bounded Caffeine cache (W-TinyLFU eviction).
+ *
+ * Invalidating a key bumps its generation instead of scanning the cache for its members:
+ * entries remember the generation they were read under and are ignored (and dropped) once it
+ * moved on. The generation is taken before the command is sent, so an invalidation that races
+ * with the reply still wins.
+ *
+ * Tracking state is lost when the connection drops; the cache is cleared when its own
+ * connection disconnects, other connections of the same client are ignored, and tracking is
+ * switched on again before the next lookup.
+ */
+public class TrackingNearCache implements AutoCloseable {
+
+  private static final char MEMBERSHIP = 's';
+  private static final char SCORE = 'z';
+
+  private final RedisClient client;
+  private final StatefulRedisConnection<String, String> connection;
+  private final RedisCommands<String, String> commands;
+  private final Cache<Entry, Cached> entries;
+  private final Cache<String, Long> generations;
+  private final AtomicLong clock = new AtomicLong();
+  private final RedisConnectionStateListener disconnects;
+  private volatile boolean tracking;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder invalidations = new LongAdder();
+  private final LongAdder fetches = new LongAdder();
+
+  public TrackingNearCache(RedisClient client, long maximumSize) {
+    this.entries = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    this.generations = Caffeine.newBuilder().maximumSize(maximumSize).build();
+    this.client = client;
+    this.connection = client.connect();
+    this.commands = connection.sync();
+    this.connection.addListener(this::onPush);
+    this.disconnects = new RedisConnectionStateListener() {
+      @Override
+      public void onRedisDisconnected(RedisChannelHandler<?, ?> disconnected) {
+        if (disconnected == connection) {
+          onDisconnect();
+        }
+      }
+    };
+    client.addListener(disconnects);
+    enableTracking();
+  }
+
+  /**
+   * SMISMEMBER for the members that are not cached.
+   *
+   * @return membership per member, in argument order
+   */
+  public Map<String, Boolean> isMember(String key, String... members) {
+    Map<String, Boolean> result = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String member : members) {
+      Cached cached = lookup(MEMBERSHIP, key, member);
+      result.put(member, cached == null ? null : (Boolean) cached.value);
+      if (cached == null) {
+        missing.add(member);
+      }
+    }
+    if (!missing.isEmpty()) {
+      long generation = generation(key);
+      List<Boolean> fetched = commands.smismember(key, missing.toArray(new String[0]));
+      fetches.increment();
+      for (int i = 0; i < missing.size(); i++) {
+        entries.put(new Entry(MEMBERSHIP, key, missing.get(i)), new Cached(generation, fetched.get(i)));
+        result.put(missing.get(i), fetched.get(i));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * ZMSCORE for the members that are not cached.
+   *
+   * @return the scores in argument order, {@code null} for absent members
+   */
+  public List<Double> score(String key, String... members) {
+    Double[] scores = new Double[members.length];
+    List<Integer> missing = new ArrayList<>();
+    for (int i = 0; i < members.length; i++) {
+      Cached cached = lookup(SCORE, key, members[i]);
+      if (cached == null) {
+        missing.add(i);
+      } else {
+        scores[i] = (Double) cached.value;
+      }
+    }
+    if (!missing.isEmpty()) {
+      String[] toFetch = new String[missing.size()];
+      for (int i = 0; i < toFetch.length; i++) {
+        toFetch[i] = members[missing.get(i)];
+      }
+      long generation = generation(key);
+      List<Double> fetched = commands.zmscore(key, toFetch);
+      fetches.increment();
+      for (int i = 0; i < toFetch.length; i++) {
+        entries.put(new Entry(SCORE, key, toFetch[i]), new Cached(generation, fetched.get(i)));
+        scores[missing.get(i)] = fetched.get(i);
+      }
+    }
+    return Arrays.asList(scores);
+  }
+
+  public Metrics metrics() {
+    return new Metrics(hits.sum(), misses.sum(), invalidations.sum(), fetches.sum(), entries.estimatedSize());
+  }
+
+  @Override
+  public void close() {
+    client.removeListener(disconnects);
+    connection.close();
+    entries.invalidateAll();
+  }
+
+  private Cached lookup(char kind, String key, String member) {
+    ensureTracking();
+    Entry entry = new Entry(kind, key, member);
+    Cached cached = entries.getIfPresent(entry);
+    if (cached != null && cached.generation == generation(key)) {
+      hits.increment();
+      return cached;
+    }
+    if (cached != null) {
+      entries.invalidate(entry);
+    }
+    misses.increment();
+    return null;
+  }
+
+  private long generation(String key) {
+    // a key evicted from the generations cache comes back newer than anything cached under it
+    return generations.get(key, k -> clock.incrementAndGet());
+  }
+
+  private void onPush(PushMessage message) {
+    if (!"invalidate".equals(message.getType())) {
+      return;
+    }
+    List<Object> content = message.getContent(StringCodec.UTF8::decodeKey);
+    Object keys = content.size() > 1 ? content.get(1) : null;
+    if (keys == null) {
+      // FLUSHDB/FLUSHALL
+      invalidateAll();
+      return;
+    }
+    for (Object key : (List<?>) keys) {
+      generations.put((String) key, clock.incrementAndGet());
+      invalidations.increment();
+    }
+  }
+
+  private void onDisconnect() {
+    tracking = false;
+    invalidateAll();
+  }
+
+  private void invalidateAll() {
+    generations.invalidateAll();
+    entries.invalidateAll();
+    invalidations.increment();
+  }
+
+  private void ensureTracking() {
+    if (!tracking) {
+      enableTracking();
+    }
+  }
+
+  private synchronized void enableTracking() {
+    if (!tracking) {
+      commands.clientTracking(TrackingArgs.Builder.enabled());
+      tracking = true;
+    }
+  }
+
+  private static final class Entry {
+
+    final char kind;
+    final String key;
+    final String member;
+
+    Entry(char kind, String key, String member) {
+      this.kind = kind;
+      this.key = key;
+      this.member = member;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) o;
+      return kind == other.kind && key.equals(other.key) && member.equals(other.member);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(kind, key, member);
+    }
+  }
+
+  private static final class Cached {
+
+    final long generation;
+    final Object value;
+
+    Cached(long generation, Object value) {
+      this.generation = generation;
+      this.value = value;
+    }
+  }
+
+  public static class Metrics {
+
+    private final long hits;
+    private final long misses;
+    private final long invalidations;
+    private final long fetches;
+    private final long size;
+
+    Metrics(long hits, long misses, long invalidations, long fetches, long size) {
+      this.hits = hits;
+      this.misses = misses;
+      this.invalidations = invalidations;
+      this.fetches = fetches;
+      this.size = size;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    public double getHitRatio() {
+      return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    /**
+     * Keys invalidated by Redis, a flush or a disconnect counting as one.
+     */
+    public long getInvalidations() {
+      return invalidations;
+    }
+
+    /**
+     * SMISMEMBER/ZMSCORE calls sent for the members that missed.
+     */
+    public long getFetches() {
+      return fetches;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("hits=%d misses=%d hitRatio=%.2f invalidations=%d fetches=%d size=%d", hits, misses,
+          getHitRatio(), invalidations, fetches, size);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package com.redis.redis.sixtwo;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Encodes numeric IDs as zig-zag varints, 7 bits per byte: IDs below 64 take one byte, below
+ * 8192 two, and a full 64 bit value at most ten, against up to 20 bytes as a decimal string.
+ *
+ * The encoding is not order preserving and not readable by other clients or by INCR, so use it
+ * for set and list members and sorted set members whose order comes from the score, not for
+ * values other code treats as numbers.
+ */
+public final class VarintLongRedisSerializer implements RedisSerializer<Long> {
+
+  public static final VarintLongRedisSerializer INSTANCE = new VarintLongRedisSerializer();
+
+  private VarintLongRedisSerializer() {
+  }
+
+  @Override
+  public byte[] serialize(Long value) {
+    if (value == null) {
+      return null;
+    }
+    long zigZag = (value << 1) ^ (value >> 63);
+    byte[] bytes = new byte[size(zigZag)];
+    for (int i = 0; i < bytes.length - 1; i++) {
+      bytes[i] = (byte) ((zigZag & 0x7F) | 0x80);
+      zigZag >>>= 7;
+    }
+    bytes[bytes.length - 1] = (byte) zigZag;
+    return bytes;
+  }
+
+  @Override
+  public Long deserialize(byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+    if (bytes.length == 0 || bytes.length > 10 || bytes[bytes.length - 1] < 0) {
+      throw new SerializationException("Not a varint: " + bytes.length + " bytes");
+    }
+    long zigZag = 0;
+    for (int i = 0; i < bytes.length; i++) {
+      zigZag |= (long) (bytes[i] & 0x7F) << (7 * i);
+    }
+    return (zigZag >>> 1) ^ -(zigZag & 1);
+  }
+
+  @Override
+  public Class<?> getTargetType() {
+    return Long.class;
+  }
+
+  private static int size(long zigZag) {
+    int bits = 64 - Long.numberOfLeadingZeros(zigZag | 1);
+    return (bits + 6) / 7;
+  }
+}
@@ -0,0 +1,134 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = BinaryRedisConfigurationTest.Config.class, properties = {
+    "app.redis.binary-templates.enabled=true" })
+class BinaryRedisConfigurationTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "byteArrayRedisTemplate")
+  private SetOperations<byte[], byte[]> byteArraySetOps;
+
+  @Resource(name = "byteBufferRedisTemplate")
+  private ZSetOperations<ByteBuffer, ByteBuffer> byteBufferZSetOps;
+
+  @Resource(name = "compactIdRedisTemplate")
+  private SetOperations<String, Long> idSetOps;
+
+  @Resource(name = "compressedRedisTemplate")
+  private ListOperations<String, String> compressedListOps;
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testByteArrayMembersArePassedThrough() {
+    byte[] key = { 'b', 'i', 'n', 0 };
+    byte[] member = { 0, (byte) 0xFF, 0x7F, (byte) 0x80 };
+    byteArraySetOps.add(key, member);
+
+    Set<byte[]> members = byteArraySetOps.members(key);
+    assertEquals(1, members.size());
+    assertArrayEquals(member, members.iterator().next());
+    assertTrue(byteArraySetOps.isMember(key, member));
+  }
+
+  @Test
+  void testByteBufferSortedSet() {
+    ByteBuffer key = ByteBuffer.wrap("binary_zset".getBytes());
+    ByteBuffer direct = ByteBuffer.allocateDirect(2).put((byte) 1).put((byte) 2).flip();
+    byteBufferZSetOps.add(key, direct, 2);
+    byteBufferZSetOps.add(key, ByteBuffer.wrap(new byte[] { 9 }), 1);
+
+    assertEquals(List.of(ByteBuffer.wrap(new byte[] { 9 }), ByteBuffer.wrap(new byte[] { 1, 2 })),
+        List.copyOf(byteBufferZSetOps.range(key, 0, -1)));
+    assertEquals(0, direct.position());
+  }
+
+  @Test
+  void testCompactIdsAreVarints() {
+    idSetOps.add("compact_ids", 1L, 300L, -5L, Long.MAX_VALUE);
+
+    assertEquals(Set.of(1L, 300L, -5L, Long.MAX_VALUE), idSetOps.members("compact_ids"));
+    // 300 zig-zags to 600, stored as the two bytes 0xD8 0x04
+    assertTrue(template.execute((RedisCallback<Boolean>) connection -> connection.setCommands()
+        .sIsMember("compact_ids".getBytes(), new byte[] { (byte) 0xD8, 0x04 })));
+    assertEquals(10, VarintLongRedisSerializer.INSTANCE.serialize(Long.MIN_VALUE).length);
+    for (long id : new long[] { 0, 63, 64, -64, -65, 8191, Long.MIN_VALUE, Long.MAX_VALUE }) {
+      assertEquals(id, VarintLongRedisSerializer.INSTANCE
+          .deserialize(VarintLongRedisSerializer.INSTANCE.serialize(id)));
+    }
+  }
+
+  @Test
+  void testLargeListPayloadsAreCompressed() {
+    String small = "small";
+    String large = "payload ".repeat(200);
+    compressedListOps.rightPushAll("compressed_list", small, large);
+
+    assertEquals(List.of(small, large), compressedListOps.range("compressed_list", 0, -1));
+    assertEquals(1, compressedListOps.remove("compressed_list", 0, large));
+
+    CompressingRedisSerializer<String> serializer = new CompressingRedisSerializer<>(RedisSerializer.string(), 16);
+    byte[] stored = serializer.serialize(large);
+    assertEquals(1, stored[0]);
+    assertTrue(stored.length < large.length() / 4);
+    assertEquals(0, serializer.serialize(small)[0]);
+
+    CompressingRedisSerializer<String> always = new CompressingRedisSerializer<>(RedisSerializer.string(), 0);
+    for (String tiny : new String[] { "", "a", "abc", "abcd" }) {
+      assertArrayEquals(("\0" + tiny).getBytes(), always.serialize(tiny));
+      assertEquals(tiny, always.deserialize(always.serialize(tiny)));
+    }
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
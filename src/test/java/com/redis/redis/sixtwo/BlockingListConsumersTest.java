@@ -0,0 +1,163 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.protocol.ProtocolVersion;
+
+@SpringBootTest(classes = BlockingListConsumersTest.Config.class)
+class BlockingListConsumersTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  private RedisClient client;
+
+  @BeforeEach
+  void setUp() {
+    client = RedisClient.create(RedisURI.create(REDIS.getHost(), REDIS.getPort()));
+    client.setOptions(ClientOptions.builder().protocolVersion(ProtocolVersion.RESP2).build());
+  }
+
+  @AfterEach
+  void tearDown() {
+    client.shutdown();
+  }
+
+  @Test
+  void testEveryListHasItsOwnConsumer() throws InterruptedException {
+    assertEveryListIsConsumed(ThreadMode.PLATFORM, "inbox");
+  }
+
+  @Test
+  void testVirtualThreads() throws InterruptedException {
+    Assumptions.assumeTrue(ThreadMode.virtualThreadsAvailable(), "needs Java 21");
+    assertEveryListIsConsumed(ThreadMode.VIRTUAL, "mailbox");
+  }
+
+  @Test
+  void testItemsAreConsumedInTheOrderTheyWerePushed() throws InterruptedException {
+    Queue<String> handled = new ConcurrentLinkedQueue<>();
+    CountDownLatch done = new CountDownLatch(3);
+    BlockingListConsumers consumers = BlockingListConsumers.builder(client, "ordered", (list, item) -> {
+      handled.add(item);
+      done.countDown();
+    }).lists("tasks").build();
+
+    template.opsForList().leftPushAll("tasks", "first", "second", "third");
+    consumers.start();
+    try {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      consumers.close();
+    }
+
+    assertEquals(List.of("first", "second", "third"), List.copyOf(handled));
+  }
+
+  @Test
+  void testFailedItemsGoBackOntoTheirList() throws InterruptedException {
+    AtomicBoolean failed = new AtomicBoolean();
+    CountDownLatch done = new CountDownLatch(1);
+    BlockingListConsumers consumers = BlockingListConsumers.builder(client, "retries", (list, item) -> {
+      if (failed.compareAndSet(false, true)) {
+        throw new IllegalStateException("first attempt fails");
+      }
+      done.countDown();
+    }).lists("jobs").processingSuffix(":processing").build();
+
+    template.opsForList().leftPush("jobs", "resize");
+    consumers.start();
+    try {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      consumers.close();
+    }
+
+    assertEquals(2, consumers.metrics().getReceived());
+    assertEquals(1, consumers.metrics().getFailures());
+    assertEquals(0, template.opsForList().size("jobs"));
+    assertEquals(0, template.opsForList().size("jobs:processing"));
+  }
+
+  private void assertEveryListIsConsumed(ThreadMode threadMode, String prefix) throws InterruptedException {
+    int lists = 20;
+    String[] keys = new String[lists];
+    for (int i = 0; i < lists; i++) {
+      keys[i] = prefix + ":" + i;
+    }
+    Map<String, String> handled = new ConcurrentHashMap<>();
+    CountDownLatch done = new CountDownLatch(lists);
+    BlockingListConsumers consumers = BlockingListConsumers.builder(client, prefix, (list, item) -> {
+      handled.put(list, item);
+      done.countDown();
+    }).lists(keys).threadMode(threadMode).build();
+
+    consumers.start();
+    try {
+      for (String key : keys) {
+        template.opsForList().leftPush(key, "hello " + key);
+      }
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      consumers.close();
+    }
+
+    for (String key : List.of(keys)) {
+      assertEquals("hello " + key, handled.get(key));
+    }
+    assertEquals(lists, consumers.metrics().getHandled());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
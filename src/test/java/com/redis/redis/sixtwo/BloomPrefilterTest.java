@@ -0,0 +1,120 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = BloomPrefilterTest.Config.class)
+class BloomPrefilterTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = TestRedis.containerOnly();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testAbsentMembersSkipTheRoundTrip() {
+    for (int i = 0; i < 1000; i++) {
+      template.opsForSet().add("blocked_ips", "10.0.0." + i);
+    }
+
+    try (BloomPrefilter prefilter = BloomPrefilter.builder(template, "blocked_ips").build().start()) {
+      Map<String, Boolean> found = prefilter.isMember("10.0.0.7", "192.168.0.1");
+      assertTrue(found.get("10.0.0.7"));
+      assertFalse(found.get("192.168.0.1"));
+
+      for (int i = 0; i < 1000; i++) {
+        assertFalse(prefilter.isMember("172.16.0." + i));
+      }
+
+      BloomPrefilter.Metrics metrics = prefilter.metrics();
+      // 1% target, so well over 950 of the 1000 misses answered locally
+      assertTrue(metrics.getSkippedRoundTrips() > 950, metrics.toString());
+      assertEquals(metrics.getLookups() - metrics.getDefiniteNegatives(), 1 + metrics.getFalsePositives());
+      assertTrue(metrics.getFilterBytes() > 0);
+    }
+  }
+
+  @Test
+  void testAddedMembersAreSeenAfterTheirNotification() throws InterruptedException {
+    template.opsForSet().add("denied_users", "mallory");
+
+    try (BloomPrefilter prefilter = BloomPrefilter.builder(template, "denied_users")
+        .configureNotifications(true)
+        .build()
+        .start()) {
+      assertFalse(prefilter.isMember("eve"));
+
+      template.opsForSet().add("denied_users", "eve");
+      await(() -> prefilter.metrics().getRebuilds() > 1 && !prefilter.metrics().isStale());
+
+      assertTrue(prefilter.isMember("eve"));
+      assertTrue(prefilter.isMember("mallory"));
+    }
+  }
+
+  @Test
+  void testDeletedKeyEmptiesTheFilter() throws InterruptedException {
+    template.opsForSet().add("revoked_tokens", "t1", "t2");
+
+    try (BloomPrefilter prefilter = BloomPrefilter.builder(template, "revoked_tokens")
+        .configureNotifications(true)
+        .build()
+        .start()) {
+      assertTrue(prefilter.isMember("t1"));
+
+      template.delete("revoked_tokens");
+      await(() -> !prefilter.isMember("t1") && prefilter.metrics().getSkippedRoundTrips() > 0);
+
+      assertFalse(prefilter.isMember("t2"));
+    }
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = BulkLoaderTest.Config.class)
+class BulkLoaderTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testLoadsSortedSetsInChunks() {
+    BulkLoader loader = new BulkLoader(template, 100, 3);
+    Stream<BulkLoader.Row> rows = IntStream.range(0, 2500)
+        .mapToObj(i -> BulkLoader.Row.scored("bulk_game" + (i % 3), "player-" + i, i));
+
+    BulkLoader.Result result = loader.loadSortedSets(rows);
+
+    assertEquals(2500, result.getRows());
+    assertEquals(25, result.getChunks());
+    assertEquals(834, template.opsForZSet().zCard("bulk_game0"));
+    assertEquals(833, template.opsForZSet().zCard("bulk_game2"));
+    assertEquals(2499.0, template.opsForZSet().score("bulk_game0", "player-2499"));
+  }
+
+  @Test
+  void testLastScoreWinsWithPipelinesInFlight() {
+    BulkLoader loader = new BulkLoader(template, 10, 4);
+    Stream<BulkLoader.Row> rows = IntStream.range(0, 2000)
+        .mapToObj(i -> BulkLoader.Row.scored("bulk_scores" + (i % 3), "player-" + (i % 7), i));
+
+    loader.loadSortedSets(rows);
+
+    for (int k = 0; k < 3; k++) {
+      for (int p = 0; p < 7; p++) {
+        int player = p;
+        int key = k;
+        int last = IntStream.range(0, 2000).filter(i -> i % 3 == key && i % 7 == player).max().getAsInt();
+        assertEquals((double) last, template.opsForZSet().score("bulk_scores" + k, "player-" + p));
+      }
+    }
+  }
+
+  @Test
+  void testLoadsListsInSourceOrder() {
+    BulkLoader loader = new BulkLoader(template, 7, 1);
+    List<String> words = List.of("Shenanigans", "Bamboozle", "Bodacious", "Bumfuzzle", "Brouhaha",
+        "Flibbertigibbet", "Gobbledygook", "Hullabaloo", "Kerfuffle", "Malarkey");
+
+    loader.loadLists(words.stream().map(word -> BulkLoader.Row.of("bulk_funny_words", word)));
+
+    assertEquals(words, template.opsForList().range("bulk_funny_words", 0, -1));
+  }
+
+  @Test
+  void testKeepsSourceOrderWithPipelinesInFlight() {
+    BulkLoader loader = new BulkLoader(template, 10, 4);
+    Stream<BulkLoader.Row> rows = IntStream.range(0, 3000)
+        .mapToObj(i -> BulkLoader.Row.of("bulk_queue" + (i % 5), String.valueOf(i)));
+
+    loader.loadLists(rows);
+
+    for (int k = 0; k < 5; k++) {
+      int key = k;
+      List<String> expected = IntStream.range(0, 3000).filter(i -> i % 5 == key).mapToObj(String::valueOf)
+          .collect(Collectors.toList());
+      assertEquals(expected, template.opsForList().range("bulk_queue" + k, 0, -1));
+    }
+  }
+
+  @Test
+  void testStreamsSetsFromAFile(@TempDir Path dir) throws IOException {
+    Path file = dir.resolve("colors.csv");
+    Files.write(file, IntStream.range(0, 1000).mapToObj(i -> "bulk_colors,color-" + i).collect(Collectors.toList()));
+
+    BulkLoader loader = new BulkLoader(template);
+    try (Stream<BulkLoader.Row> rows = BulkLoader.rows(file)) {
+      assertEquals(1000, loader.loadSets(rows).getRows());
+    }
+    assertEquals(1000, template.opsForSet().size("bulk_colors"));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
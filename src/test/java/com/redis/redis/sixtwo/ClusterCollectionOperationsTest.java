@@ -0,0 +1,146 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
+import org.springframework.data.redis.connection.RedisZSetCommands.Weights;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import io.lettuce.core.ClientOptions;
+
+/**
+ * Runs against a single node with slot planning forced on, so keys in different slots take the
+ * fallback path and can be checked against the native command.
+ */
+@SpringBootTest(classes = ClusterCollectionOperationsTest.Config.class)
+class ClusterCollectionOperationsTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource(name = "stringRedisTemplate")
+  private ZSetOperations<String, String> zSetOps;
+
+  @Test
+  void testPlansBySlot() {
+    try (ClusterCollectionOperations ops = new ClusterCollectionOperations(template, true, 2)) {
+      assertTrue(ops.sameSlot(List.of(ClusterCollectionOperations.hashTag("game1", "tournament"),
+          ClusterCollectionOperations.hashTag("game2", "tournament"))));
+      assertNotEquals(ClusterCollectionOperations.slot("cluster_game1"), ClusterCollectionOperations.slot("cluster_game2"));
+      assertFalse(ops.sameSlot(List.of("cluster_game1", "cluster_game2")));
+    }
+    try (ClusterCollectionOperations ops = new ClusterCollectionOperations(template)) {
+      assertTrue(ops.sameSlot(List.of("cluster_game1", "cluster_game2")));
+    }
+  }
+
+  @Test
+  void testFallbacksMatchNativeCommands() {
+    zSetOps.add("cluster_game1", "Frank", 10);
+    zSetOps.add("cluster_game1", "Jan", 20);
+    zSetOps.add("cluster_game1", "Emma", 30);
+    zSetOps.add("cluster_game2", "Jan", 5);
+    zSetOps.add("cluster_game2", "Emma", 50);
+    zSetOps.add("cluster_game2", "Sam", 7);
+    zSetOps.add("cluster_game3", "Emma", 1);
+    Set<String> others = Set.of("cluster_game2");
+    Weights weights = Weights.of(2, 0.5);
+
+    try (ClusterCollectionOperations ops = new ClusterCollectionOperations(template, true, 2)) {
+      assertEquals(scores(zSetOps.intersectWithScores("cluster_game1", others)),
+          scores(ops.intersectWithScores("cluster_game1", others)));
+      assertEquals(scores(zSetOps.intersectWithScores("cluster_game1", others, Aggregate.MAX, weights)),
+          scores(ops.intersectWithScores("cluster_game1", others, Aggregate.MAX, weights)));
+      assertEquals(scores(zSetOps.unionWithScores("cluster_game1", List.of("cluster_game2", "cluster_game3"))),
+          scores(ops.unionWithScores("cluster_game1", List.of("cluster_game2", "cluster_game3"))));
+      assertEquals(scores(zSetOps.unionWithScores("cluster_game1", others, Aggregate.MIN, weights)),
+          scores(ops.unionWithScores("cluster_game1", others, Aggregate.MIN, weights)));
+      assertEquals(scores(zSetOps.differenceWithScores("cluster_game1", others)),
+          scores(ops.differenceWithScores("cluster_game1", others)));
+
+      assertEquals(1, ops.differenceAndStore("cluster_game1", others, "cluster_out"));
+      assertEquals(Map.of("Frank", 10.0), scores(zSetOps.rangeWithScores("cluster_out", 0, -1)));
+
+      assertEquals(0, ops.getNativeCalls());
+      assertEquals(7, ops.getFallbackCalls());
+    }
+  }
+
+  @Test
+  void testSameSlotKeysRunNatively() {
+    String game1 = ClusterCollectionOperations.hashTag("game1", "native");
+    String game2 = ClusterCollectionOperations.hashTag("game2", "native");
+    zSetOps.add(game1, "Frank", 10);
+    zSetOps.add(game2, "Frank", 5);
+
+    try (ClusterCollectionOperations ops = new ClusterCollectionOperations(template, true, 2)) {
+      assertEquals(Map.of("Frank", 15.0), scores(ops.intersectWithScores(game1, Set.of(game2))));
+      assertEquals(1, ops.getNativeCalls());
+      assertEquals(0, ops.getFallbackCalls());
+    }
+  }
+
+  @Test
+  void testMoveAcrossSlots() {
+    template.opsForList().rightPushAll("cluster_list_one", "one", "two", "three");
+
+    try (ClusterCollectionOperations ops = new ClusterCollectionOperations(template, true, 2)) {
+      assertEquals("three", ops.move("cluster_list_one", RIGHT, "cluster_list_two", LEFT));
+      assertEquals("one", ops.move("cluster_list_one", LEFT, "cluster_list_two", RIGHT));
+      assertEquals(2, ops.getFallbackCalls());
+    }
+    assertEquals(List.of("two"), template.opsForList().range("cluster_list_one", 0, -1));
+    assertEquals(List.of("three", "one"), template.opsForList().range("cluster_list_two", 0, -1));
+  }
+
+  private static Map<String, Double> scores(Set<TypedTuple<String>> tuples) {
+    return tuples.stream().collect(Collectors.toMap(TypedTuple::getValue, TypedTuple::getScore));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
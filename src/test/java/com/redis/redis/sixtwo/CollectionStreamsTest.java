@@ -0,0 +1,107 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = CollectionStreamsTest.Config.class)
+class CollectionStreamsTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testStreamsSetMembers() {
+    String[] colors = IntStream.range(0, 1000).mapToObj(i -> "color-" + i).toArray(String[]::new);
+    template.opsForSet().add("streams_colors", colors);
+
+    try (CollectionStreams streams = new CollectionStreams(template, 50, true);
+        Stream<String> members = streams.members("streams_colors")) {
+      // SSCAN may return a member twice, so compare as sets
+      assertEquals(Set.of(colors), members.collect(Collectors.toSet()));
+    }
+  }
+
+  @Test
+  void testStreamsScoredMembers() {
+    IntStream.range(0, 500).forEach(i -> template.opsForZSet().add("streams_scores", "player-" + i, i));
+
+    try (CollectionStreams streams = new CollectionStreams(template, 64, false)) {
+      Set<String> seen = streams.scoredMembers("streams_scores") //
+          .peek(tuple -> assertEquals(Double.parseDouble(tuple.getValue().substring(7)), tuple.getScore())) //
+          .map(TypedTuple::getValue) //
+          .collect(Collectors.toSet());
+      assertEquals(500, seen.size());
+    }
+  }
+
+  @Test
+  void testStreamsByRankInOrder() {
+    IntStream.range(0, 250).forEach(i -> template.opsForZSet().add("streams_ranks", "player-" + i, i));
+
+    try (CollectionStreams streams = new CollectionStreams(template, 100, true)) {
+      List<Double> ascending = streams.byRank("streams_ranks", false) //
+          .map(TypedTuple::getScore) //
+          .collect(Collectors.toList());
+      assertEquals(IntStream.range(0, 250).asDoubleStream().boxed().collect(Collectors.toList()), ascending);
+
+      List<String> topThree = streams.byRank("streams_ranks", true) //
+          .limit(3) //
+          .map(TypedTuple::getValue) //
+          .collect(Collectors.toList());
+      assertEquals(List.of("player-249", "player-248", "player-247"), topThree);
+    }
+  }
+
+  @Test
+  void testMissingKeyIsEmpty() {
+    try (CollectionStreams streams = new CollectionStreams(template, 10, true)) {
+      assertEquals(0, streams.members("streams_missing").count());
+      assertEquals(0, streams.byRank("streams_missing", false).count());
+    }
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
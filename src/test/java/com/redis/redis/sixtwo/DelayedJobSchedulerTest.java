@@ -0,0 +1,190 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = DelayedJobSchedulerTest.Config.class)
+class DelayedJobSchedulerTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testJobsReachTheReliableQueueWhenDue() throws InterruptedException {
+    BlockingQueue<String> handled = new LinkedBlockingQueue<>();
+    ReliableQueue queue = ReliableQueue.builder(template, "reminders", handled::add).fetchers(1).build();
+    DelayedJobScheduler scheduler = DelayedJobScheduler.builder(template, "reminders")
+        .maxPollInterval(Duration.ofSeconds(5))
+        .build();
+    queue.start();
+    scheduler.start();
+    try {
+      long started = System.currentTimeMillis();
+      scheduler.schedule("later", Duration.ofMillis(300));
+      scheduler.schedule("now", Instant.now());
+
+      assertEquals("now", handled.poll(5, TimeUnit.SECONDS));
+      assertEquals("later", handled.poll(5, TimeUnit.SECONDS));
+      // scheduled on this node, so the poller woke up for it instead of sleeping 5s
+      long elapsed = System.currentTimeMillis() - started;
+      assertTrue(elapsed >= 300 && elapsed < 3000, "took " + elapsed + "ms");
+    } finally {
+      scheduler.close();
+      queue.close();
+    }
+
+    assertEquals(2, scheduler.metrics().getDispatched());
+    assertEquals(0, template.opsForZSet().size(scheduler.getScheduledKey()));
+    assertTrue(template.keys("reminders:claimed:*").isEmpty());
+  }
+
+  @Test
+  void testBacklogIsMovedInBatchesOldestFirst() throws InterruptedException {
+    DelayedJobScheduler scheduler = DelayedJobScheduler.builder(template, "backlog").batchSize(10).build();
+    Map<String, Instant> jobs = new LinkedHashMap<>();
+    Instant past = Instant.now().minusSeconds(60);
+    for (int i = 0; i < 25; i++) {
+      jobs.put("job-" + i, past.plusMillis(i));
+    }
+    scheduler.scheduleAll(jobs);
+    scheduler.schedule("future", Instant.now().plusSeconds(60));
+
+    scheduler.start();
+    try {
+      for (int i = 0; i < 50 && template.opsForList().size(scheduler.getReadyKey()) < 25; i++) {
+        Thread.sleep(100);
+      }
+    } finally {
+      scheduler.close();
+    }
+
+    assertEquals(25, template.opsForList().size(scheduler.getReadyKey()));
+    // consumers take from the tail
+    assertEquals("job-0", template.opsForList().rightPop(scheduler.getReadyKey()));
+    assertEquals(3, scheduler.metrics().getBatches());
+    assertTrue(scheduler.metrics().getAverageLagMillis() >= 60_000);
+    assertEquals(1, template.opsForZSet().size(scheduler.getScheduledKey()));
+  }
+
+  @Test
+  void testCancelledJobsAreNotDispatched() throws InterruptedException {
+    DelayedJobScheduler scheduler = DelayedJobScheduler.builder(template, "cancelled").build();
+    scheduler.start();
+    try {
+      scheduler.schedule("job", Duration.ofMillis(200));
+      assertTrue(scheduler.cancel("job"));
+      Thread.sleep(400);
+      assertFalse(scheduler.cancel("job"));
+    } finally {
+      scheduler.close();
+    }
+    assertNull(template.opsForList().rightPop(scheduler.getReadyKey()));
+  }
+
+  @Test
+  void testClaimsLeftByARestartedNodeAreRecovered() throws InterruptedException {
+    template.opsForZSet().add("recovered:claimed:node-a", "orphan", System.currentTimeMillis() - 1000);
+
+    DelayedJobScheduler scheduler = DelayedJobScheduler.builder(template, "recovered").nodeId("node-a").build();
+    scheduler.start();
+    try {
+      for (int i = 0; i < 50 && template.opsForList().size(scheduler.getReadyKey()) == 0; i++) {
+        Thread.sleep(100);
+      }
+    } finally {
+      scheduler.close();
+    }
+
+    assertEquals("orphan", template.opsForList().rightPop(scheduler.getReadyKey()));
+    assertFalse(template.hasKey("recovered:claimed:node-a"));
+  }
+
+  @Test
+  void testJobsOfAFailedDispatchAreNotLost() throws InterruptedException {
+    // LPUSH onto a string fails inside the dispatch MULTI
+    template.opsForValue().set("failing:ready", "not a list");
+    Map<String, Instant> jobs = new LinkedHashMap<>();
+    for (int i = 0; i < 5; i++) {
+      jobs.put("job-" + i, Instant.now().minusSeconds(1));
+    }
+
+    DelayedJobScheduler failing = DelayedJobScheduler.builder(template, "failing").readyKey("failing:ready")
+        .nodeId("node-a").batchSize(2).build();
+    failing.scheduleAll(jobs);
+    failing.start();
+    try {
+      // more than one failure: the claim of the first one must not be overwritten by the next
+      for (int i = 0; i < 50 && failing.metrics().getFailures() < 3; i++) {
+        Thread.sleep(100);
+      }
+    } finally {
+      failing.close();
+    }
+    assertTrue(failing.metrics().getFailures() >= 3);
+    assertEquals(0, failing.metrics().getDispatched());
+    assertEquals(5, template.opsForZSet().size("failing:scheduled")
+        + template.opsForZSet().size("failing:claimed:node-a"));
+
+    template.delete("failing:ready");
+    DelayedJobScheduler scheduler = DelayedJobScheduler.builder(template, "failing").readyKey("failing:ready")
+        .nodeId("node-a").batchSize(2).build();
+    scheduler.start();
+    try {
+      for (int i = 0; i < 50 && template.opsForList().size("failing:ready") < 5; i++) {
+        Thread.sleep(100);
+      }
+    } finally {
+      scheduler.close();
+    }
+    assertEquals(jobs.keySet(), Set.copyOf(template.opsForList().range("failing:ready", 0, -1)));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
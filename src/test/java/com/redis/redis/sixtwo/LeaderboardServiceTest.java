@@ -0,0 +1,120 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = LeaderboardServiceTest.Config.class)
+class LeaderboardServiceTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @BeforeEach
+  void setUp() {
+    // ZADD game1 100 "Frank" 740 "Jennifer" 200 "Pieter" 512 "Dave" 690 "Ana"
+    template.opsForZSet().add("game1", Set.of( //
+        TypedTuple.of("Frank", 100.0), TypedTuple.of("Jennifer", 740.0),
+        TypedTuple.of("Pieter", 200.0), TypedTuple.of("Dave", 512.0),
+        TypedTuple.of("Ana", 690.0)));
+  }
+
+  @Test
+  void testTopAndAroundMe() {
+    try (LeaderboardService leaderboard = new LeaderboardService(template)) {
+      // ZRANGE game1 0 1 REV WITHSCORES
+      List<LeaderboardService.Entry> top = leaderboard.top("game1", 2);
+      assertEquals(List.of("Jennifer", "Ana"), members(top));
+      assertEquals(740.0, top.get(0).getScore());
+
+      // ZREVRANK game1 Dave, ZRANGE game1 1 3 REV WITHSCORES
+      List<LeaderboardService.Entry> aroundDave = leaderboard.aroundMe("game1", "Dave", 1);
+      assertEquals(List.of("Ana", "Dave", "Pieter"), members(aroundDave));
+      assertEquals(2, aroundDave.get(1).getRank());
+
+      assertEquals(List.of("Jennifer", "Ana"), members(leaderboard.aroundMe("game1", "Jennifer", 1)));
+      assertTrue(leaderboard.aroundMe("game1", "Nobody", 1).isEmpty());
+      assertTrue(leaderboard.top("game1", 0).isEmpty());
+      assertThrows(IllegalArgumentException.class, () -> leaderboard.top("game1", -1));
+    }
+  }
+
+  @Test
+  void testScoreBandPages() {
+    try (LeaderboardService leaderboard = new LeaderboardService(template)) {
+      // ZRANGE game1 700 150 BYSCORE REV LIMIT 0 2 WITHSCORES
+      assertEquals(List.of("Ana", "Dave"), members(leaderboard.scoreBand("game1", 150, 700, 0, 2)));
+      assertEquals(List.of("Pieter"), members(leaderboard.scoreBand("game1", 150, 700, 2, 2)));
+    }
+  }
+
+  @Test
+  void testSnapshots() throws InterruptedException {
+    try (LeaderboardService leaderboard = new LeaderboardService(template)) {
+      // ZRANGESTORE game1:top3:building:<uuid> game1 0 2 REV, RENAME game1:top3:building:<uuid> game1:top3
+      assertEquals(3, leaderboard.refreshSnapshot("game1", "game1:top3", 3));
+      assertThrows(IllegalArgumentException.class, () -> leaderboard.refreshSnapshot("game1", "game1:top3", 0));
+      assertTrue(template.keys("game1:top3:building:*").isEmpty());
+      assertEquals(List.of("Jennifer", "Ana", "Dave"), members(leaderboard.top("game1:top3", 10)));
+
+      leaderboard.snapshot("game1", "game1:top3", 3, Duration.ofMillis(50));
+      template.opsForZSet().add("game1", "Zed", 999);
+
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!"Zed".equals(leaderboard.top("game1:top3", 1).get(0).getMember())
+          && System.currentTimeMillis() < deadline) {
+        Thread.sleep(20);
+      }
+      assertEquals(List.of("Zed", "Jennifer", "Ana"), members(leaderboard.top("game1:top3", 10)));
+    }
+  }
+
+  private static List<String> members(List<LeaderboardService.Entry> entries) {
+    return entries.stream().map(LeaderboardService.Entry::getMember).collect(Collectors.toList());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,108 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ListOperations;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ListBatchConsumerTest.Config.class)
+class ListBatchConsumerTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private ListOperations<String, String> listOps;
+
+  @Test
+  void testDrainsInGrowingBatches() throws InterruptedException {
+    List<String> jobs = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      jobs.add("job-" + i);
+    }
+    listOps.rightPushAll("jobs", jobs);
+
+    Queue<String> handled = new ConcurrentLinkedQueue<>();
+    CountDownLatch done = new CountDownLatch(jobs.size());
+    ListBatchConsumer consumer = ListBatchConsumer.builder(listOps, "jobs", batch -> {
+      handled.addAll(batch);
+      batch.forEach(item -> done.countDown());
+    }).maxBatchSize(64).workers(2).build();
+
+    consumer.start();
+    try {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      consumer.close();
+    }
+
+    assertEquals(jobs.size(), handled.size());
+    assertTrue(handled.containsAll(jobs));
+    assertEquals(0, listOps.size("jobs"));
+
+    ListBatchConsumer.Metrics metrics = consumer.metrics();
+    assertEquals(500, metrics.getItems());
+    assertTrue(metrics.getBatches() < 500);
+    assertTrue(metrics.getAverageBatchSize() > 1);
+  }
+
+  @Test
+  void testFailingHandlerDoesNotStopTheConsumer() throws InterruptedException {
+    listOps.rightPushAll("flaky", "one", "two", "three");
+
+    CountDownLatch calls = new CountDownLatch(2);
+    ListBatchConsumer consumer = ListBatchConsumer.builder(listOps, "flaky", batch -> {
+      calls.countDown();
+      throw new IllegalStateException("boom");
+    }).workers(1).build();
+
+    consumer.start();
+    try {
+      assertTrue(calls.await(10, TimeUnit.SECONDS));
+    } finally {
+      consumer.close();
+    }
+    assertTrue(consumer.metrics().getFailures() >= 2);
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
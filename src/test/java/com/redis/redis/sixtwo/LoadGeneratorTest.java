@@ -0,0 +1,130 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.redis.redis.sixtwo.LoadGenerator.Operation;
+import com.redis.redis.sixtwo.LoadGenerator.Result;
+import com.redis.redis.sixtwo.LoadGeneratorProperties.Format;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = LoadGeneratorTest.Config.class)
+class LoadGeneratorTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testRunsEveryOperationOfTheMixAtTheTargetRate(@TempDir Path output) throws Exception {
+    LoadGeneratorProperties properties = properties();
+    LoadGenerator generator = new LoadGenerator(template, properties);
+    generator.populate();
+
+    LoadGenerator.Report report = generator.run();
+
+    assertEquals(Operation.values().length, report.getResults().size());
+    long total = 0;
+    for (Result result : report.getResults()) {
+      assertTrue(result.getCount() > 0, result.toString());
+      assertEquals(0, result.getErrors(), result.toString());
+      assertTrue(result.latencyAt(99) >= result.serviceTimeAt(50), result.toString());
+      total += result.getCount();
+    }
+    // 400/s for 2s after the warmup
+    assertEquals(800, total);
+    // pops are pushed back and moves stay within the lists
+    long items = 0;
+    for (int k = 0; k < properties.getKeys(); k++) {
+      items += template.opsForList().size("loadgen:list:" + k);
+    }
+    assertEquals((long) properties.getKeys() * properties.getMembers(), items);
+
+    assertReportFiles(report.write(output, EnumSet.allOf(Format.class)));
+  }
+
+  @Test
+  void testZeroWeightLeavesAnOperationOut() throws InterruptedException {
+    LoadGeneratorProperties properties = properties();
+    properties.setMix(Map.of(Operation.SMISMEMBER, 3, Operation.ZMSCORE, 1, Operation.ZDIFF, 0));
+    properties.setDuration(Duration.ofMillis(500));
+    LoadGenerator generator = new LoadGenerator(template, properties);
+    generator.populate();
+
+    List<Result> results = generator.run().getResults();
+
+    assertEquals(2, results.size());
+    assertEquals(Operation.SMISMEMBER, results.get(0).getOperation());
+    assertTrue(results.get(0).getCount() > results.get(1).getCount());
+  }
+
+  private static LoadGeneratorProperties properties() {
+    LoadGeneratorProperties properties = new LoadGeneratorProperties();
+    properties.setKeys(10);
+    properties.setMembers(50);
+    properties.setRate(400);
+    properties.setConcurrency(4);
+    properties.setWarmup(Duration.ofMillis(250));
+    properties.setDuration(Duration.ofSeconds(2));
+    return properties;
+  }
+
+  private static void assertReportFiles(List<Path> files) throws IOException {
+    assertEquals(2, files.size());
+    List<String> csv = Files.readAllLines(files.get(0));
+    assertTrue(csv.get(0).startsWith("operation,count,errors,throughput,latencyMicros.mean"), csv.get(0));
+    assertEquals(1 + Operation.values().length, csv.size());
+
+    JsonNode json = new ObjectMapper().readTree(files.get(1).toFile());
+    assertEquals(400, json.get("settings").get("rate").asInt());
+    assertEquals(Operation.values().length, json.get("operations").size());
+    assertTrue(json.get("operations").get(0).get("latencyMicros").has("p99"));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
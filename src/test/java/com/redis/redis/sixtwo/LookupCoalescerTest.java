@@ -0,0 +1,116 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = LookupCoalescerTest.Config.class)
+class LookupCoalescerTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private SetOperations<String, String> setOps;
+
+  @Resource(name = "stringRedisTemplate")
+  private ZSetOperations<String, String> zSetOps;
+
+  @Test
+  void testConcurrentIsMemberCallsShareOneSMISMEMBER() {
+    setOps.add("coalesced_colors", "red", "yellow", "green", "fushia");
+
+    try (LookupCoalescer coalescer = LookupCoalescer.builder(setOps, zSetOps) //
+        .window(Duration.ofMillis(50)) //
+        .maxBatchSize(100) //
+        .build()) {
+      CompletableFuture<Boolean> red = coalescer.isMember("coalesced_colors", "red");
+      CompletableFuture<Boolean> black = coalescer.isMember("coalesced_colors", "black");
+      CompletableFuture<Boolean> green = coalescer.isMember("coalesced_colors", "green");
+
+      assertTrue(red.join());
+      assertFalse(black.join());
+      assertTrue(green.join());
+
+      assertEquals(3, coalescer.metrics().getLookups());
+      assertEquals(1, coalescer.metrics().getBatches());
+    }
+  }
+
+  @Test
+  void testFullBatchesAreSentWithoutWaitingForTheWindow() {
+    zSetOps.add("coalesced_zset", "one", 1);
+    zSetOps.add("coalesced_zset", "two", 2);
+
+    try (LookupCoalescer coalescer = LookupCoalescer.builder(setOps, zSetOps) //
+        .window(Duration.ofSeconds(30)) //
+        .maxBatchSize(3) //
+        .build()) {
+      List<CompletableFuture<Double>> scores = new ArrayList<>();
+      for (String member : List.of("one", "two", "nofield")) {
+        scores.add(coalescer.score("coalesced_zset", member));
+      }
+
+      assertEquals(1.0, scores.get(0).join());
+      assertEquals(2.0, scores.get(1).join());
+      assertNull(scores.get(2).join());
+      assertEquals(3.0, coalescer.metrics().getAverageBatchSize());
+    }
+  }
+
+  @Test
+  void testLookupsAfterCloseFailFast() {
+    LookupCoalescer coalescer = LookupCoalescer.builder(setOps, zSetOps).build();
+    coalescer.close();
+
+    CompletableFuture<Boolean> late = coalescer.isMember("coalesced_colors", "red");
+
+    assertTrue(late.isCompletedExceptionally());
+    CompletionException e = assertThrows(CompletionException.class, late::join);
+    assertTrue(e.getCause() instanceof IllegalStateException);
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,113 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = MembershipFanOutTest.Config.class)
+class MembershipFanOutTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource(name = "stringRedisTemplate")
+  private SetOperations<String, String> setOps;
+
+  @Test
+  void testIsMemberAcrossKeys() {
+    setOps.add("fanout_colors", "red", "yellow", "green");
+    setOps.add("fanout_numbers", "one", "two");
+
+    Map<String, List<String>> lookups = new LinkedHashMap<>();
+    lookups.put("fanout_colors", List.of("red", "black", "green"));
+    lookups.put("fanout_numbers", List.of("two", "three"));
+    lookups.put("fanout_missing", List.of("red"));
+
+    Map<String, Map<String, Boolean>> result = new MembershipFanOut(template).isMember(lookups);
+
+    assertEquals(List.of("fanout_colors", "fanout_numbers", "fanout_missing"), new ArrayList<>(result.keySet()));
+    assertEquals(Map.of("red", true, "black", false, "green", true), result.get("fanout_colors"));
+    assertEquals(Map.of("two", true, "three", false), result.get("fanout_numbers"));
+    assertEquals(Map.of("red", false), result.get("fanout_missing"));
+  }
+
+  @Test
+  void testLongMemberListsAreSplitIntoChunks() {
+    List<String> members = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      members.add("member-" + i);
+      if (i % 2 == 0) {
+        setOps.add("fanout_chunked", "member-" + i);
+      }
+    }
+
+    Map<String, Boolean> result = new MembershipFanOut(template, 4, Duration.ofSeconds(5))
+        .isMemberAsync(Map.of("fanout_chunked", members))
+        .join()
+        .get("fanout_chunked");
+
+    assertEquals(25, result.size());
+    for (int i = 0; i < 25; i++) {
+      assertEquals(i % 2 == 0, result.get("member-" + i));
+    }
+  }
+
+  @Test
+  void testOneMemberAgainstManyGroups() {
+    List<String> groups = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      groups.add("fanout_group:" + i);
+      setOps.add("fanout_group:" + i, i % 10 == 0 ? "alice" : "bob");
+    }
+
+    Map<String, Boolean> result = new MembershipFanOut(template).isMemberOfEach("alice", groups);
+
+    assertEquals(200, result.size());
+    assertEquals(20, result.values().stream().filter(Boolean::booleanValue).count());
+    assertTrue(result.get("fanout_group:190"));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,117 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = RandomSamplerTest.Config.class)
+class RandomSamplerTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testSamplesSetMembersInBatches() {
+    Set<String> cohorts = Set.of("control", "variant-a", "variant-b");
+    template.opsForSet().add("sampler_cohorts", cohorts.toArray(new String[0]));
+
+    try (RandomSampler sampler = RandomSampler.forSet(template, "sampler_cohorts").batchSize(100).build()) {
+      for (int i = 0; i < 1000; i++) {
+        assertTrue(cohorts.contains(sampler.sample()));
+      }
+      RandomSampler.Metrics metrics = sampler.metrics();
+      assertEquals(1000, metrics.getSamples());
+      assertTrue(metrics.getRefills() >= 1 && metrics.getRefills() <= 10, metrics.toString());
+    }
+  }
+
+  @Test
+  void testWeightedSamplesFollowScores() {
+    template.opsForZSet().add("sampler_pool", "light", 1);
+    template.opsForZSet().add("sampler_pool", "heavy", 99);
+    template.opsForZSet().add("sampler_pool", "never", 0);
+
+    try (RandomSampler sampler = RandomSampler.forSortedSet(template, "sampler_pool").batchSize(500).build()) {
+      Map<String, Integer> counts = new HashMap<>();
+      for (int i = 0; i < 5000; i++) {
+        counts.merge(sampler.sampleWeighted(), 1, Integer::sum);
+      }
+      assertTrue(counts.getOrDefault("heavy", 0) > 4500, counts.toString());
+      assertNull(counts.get("never"));
+    }
+  }
+
+  @Test
+  void testPicksUpChangesWithinMaxAge() throws InterruptedException {
+    template.opsForSet().add("sampler_changing", "old");
+
+    try (RandomSampler sampler = RandomSampler.forSet(template, "sampler_changing").batchSize(10)
+        .maxAge(Duration.ofMillis(100)).build()) {
+      assertEquals("old", sampler.sample());
+      template.opsForSet().move("sampler_changing", "old", "sampler_changing_done");
+      template.opsForSet().add("sampler_changing", "new");
+
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!"new".equals(sampler.sample()) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals("new", sampler.sample());
+    }
+  }
+
+  @Test
+  void testEmptyKey() {
+    try (RandomSampler sampler = RandomSampler.forSortedSet(template, "sampler_missing").build()) {
+      assertNull(sampler.sample());
+      assertNull(sampler.sampleWeighted());
+      assertTrue(sampler.sample(5).isEmpty());
+    }
+    try (RandomSampler sampler = RandomSampler.forSet(template, "sampler_missing").build()) {
+      assertThrows(IllegalStateException.class, sampler::sampleWeighted);
+    }
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,176 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import io.lettuce.core.ClientOptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@SpringBootTest(classes = ReactiveCollectionOperationsTest.Config.class)
+class ReactiveCollectionOperationsTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "reactiveStringRedisTemplate")
+  private ReactiveStringRedisTemplate template;
+
+  @Test
+  void testMoveAndPopCount() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template);
+    template.opsForList().rightPushAll("reactive_one", "one", "two", "three").block();
+
+    assertEquals("three", ops.move("reactive_one", RIGHT, "reactive_two", LEFT).block());
+    assertEquals(List.of("one", "two"), ops.leftPop("reactive_one", 2).collectList().block());
+    assertEquals(List.of("three"), ops.rightPop("reactive_two", 5).collectList().block());
+  }
+
+  @Test
+  void testCoalescedMembershipChecks() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template, 2, 2);
+    template.opsForSet().add("reactive_colors", "red", "yellow", "green", "fushia").block();
+
+    List<Map.Entry<String, Boolean>> checks = ops
+        .isMember("reactive_colors", Flux.just("red", "black", "green", "blue", "fushia")) //
+        .collectList() //
+        .block();
+
+    assertEquals(List.of("red", "black", "green", "blue", "fushia"),
+        checks.stream().map(Map.Entry::getKey).collect(Collectors.toList()));
+    assertTrue(checks.get(0).getValue());
+    assertFalse(checks.get(1).getValue());
+    assertTrue(checks.get(2).getValue());
+    assertFalse(checks.get(3).getValue());
+    assertTrue(checks.get(4).getValue());
+  }
+
+  @Test
+  void testCoalescedScores() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template, 2, 2);
+    template.opsForZSet().add("reactive_zset", "one", 1).block();
+    template.opsForZSet().add("reactive_zset", "two", 2).block();
+
+    List<Map.Entry<String, Double>> scores = ops.score("reactive_zset", Flux.just("one", "two", "nofield")) //
+        .collectList() //
+        .block();
+
+    assertEquals(1.0, scores.get(0).getValue());
+    assertEquals(2.0, scores.get(1).getValue());
+    assertNull(scores.get(2).getValue());
+  }
+
+  @Test
+  void testPartialBatchIsSentWithoutWaitingForTheSourceToComplete() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template, 100, 2, Duration.ofMillis(20));
+    template.opsForSet().add("reactive_slow_colors", "red").block();
+
+    // one member, then a source that stays open
+    Flux<String> members = Flux.concat(Flux.just("red"), Flux.never());
+    Map.Entry<String, Boolean> red = ops.isMember("reactive_slow_colors", members).blockFirst(Duration.ofSeconds(5));
+
+    assertEquals("red", red.getKey());
+    assertTrue(red.getValue());
+  }
+
+  @Test
+  void testPartialBatchesWaitForAThrottledDownstream() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template, 100, 2, Duration.ofMillis(10));
+    template.opsForSet().add("reactive_evens", "m0", "m2", "m4", "m6", "m8").block();
+
+    // ~120ms of members closes far more partial batches than the 2 allowed in flight, while
+    // downstream takes one entry at a time
+    Flux<String> members = Flux.interval(Duration.ofMillis(2)).onBackpressureBuffer().take(60).map(i -> "m" + i);
+    List<Map.Entry<String, Boolean>> checks = ops.isMember("reactive_evens", members) //
+        .concatMap(entry -> Mono.just(entry).delayElement(Duration.ofMillis(3)), 1) //
+        .collectList() //
+        .block(Duration.ofSeconds(10));
+
+    assertEquals(60, checks.size());
+    for (int i = 0; i < 60; i++) {
+      assertEquals("m" + i, checks.get(i).getKey());
+      assertEquals(i < 10 && i % 2 == 0, checks.get(i).getValue(), checks.get(i).getKey());
+    }
+  }
+
+  @Test
+  void testInterAndDiff() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template);
+    template.opsForZSet().add("reactive_zset1", "one", 1).block();
+    template.opsForZSet().add("reactive_zset1", "two", 2).block();
+    template.opsForZSet().add("reactive_zset1", "three", 3).block();
+    template.opsForZSet().add("reactive_zset2", "one", 1).block();
+    template.opsForZSet().add("reactive_zset2", "two", 2).block();
+
+    List<TypedTuple<String>> inter = ops.intersectWithScores("reactive_zset1", Set.of("reactive_zset2")) //
+        .collectList() //
+        .block();
+    assertArrayEquals(new Double[] { 2.0, 4.0 }, inter.stream().map(TypedTuple::getScore).toArray());
+
+    List<TypedTuple<String>> diff = ops.differenceWithScores("reactive_zset1", Set.of("reactive_zset2")) //
+        .collectList() //
+        .block();
+    assertEquals(1, diff.size());
+    assertEquals("three", diff.get(0).getValue());
+    assertEquals(3.0, diff.get(0).getScore());
+  }
+
+  @Test
+  void testScans() {
+    ReactiveCollectionOperations ops = new ReactiveCollectionOperations(template);
+    template.opsForSet().add("reactive_scan_set", "red", "yellow", "green").block();
+    template.opsForZSet().add("reactive_scan_zset", "one", 1).block();
+    template.opsForZSet().add("reactive_scan_zset", "two", 2).block();
+
+    assertEquals(Set.of("red", "yellow", "green"),
+        ops.scanMembers("reactive_scan_set", 1).collect(Collectors.toSet()).block());
+    assertEquals(Map.of("one", 1.0, "two", 2.0), ops.scanScoredMembers("reactive_scan_zset", 1) //
+        .collectMap(TypedTuple::getValue, TypedTuple::getScore) //
+        .block());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,76 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@SpringBootTest(classes = RedisConnectionConfigurationTest.Config.class, properties = {
+    "app.redis.connection.profile=pooled", "app.redis.connection.pool.max-active=4" })
+class RedisConnectionConfigurationTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @DynamicPropertySource
+  static void redisProperties(DynamicPropertyRegistry registry) {
+    registry.add("spring.redis.host", REDIS::getHost);
+    registry.add("spring.redis.port", REDIS::getPort);
+  }
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource
+  private LettuceConnectionFactory connectionFactory;
+
+  @Resource
+  private MeterRegistry meterRegistry;
+
+  @Test
+  void testPooledProfileRecordsLatencyAndPoolWait() {
+    assertFalse(connectionFactory.getShareNativeConnection());
+
+    template.opsForSet().add("profile_colors", "red", "green");
+    Map<Object, Boolean> members = template.opsForSet().isMember("profile_colors", "red", "blue");
+    assertEquals(Map.of("red", true, "blue", false), members);
+    template.opsForList().rightPushAll("profile_one", "one", "two");
+    template.opsForList().move("profile_one", LEFT, "profile_two", RIGHT);
+    assertEquals(List.of("one"), template.opsForList().range("profile_two", 0, -1));
+
+    Timer wait = meterRegistry.find("redis.pool.wait").timer();
+    assertNotNull(wait);
+    assertTrue(wait.count() >= 4);
+
+    // Lettuce records completion when the reply arrives, so it has been recorded by now
+    assertNotNull(meterRegistry.find("lettuce.command.completion").tag("command", "SMISMEMBER").timer());
+    assertNotNull(meterRegistry.find("lettuce.command.completion").tag("command", "LMOVE").timer());
+    assertNotNull(meterRegistry.find("redis.pool.active").gauge());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+  }
+
+}
@@ -12,6 +12,7 @@ import java.util.List;
 import javax.annotation.Resource;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -20,19 +21,14 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.ListOperations;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
-
-import com.redis.testcontainers.RedisModulesContainer;
 
 import io.lettuce.core.ClientOptions;
 
-@Testcontainers
 @SpringBootTest(classes = RedisListTest.Config.class)
 class RedisListTest {
 
-  @Container
-  static final RedisModulesContainer REDIS = new RedisModulesContainer();
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
 
   @Resource(name = "stringRedisTemplate")
   private ListOperations<String, String> listOps;
@@ -145,7 +141,7 @@ class RedisListTest {
     public LettuceConnectionFactory redisConnectionFactory() {
 
       return new LettuceConnectionFactory(
-          new RedisStandaloneConfiguration(REDIS.getContainerIpAddress(), REDIS.getMappedPort(6379)));
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
     }
 
     @Bean
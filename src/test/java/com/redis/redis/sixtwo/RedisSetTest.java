@@ -12,6 +12,7 @@ import java.util.Set;
 import javax.annotation.Resource;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -20,19 +21,14 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.SetOperations;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
-
-import com.redis.testcontainers.RedisModulesContainer;
 
 import io.lettuce.core.ClientOptions;
 
-@Testcontainers
 @SpringBootTest(classes = RedisSetTest.Config.class)
 class RedisSetTest {
 
-  @Container
-  static final RedisModulesContainer REDIS = new RedisModulesContainer();
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
 
   @Resource(name = "stringRedisTemplate")
   private SetOperations<String, String> setOps;
@@ -83,7 +79,7 @@ class RedisSetTest {
     public LettuceConnectionFactory redisConnectionFactory() {
 
       return new LettuceConnectionFactory(
-          new RedisStandaloneConfiguration(REDIS.getContainerIpAddress(), REDIS.getMappedPort(6379)));
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
     }
 
     @Bean
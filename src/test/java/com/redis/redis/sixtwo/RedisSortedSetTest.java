@@ -12,6 +12,7 @@ import java.util.stream.Collectors;
 import javax.annotation.Resource;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -22,19 +23,14 @@ import org.springframework.data.redis.connection.RedisZSetCommands.Aggregate;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.ZSetOperations;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
-import org.testcontainers.junit.jupiter.Container;
-import org.testcontainers.junit.jupiter.Testcontainers;
-
-import com.redis.testcontainers.RedisModulesContainer;
 
 import io.lettuce.core.ClientOptions;
 
-@Testcontainers
 @SpringBootTest(classes = RedisSortedSetTest.Config.class)
 class RedisSortedSetTest {
 
-  @Container
-  static final RedisModulesContainer REDIS = new RedisModulesContainer();
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
 
   @Resource(name = "stringRedisTemplate")
   private ZSetOperations<String, String> zSetOps;
@@ -175,7 +171,7 @@ class RedisSortedSetTest {
     public LettuceConnectionFactory redisConnectionFactory() {
 
       return new LettuceConnectionFactory(
-          new RedisStandaloneConfiguration(REDIS.getContainerIpAddress(), REDIS.getMappedPort(6379)));
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
     }
 
     @Bean
@@ -0,0 +1,137 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ReliableQueueTest.Config.class)
+class ReliableQueueTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testHandlesAndAcksEveryItem() throws InterruptedException {
+    Queue<String> handled = new ConcurrentLinkedQueue<>();
+    CountDownLatch done = new CountDownLatch(3);
+    ReliableQueue queue = ReliableQueue.builder(template, "emails", item -> {
+      handled.add(item);
+      done.countDown();
+    }).fetchers(2).concurrency(4).build();
+
+    queue.enqueue("one", "two", "three");
+    queue.start();
+    try {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      queue.close();
+    }
+
+    assertTrue(handled.containsAll(List.of("one", "two", "three")));
+    assertEquals(0, template.opsForList().size(queue.getPendingKey()));
+    assertEquals(3, queue.metrics().getAcked());
+    assertTrue(template.keys("emails:processing:*").isEmpty());
+  }
+
+  @Test
+  void testFetchersShareFewerConnections() throws InterruptedException {
+    CountDownLatch done = new CountDownLatch(20);
+    ReliableQueue queue = ReliableQueue.builder(template, "texts", item -> done.countDown())
+        .fetchers(4).maxConnections(1).blockTimeout(Duration.ofMillis(200)).build();
+
+    queue.start();
+    try {
+      for (int i = 0; i < 20; i++) {
+        queue.enqueue("text-" + i);
+      }
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      queue.close();
+    }
+
+    assertEquals(20, queue.metrics().getAcked());
+    assertEquals(0, template.opsForList().size(queue.getPendingKey()));
+  }
+
+  @Test
+  void testFailedItemsAreRetried() throws InterruptedException {
+    AtomicBoolean failedOnce = new AtomicBoolean();
+    CountDownLatch done = new CountDownLatch(1);
+    ReliableQueue queue = ReliableQueue.builder(template, "retries", item -> {
+      if (failedOnce.compareAndSet(false, true)) {
+        throw new IllegalStateException("boom");
+      }
+      done.countDown();
+    }).fetchers(1).concurrency(1).build();
+
+    queue.enqueue("flaky");
+    queue.start();
+    try {
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+    } finally {
+      queue.close();
+    }
+    assertEquals(1, queue.metrics().getNacked());
+    assertEquals(1, queue.metrics().getAcked());
+  }
+
+  @Test
+  void testReaperRequeuesItemsOfDeadWorkers() {
+    // a worker that moved two items and died without acking them
+    template.opsForList().leftPushAll("orders:processing:dead", "order-1", "order-2");
+    template.opsForSet().add("orders:workers", "dead");
+
+    ReliableQueue queue = ReliableQueue.builder(template, "orders", item -> {
+    }).build();
+
+    assertEquals(2, queue.reap());
+    assertEquals(List.of("order-2", "order-1"), template.opsForList().range(queue.getPendingKey(), 0, -1));
+    assertEquals(0, template.opsForList().size("orders:processing:dead"));
+    assertEquals(2, queue.metrics().getRequeued());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
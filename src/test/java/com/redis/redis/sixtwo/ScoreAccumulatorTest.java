@@ -0,0 +1,158 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ScoreAccumulatorTest.Config.class)
+class ScoreAccumulatorTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource(name = "stringRedisTemplate")
+  private ZSetOperations<String, String> zSetOps;
+
+  @Test
+  void testConcurrentIncrementsAreNotLost() {
+    ExecutorService players = Executors.newFixedThreadPool(8);
+    ScoreAccumulator accumulator = ScoreAccumulator.builder(template)
+        .maxDelay(Duration.ofMillis(5))
+        .maxPending(3)
+        .build();
+    try {
+      List<CompletableFuture<Void>> events = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        events.add(CompletableFuture.runAsync(() -> {
+          for (int i = 0; i < 1000; i++) {
+            accumulator.incrementScore("acc_game1", "Frank", 1);
+            accumulator.incrementScore("acc_game1", "Ana", 2);
+            accumulator.incrementScore("acc_game2", "Frank", 0.5);
+          }
+        }, players));
+      }
+      events.forEach(CompletableFuture::join);
+    } finally {
+      accumulator.close();
+      players.shutdown();
+    }
+
+    assertEquals(8000.0, zSetOps.score("acc_game1", "Frank"));
+    assertEquals(16000.0, zSetOps.score("acc_game1", "Ana"));
+    assertEquals(4000.0, zSetOps.score("acc_game2", "Frank"));
+    assertEquals(24000, accumulator.metrics().getUpdates());
+    assertTrue(accumulator.metrics().getUpdatesPerCommand() > 1);
+  }
+
+  @Test
+  void testSetScoreReplacesEarlierIncrements() {
+    zSetOps.add("acc_game3", "Dave", 512);
+
+    try (ScoreAccumulator accumulator = ScoreAccumulator.builder(template).maxDelay(Duration.ofMinutes(1)).build()) {
+      accumulator.incrementScore("acc_game3", "Dave", 10);
+      assertEquals(522.0, accumulator.score("acc_game3", "Dave"));
+      accumulator.setScore("acc_game3", "Dave", 100);
+      accumulator.incrementScore("acc_game3", "Dave", 5);
+      accumulator.setScore("acc_game3", "Tom", 730);
+
+      // nothing written until a flush
+      assertEquals(512.0, zSetOps.score("acc_game3", "Dave"));
+      assertNull(zSetOps.score("acc_game3", "Tom"));
+      assertEquals(105.0, accumulator.score("acc_game3", "Dave"));
+
+      accumulator.flush();
+      assertEquals(105.0, zSetOps.score("acc_game3", "Dave"));
+      assertEquals(730.0, zSetOps.score("acc_game3", "Tom"));
+      assertEquals(0, accumulator.getPending());
+      // both members in one ZADD
+      assertEquals(1, accumulator.metrics().getCommands());
+    }
+  }
+
+  @Test
+  void testUpdatesAreWrittenWithinMaxDelay() throws InterruptedException {
+    ScoreAccumulator accumulator = ScoreAccumulator.builder(template).maxDelay(Duration.ofMillis(50)).build();
+    try {
+      accumulator.incrementScore("acc_game4", "Mary", 450);
+      for (int i = 0; i < 50 && zSetOps.score("acc_game4", "Mary") == null; i++) {
+        Thread.sleep(20);
+      }
+      assertEquals(450.0, zSetOps.score("acc_game4", "Mary"));
+    } finally {
+      accumulator.close();
+    }
+    assertThrows(IllegalStateException.class, () -> accumulator.incrementScore("acc_game4", "Mary", 1));
+  }
+
+  @Test
+  void testUpdatesRedisRejectsAreDroppedNotRetried() {
+    template.opsForValue().set("acc_broken", "not a sorted set");
+
+    try (ScoreAccumulator accumulator = ScoreAccumulator.builder(template).maxDelay(Duration.ofMinutes(1)).build()) {
+      accumulator.incrementScore("acc_broken", "Frank", 1);
+      accumulator.setScore("acc_broken", "Ana", 2);
+      accumulator.incrementScore("acc_game5", "Frank", 10);
+      accumulator.setScore("acc_game5", "Ana", 20);
+
+      accumulator.flush();
+      assertEquals(10.0, zSetOps.score("acc_game5", "Frank"));
+      assertEquals(20.0, zSetOps.score("acc_game5", "Ana"));
+      assertEquals(0, accumulator.getPending());
+
+      // the rest of the batch was applied once, nothing is written again
+      accumulator.flush();
+      assertEquals(10.0, zSetOps.score("acc_game5", "Frank"));
+      assertEquals(2, accumulator.metrics().getCommands());
+      assertEquals(2, accumulator.metrics().getDropped());
+      assertEquals(0, accumulator.metrics().getFailures());
+    }
+    assertEquals("not a sorted set", template.opsForValue().get("acc_broken"));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
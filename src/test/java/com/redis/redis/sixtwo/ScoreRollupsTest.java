@@ -0,0 +1,132 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ScoreRollupsTest.Config.class)
+class ScoreRollupsTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource(name = "stringRedisTemplate")
+  private ZSetOperations<String, String> zSetOps;
+
+  @Test
+  void testOnlyChangedBucketsAreRecomputed() {
+    // Monday 2021-08-02, ISO week 2021W31
+    Instant tenAm = Instant.parse("2021-08-02T10:15:00Z");
+    Instant elevenAm = Instant.parse("2021-08-02T11:05:00Z");
+
+    ScoreRollups rollups = new ScoreRollups(template, "arena", ZoneOffset.UTC).shardWeight("eu", 2);
+    rollups.record("us", "alice", 10, tenAm);
+    rollups.record("eu", "alice", 5, tenAm);
+    rollups.record("us", "bob", 7, elevenAm);
+
+    ScoreRollups.Refresh refresh = rollups.refresh();
+    assertEquals(2, refresh.getHours());
+    assertEquals(1, refresh.getDays());
+    assertEquals(1, refresh.getWeeks());
+
+    assertEquals("arena:hour:2021080210", rollups.key(ScoreRollups.Granularity.HOUR, tenAm));
+    assertEquals("arena:day:20210802", rollups.key(ScoreRollups.Granularity.DAY, tenAm));
+    assertEquals("arena:week:2021W31", rollups.key(ScoreRollups.Granularity.WEEK, tenAm));
+
+    // ZUNIONSTORE arena:hour:2021080210 2 arena:input:2021080210:us arena:input:2021080210:eu WEIGHTS 1 2
+    assertEquals(20.0, zSetOps.score("arena:hour:2021080210", "alice"));
+    assertEquals(20.0, zSetOps.score("arena:day:20210802", "alice"));
+    assertEquals(7.0, zSetOps.score("arena:week:2021W31", "bob"));
+    assertEquals("alice", rollups.top(ScoreRollups.Granularity.DAY, tenAm, 1).iterator().next().getValue());
+    assertTrue(rollups.top(ScoreRollups.Granularity.DAY, tenAm, 0).isEmpty());
+    assertThrows(IllegalArgumentException.class, () -> rollups.top(ScoreRollups.Granularity.DAY, tenAm, -1));
+
+    ScoreRollups.Refresh nothingChanged = rollups.refresh();
+    assertEquals(0, nothingChanged.getHours());
+    assertEquals(0, nothingChanged.getDays());
+
+    rollups.record("us", "bob", 3, elevenAm);
+    ScoreRollups.Refresh oneHour = rollups.refresh();
+    assertEquals(1, oneHour.getHours());
+    assertEquals(1, oneHour.getDays());
+    assertEquals(1, oneHour.getWeeks());
+    assertEquals(10.0, zSetOps.score("arena:day:20210802", "bob"));
+    assertEquals(20.0, zSetOps.score("arena:hour:2021080210", "alice"));
+  }
+
+  @Test
+  void testHoursOfAFailedRefreshAreRefreshedAgain() {
+    Instant tenAm = Instant.parse("2021-08-02T10:15:00Z");
+    ScoreRollups rollups = new ScoreRollups(template, "broken", ZoneOffset.UTC);
+    rollups.record("us", "alice", 10, tenAm);
+    // ZUNIONSTORE fails on an input that is not a sorted set
+    template.opsForValue().set(rollups.markChanged("eu", tenAm), "not a sorted set");
+
+    assertThrows(RuntimeException.class, rollups::refresh);
+    assertNull(zSetOps.score("broken:day:20210802", "alice"));
+
+    template.delete("broken:input:2021080210:eu");
+    ScoreRollups.Refresh retried = rollups.refresh();
+    assertEquals(1, retried.getHours());
+    assertEquals(10.0, zSetOps.score("broken:day:20210802", "alice"));
+    assertEquals(0, rollups.refresh().getHours());
+  }
+
+  @Test
+  void testOlderDaysDecayInTheWeek() {
+    Instant monday = Instant.parse("2021-08-02T10:00:00Z");
+    Instant sunday = Instant.parse("2021-08-08T10:00:00Z");
+
+    ScoreRollups rollups = new ScoreRollups(template, "decayed", ZoneOffset.UTC).dayDecay(0.5);
+    rollups.record("us", "alice", 64, monday);
+    rollups.record("us", "alice", 1, sunday);
+    rollups.refresh();
+
+    // 64 * 0.5^6 + 1
+    assertEquals(2.0, zSetOps.score("decayed:week:2021W31", "alice"));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
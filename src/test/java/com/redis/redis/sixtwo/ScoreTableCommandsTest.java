@@ -0,0 +1,121 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ScoreTableCommandsTest.Config.class)
+class ScoreTableCommandsTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Test
+  void testRangeWithScoresIntoReusedTable() {
+    IntStream.range(0, 1000).forEach(i -> template.opsForZSet().add("table_scores", "player-" + i, i * 0.5));
+    ScoreTableCommands commands = new ScoreTableCommands(template);
+    ScoreTable table = new ScoreTable(4, 16);
+
+    assertSame(table, commands.rangeWithScores("table_scores", 0, -1, false, table));
+    assertEquals(1000, table.size());
+    assertEquals("player-0", table.member(0));
+    assertEquals(499.5, table.score(999));
+    assertTrue(table.memberEquals(999, "player-999".getBytes(StandardCharsets.UTF_8)));
+
+    commands.rangeWithScores("table_scores", 0, 2, true, table);
+    assertEquals(3, table.size());
+    assertEquals("player-998", table.member(1));
+    assertArrayEquals(new double[] { 499.5, 499.0, 498.5 }, Arrays.copyOf(table.scores(), table.size()));
+  }
+
+  @Test
+  void testScoresMarkMissingMembers() {
+    template.opsForZSet().add("table_mscore", "one", 1);
+    template.opsForZSet().add("table_mscore", "two", 2);
+    ScoreTableCommands commands = new ScoreTableCommands(template);
+
+    ScoreTable table = commands.scores("table_mscore", new ScoreTable(), "one", "nofield", "two");
+
+    assertEquals(3, table.size());
+    assertFalse(table.hasMembers());
+    assertEquals(1.0, table.score(0));
+    assertTrue(Double.isNaN(table.score(1)));
+    assertEquals(2.0, table.score(2));
+  }
+
+  @Test
+  void testIntersectWithScores() {
+    template.opsForZSet().add("table_zset1", "one", 1);
+    template.opsForZSet().add("table_zset1", "two", 2);
+    template.opsForZSet().add("table_zset1", "three", 3);
+    template.opsForZSet().add("table_zset2", "one", 1);
+    template.opsForZSet().add("table_zset2", "two", 2);
+
+    ScoreTable table = new ScoreTableCommands(template).intersectWithScores(new ScoreTable(), "table_zset1",
+        "table_zset2");
+
+    assertEquals(2, table.size());
+    assertEquals("one", table.member(0));
+    assertEquals(2.0, table.score(0));
+    assertEquals("two", table.member(1));
+    assertEquals(4.0, table.score(1));
+  }
+
+  @Test
+  void testParseScoreMatchesParseDouble() {
+    for (String score : List.of("0", "-0", "1", "-17", "3.14", "0.1", "123456789012345", "2.5e+20",
+        "0.30000000000000004", "9007199254740993", "1.7976931348623157e+308")) {
+      ByteBuffer bytes = ByteBuffer.wrap(score.getBytes(StandardCharsets.US_ASCII));
+      assertEquals(Double.parseDouble(score), ScoreTableCommands.parseScore(bytes), score);
+    }
+    assertEquals(Double.POSITIVE_INFINITY, ScoreTableCommands.parseScore(ByteBuffer.wrap("inf".getBytes())));
+    assertEquals(Double.NEGATIVE_INFINITY, ScoreTableCommands.parseScore(ByteBuffer.wrap("-inf".getBytes())));
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,111 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import io.lettuce.core.ClientOptions;
+
+@SpringBootTest(classes = ShardedSortedSetTest.Config.class)
+class ShardedSortedSetTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = new TestRedis();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  @Resource(name = "stringRedisTemplate")
+  private ZSetOperations<String, String> zSetOps;
+
+  @Test
+  void testTopRankAndScoresMatchOneUnshardedKey() {
+    Map<String, Double> scores = new LinkedHashMap<>();
+    for (int i = 0; i < 500; i++) {
+      // plenty of ties
+      scores.put("player-" + i, (double) (i % 37));
+    }
+    zSetOps.add("sharded_reference", scores.entrySet().stream()
+        .map(score -> TypedTuple.of(score.getKey(), score.getValue()))
+        .collect(Collectors.toSet()));
+
+    try (ShardedSortedSet board = new ShardedSortedSet(template, "sharded_board", 8)) {
+      assertEquals(500, board.addAll(scores));
+      assertEquals(500, board.size());
+      // 62.5 a shard on average
+      assertTrue(board.getShardKeys().stream().allMatch(key -> zSetOps.size(key) > 45 && zSetOps.size(key) < 80));
+
+      assertEquals(zSetOps.reverseRangeWithScores("sharded_reference", 0, 49).stream()
+          .map(TypedTuple::getValue)
+          .collect(Collectors.toList()),
+          board.top(50).stream().map(TypedTuple::getValue).collect(Collectors.toList()));
+
+      for (String member : List.of("player-0", "player-36", "player-73", "player-499")) {
+        assertEquals(zSetOps.reverseRank("sharded_reference", member), board.rank(member), member);
+      }
+      assertNull(board.rank("nobody"));
+
+      assertEquals(Arrays.asList(36.0, null, 0.0), board.scores("player-36", "nobody", "player-0"));
+    }
+  }
+
+  @Test
+  void testWritesGoToTheOwningShard() {
+    try (ShardedSortedSet board = new ShardedSortedSet(template, "sharded_writes", 4)) {
+      board.add("Frank", 100);
+      board.incrementScore("Frank", 5);
+      board.add("Jennifer", 740);
+
+      assertEquals(105.0, zSetOps.score(board.shardKey("Frank"), "Frank"));
+      assertEquals(105.0, board.score("Frank"));
+      assertEquals(List.of("Jennifer", "Frank"),
+          board.top(10).stream().map(TypedTuple::getValue).collect(Collectors.toList()));
+
+      board.remove("Jennifer");
+      assertEquals(0L, board.rank("Frank"));
+      assertEquals(1, board.size());
+    }
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
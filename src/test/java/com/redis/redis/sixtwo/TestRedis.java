@@ -0,0 +1,73 @@
+package com.redis.redis.sixtwo;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import com.redis.redis.sixtwo.embedded.EmbeddedRedis;
+import com.redis.testcontainers.RedisModulesContainer;
+
+/**
+ * The Redis server a test class runs against, registered with {@code @RegisterExtension} and
+ * started before the class' Spring context connects to it.
+ *
+ * By default it is a Redis container, which needs Docker. With
+ * {@code -Dredis.standin=embedded}, set by the {@code embedded-redis} profile, it is an
+ * {@link EmbeddedRedis} instead, which starts in milliseconds and needs nothing installed.
+ * Tests that rely on features the stand-in doesn't have use {@link #containerOnly()} and are
+ * skipped under that profile.
+ */
+final class TestRedis implements BeforeAllCallback, AfterAllCallback {
+
+  private final boolean containerOnly;
+  private RedisModulesContainer container;
+  private EmbeddedRedis embedded;
+
+  TestRedis() {
+    this(false);
+  }
+
+  private TestRedis(boolean containerOnly) {
+    this.containerOnly = containerOnly;
+  }
+
+  static TestRedis containerOnly() {
+    return new TestRedis(true);
+  }
+
+  static boolean embedded() {
+    return "embedded".equals(System.getProperty("redis.standin"));
+  }
+
+  @Override
+  public void beforeAll(ExtensionContext context) {
+    if (embedded()) {
+      Assumptions.assumeFalse(containerOnly, "needs a real Redis, not the embedded stand-in");
+      embedded = EmbeddedRedis.start();
+    } else {
+      container = new RedisModulesContainer();
+      container.start();
+    }
+  }
+
+  @Override
+  public void afterAll(ExtensionContext context) {
+    if (embedded != null) {
+      embedded.close();
+      embedded = null;
+    }
+    if (container != null) {
+      container.stop();
+      container = null;
+    }
+  }
+
+  String getHost() {
+    return embedded != null ? embedded.getHost() : container.getContainerIpAddress();
+  }
+
+  int getPort() {
+    return embedded != null ? embedded.getPort() : container.getMappedPort(6379);
+  }
+}
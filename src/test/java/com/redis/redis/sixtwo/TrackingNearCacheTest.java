@@ -0,0 +1,116 @@
+package com.redis.redis.sixtwo;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Map;
+
+import javax.annotation.Resource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+
+@SpringBootTest(classes = TrackingNearCacheTest.Config.class)
+class TrackingNearCacheTest {
+
+  @RegisterExtension
+  static final TestRedis REDIS = TestRedis.containerOnly();
+
+  @Resource(name = "stringRedisTemplate")
+  private StringRedisTemplate template;
+
+  private RedisClient client;
+  private TrackingNearCache cache;
+
+  @BeforeEach
+  void setUp() {
+    client = RedisClient.create(RedisURI.create(REDIS.getHost(), REDIS.getPort()));
+    cache = new TrackingNearCache(client, 1000);
+  }
+
+  @AfterEach
+  void tearDown() {
+    cache.close();
+    client.shutdown();
+  }
+
+  @Test
+  void testRepeatedLookupsAreServedLocally() {
+    template.opsForSet().add("cached_colors", "red", "yellow", "green");
+
+    Map<String, Boolean> first = cache.isMember("cached_colors", "red", "black");
+    Map<String, Boolean> second = cache.isMember("cached_colors", "red", "black");
+
+    assertEquals(first, second);
+    assertTrue(second.get("red"));
+    assertFalse(second.get("black"));
+    assertEquals(1, cache.metrics().getFetches());
+    assertEquals(2, cache.metrics().getHits());
+  }
+
+  @Test
+  void testPartialHitsOnlyFetchMissingMembers() {
+    template.opsForZSet().add("cached_scores", "one", 1);
+    template.opsForZSet().add("cached_scores", "two", 2);
+
+    cache.score("cached_scores", "one");
+    assertArrayEquals(new Double[] { 1.0, 2.0, null },
+        cache.score("cached_scores", "one", "two", "nofield").toArray());
+
+    assertEquals(1, cache.metrics().getHits());
+    assertEquals(3, cache.metrics().getMisses());
+    assertEquals(2, cache.metrics().getFetches());
+  }
+
+  @Test
+  void testWritesFromOtherClientsInvalidate() throws InterruptedException {
+    template.opsForZSet().add("leaderboard", "ana", 690);
+    assertEquals(690.0, cache.score("leaderboard", "ana").get(0));
+
+    template.opsForZSet().add("leaderboard", "ana", 700);
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cache.metrics().getInvalidations() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertEquals(700.0, cache.score("leaderboard", "ana").get(0));
+    assertEquals(2, cache.metrics().getFetches());
+  }
+
+  @SpringBootApplication
+  @Configuration
+  static class Config {
+    @Bean
+    public LettuceConnectionFactory redisConnectionFactory() {
+
+      return new LettuceConnectionFactory(
+          new RedisStandaloneConfiguration(REDIS.getHost(), REDIS.getPort()));
+    }
+
+    @Bean
+    public LettuceClientConfigurationBuilderCustomizer defaultLettuceClientConfigurationBuilderCustomizer() {
+      return clientConfigurationBuilder -> clientConfigurationBuilder
+          .clientOptions(
+              ClientOptions.builder().disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS).build())
+          .shutdownTimeout(Duration.ofSeconds(2));
+    }
+  }
+
+}
@@ -0,0 +1,265 @@
+package com.redis.redis.sixtwo.embedded;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * An in-JVM stand-in for the parts of Redis 6.2 this project uses, served over RESP2 on a
+ * loopback port so {@code LettuceConnectionFactory} connects to it like to a real server.
+ *
+ * It covers the list (LMOVE/BLMOVE, LPOP/RPOP COUNT), set (SMISMEMBER, SPOP, SRANDMEMBER,
+ * SSCAN, SUNIONSTORE) and sorted set (ZMSCORE, ZINTER/ZUNION/ZDIFF[STORE], ZRANGE BYSCORE/REV/LIMIT,
+ * ZRANGESTORE, ZRANDMEMBER, ZSCAN) commands plus basic key and string commands, and
+ * MULTI/EXEC without WATCH. There is no RESP3 (HELLO fails, so clients fall back to RESP2), no
+ * CLIENT TRACKING, pub/sub, scripting or persistence. Commands are executed one at a time,
+ * like Redis does.
+ */
+public final class EmbeddedRedis implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(EmbeddedRedis.class);
+
+  private static final Keyspace.Status QUEUED = new Keyspace.Status("QUEUED");
+
+  private final Keyspace keyspace = new Keyspace();
+  private final ServerSocket serverSocket;
+  private final ExecutorService clients;
+  private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+
+  private EmbeddedRedis(ServerSocket serverSocket) {
+    this.serverSocket = serverSocket;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("embedded-redis-");
+    threadFactory.setDaemon(true);
+    this.clients = Executors.newCachedThreadPool(threadFactory);
+    this.clients.execute(this::accept);
+  }
+
+  /**
+   * Starts a server on an ephemeral loopback port.
+   */
+  public static EmbeddedRedis start() {
+    return start(0);
+  }
+
+  public static EmbeddedRedis start(int port) {
+    try {
+      ServerSocket serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      return new EmbeddedRedis(serverSocket);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not start the embedded Redis", e);
+    }
+  }
+
+  public String getHost() {
+    return serverSocket.getInetAddress().getHostAddress();
+  }
+
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  @Override
+  public void close() {
+    keyspace.close();
+    try {
+      serverSocket.close();
+    } catch (IOException e) {
+      log.debug("Failed to close the server socket", e);
+    }
+    for (Socket socket : sockets) {
+      closeQuietly(socket);
+    }
+    clients.shutdownNow();
+  }
+
+  private void accept() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        socket.setTcpNoDelay(true);
+        sockets.add(socket);
+        clients.execute(() -> serve(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          log.warn("Failed to accept a connection", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+      List<List<String>> transaction = null;
+      while (true) {
+        List<String> command = readCommand(in);
+        if (command == null) {
+          return;
+        }
+        if (command.isEmpty()) {
+          continue;
+        }
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        boolean quit = "QUIT".equals(name);
+        Object reply;
+        if (quit) {
+          reply = Keyspace.Status.OK;
+        } else if ("MULTI".equals(name)) {
+          if (transaction != null) {
+            // like Redis, the open transaction keeps what it has queued
+            reply = new Keyspace.RedisError("ERR MULTI calls can not be nested");
+          } else {
+            reply = Keyspace.Status.OK;
+            transaction = new ArrayList<>();
+          }
+        } else if ("EXEC".equals(name) || "DISCARD".equals(name)) {
+          if (transaction == null) {
+            reply = new Keyspace.RedisError("ERR " + name + " without MULTI");
+          } else {
+            reply = "EXEC".equals(name) ? keyspace.executeAll(transaction) : Keyspace.Status.OK;
+          }
+          transaction = null;
+        } else if (transaction != null) {
+          transaction.add(command);
+          reply = QUEUED;
+        } else {
+          try {
+            reply = keyspace.execute(command);
+          } catch (Keyspace.RedisError e) {
+            reply = e;
+          }
+        }
+        write(out, reply);
+        // pipelined commands are answered together
+        if (quit || in.available() == 0) {
+          out.flush();
+        }
+        if (quit) {
+          return;
+        }
+      }
+    } catch (EOFException | SocketException e) {
+      // client went away
+    } catch (IOException e) {
+      log.warn("Connection failed", e);
+    } finally {
+      sockets.remove(socket);
+      closeQuietly(socket);
+    }
+  }
+
+  /**
+   * A RESP array of bulk strings, or an inline command. Null at the end of the stream.
+   */
+  private static List<String> readCommand(InputStream in) throws IOException {
+    int type = in.read();
+    if (type == -1) {
+      return null;
+    }
+    if (type != '*') {
+      String inline = (char) type + readLine(in);
+      List<String> command = new ArrayList<>();
+      for (String part : inline.trim().split("\\s+")) {
+        if (!part.isEmpty()) {
+          command.add(part);
+        }
+      }
+      return command;
+    }
+    int count = Integer.parseInt(readLine(in));
+    List<String> command = new ArrayList<>(Math.max(count, 0));
+    for (int i = 0; i < count; i++) {
+      if (in.read() != '$') {
+        throw new IOException("Protocol error: expected a bulk string");
+      }
+      int length = Integer.parseInt(readLine(in));
+      byte[] bytes = in.readNBytes(length);
+      if (bytes.length < length) {
+        throw new EOFException();
+      }
+      command.add(new String(bytes, StandardCharsets.ISO_8859_1));
+      readLine(in);
+    }
+    return command;
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    while (true) {
+      int b = in.read();
+      if (b == -1) {
+        throw new EOFException();
+      }
+      if (b == '\r') {
+        if (in.read() != '\n') {
+          throw new IOException("Protocol error: expected LF after CR");
+        }
+        return line.toString();
+      }
+      line.append((char) b);
+    }
+  }
+
+  private static void write(OutputStream out, Object reply) throws IOException {
+    if (reply == null) {
+      out.write("$-1\r\n".getBytes(StandardCharsets.US_ASCII));
+    } else if (reply instanceof Keyspace.Status) {
+      writeLine(out, "+" + ((Keyspace.Status) reply).value);
+    } else if (reply instanceof Keyspace.RedisError) {
+      writeLine(out, "-" + ((Keyspace.RedisError) reply).getMessage());
+    } else if (reply instanceof Long) {
+      writeLine(out, ":" + reply);
+    } else if (reply instanceof String) {
+      byte[] bytes = ((String) reply).getBytes(StandardCharsets.ISO_8859_1);
+      writeLine(out, "$" + bytes.length);
+      out.write(bytes);
+      out.write('\r');
+      out.write('\n');
+    } else if (reply instanceof List) {
+      List<?> elements = (List<?>) reply;
+      writeLine(out, "*" + elements.size());
+      for (Object element : elements) {
+        write(out, element);
+      }
+    } else {
+      throw new IllegalStateException("Unexpected reply " + reply.getClass());
+    }
+  }
+
+  private static void writeLine(OutputStream out, String line) throws IOException {
+    out.write(line.getBytes(StandardCharsets.ISO_8859_1));
+    out.write('\r');
+    out.write('\n');
+  }
+
+  private static void closeQuietly(Socket socket) {
+    try {
+      socket.close();
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+}
@@ -0,0 +1,145 @@
+package com.redis.redis.sixtwo.embedded;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.LEFT;
+import static org.springframework.data.redis.connection.RedisListCommands.Direction.RIGHT;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisSystemException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import com.redis.redis.sixtwo.SortedSetRangeCommands;
+
+/**
+ * The stand-in checked through Spring Data Redis and Lettuce, the way the tests use it. Runs
+ * without Docker in every build.
+ */
+class EmbeddedRedisTest {
+
+  private static EmbeddedRedis redis;
+  private static LettuceConnectionFactory connectionFactory;
+  private static StringRedisTemplate template;
+
+  @BeforeAll
+  static void start() {
+    redis = EmbeddedRedis.start();
+    connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(redis.getHost(), redis.getPort()));
+    connectionFactory.afterPropertiesSet();
+    template = new StringRedisTemplate(connectionFactory);
+  }
+
+  @AfterAll
+  static void stop() {
+    connectionFactory.destroy();
+    redis.close();
+  }
+
+  @BeforeEach
+  void flush() {
+    template.execute((RedisCallback<Void>) connection -> {
+      connection.serverCommands().flushAll();
+      return null;
+    });
+  }
+
+  @Test
+  void testLists() {
+    template.opsForList().rightPushAll("list_one", "one", "two", "three");
+
+    assertEquals("three", template.opsForList().move("list_one", RIGHT, "list_two", LEFT));
+    assertEquals(List.of("one", "two"), template.opsForList().leftPop("list_one", 5));
+    assertEquals(List.of("three"), template.opsForList().range("list_two", 0, -1));
+    assertEquals(0, template.opsForList().size("list_one"));
+  }
+
+  @Test
+  void testBlockingMoveWaitsForAPush() {
+    CompletableFuture<byte[]> moved = CompletableFuture.supplyAsync(() -> {
+      try (RedisConnection connection = connectionFactory.getConnection()) {
+        return connection.listCommands().bLMove("jobs".getBytes(), "working".getBytes(), RIGHT, LEFT, 5);
+      }
+    });
+    template.opsForList().leftPush("jobs", "job-1");
+
+    assertEquals("job-1", new String(moved.join()));
+    assertEquals(List.of("job-1"), template.opsForList().range("working", 0, -1));
+  }
+
+  @Test
+  void testBlockingMoveInsideMultiDoesNotBlock() {
+    List<Object> replies;
+    long startedAt = System.currentTimeMillis();
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      connection.multi();
+      connection.listCommands().bLMove("no_jobs".getBytes(), "working".getBytes(), RIGHT, LEFT, 5);
+      connection.listCommands().rPush("no_jobs".getBytes(), "job-1".getBytes());
+      replies = connection.exec();
+    }
+
+    assertTrue(System.currentTimeMillis() - startedAt < 2000);
+    assertEquals(Arrays.asList(null, 1L), replies);
+    assertEquals(List.of("job-1"), template.opsForList().range("no_jobs", 0, -1));
+  }
+
+  @Test
+  void testSets() {
+    template.opsForSet().add("colors", "red", "yellow", "green", "fushia");
+
+    assertEquals(Map.of("red", true, "black", false, "green", true),
+        template.opsForSet().isMember("colors", "red", "black", "green"));
+    assertEquals(3, template.opsForSet().pop("colors", 3).size());
+    assertEquals(1, template.opsForSet().size("colors"));
+  }
+
+  @Test
+  void testSortedSets() {
+    template.opsForZSet().add("zset1", "one", 1);
+    template.opsForZSet().add("zset1", "two", 2);
+    template.opsForZSet().add("zset1", "three", 3);
+    template.opsForZSet().add("zset2", "one", 1);
+    template.opsForZSet().add("zset2", "two", 2);
+
+    assertEquals(Arrays.asList(1.0, null, 3.0), template.opsForZSet().score("zset1", "one", "nofield", "three"));
+    assertEquals(Map.of("one", 2.0, "two", 4.0),
+        template.opsForZSet().intersectWithScores("zset1", Set.of("zset2")).stream()
+            .collect(Collectors.toMap(TypedTuple::getValue, TypedTuple::getScore)));
+    assertEquals(1, template.opsForZSet().differenceAndStore("zset1", List.of("zset2"), "out"));
+    assertEquals(Set.of("three"), template.opsForZSet().range("out", 0, -1));
+
+    SortedSetRangeCommands ranges = new SortedSetRangeCommands(template, Duration.ofSeconds(5));
+    assertEquals(2, ranges.rangeAndStore("top", "zset1", 0, 1, true));
+    assertEquals(List.of("three", "two"), ranges.rangeWithScores("top", 0, -1, true).stream()
+        .map(TypedTuple::getValue)
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  void testExpiryAndErrors() throws InterruptedException {
+    template.opsForValue().set("heartbeat", "1", Duration.ofMillis(50));
+    assertTrue(template.hasKey("heartbeat"));
+    Thread.sleep(100);
+    assertNull(template.opsForValue().get("heartbeat"));
+
+    template.opsForSet().add("not_a_list", "member");
+    assertThrows(RedisSystemException.class, () -> template.opsForList().leftPush("not_a_list", "element"));
+  }
+}
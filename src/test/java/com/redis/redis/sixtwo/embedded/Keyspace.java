@@ -0,0 +1,1357 @@
+package com.redis.redis.sixtwo.embedded;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * The data of an {@link EmbeddedRedis} and the commands on it. Commands run one at a time
+ * under the keyspace's monitor, like on Redis' main thread; blocking commands wait on it.
+ *
+ * Values are ISO-8859-1 strings so any byte sequence survives the round trip and compares
+ * like Redis compares bytes.
+ */
+final class Keyspace {
+
+  /**
+   * A simple string reply, as opposed to a bulk string.
+   */
+  static final class Status {
+
+    static final Status OK = new Status("OK");
+
+    final String value;
+
+    Status(String value) {
+      this.value = value;
+    }
+  }
+
+  static final class RedisError extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    RedisError(String message) {
+      super(message, null, false, false);
+    }
+  }
+
+  private static final RedisError WRONG_TYPE = new RedisError(
+      "WRONGTYPE Operation against a key holding the wrong kind of value");
+  private static final RedisError SYNTAX = new RedisError("ERR syntax error");
+  private static final RedisError NOT_AN_INTEGER = new RedisError("ERR value is not an integer or out of range");
+  private static final RedisError NOT_A_FLOAT = new RedisError("ERR value is not a valid float");
+
+  private final Map<String, Object> data = new HashMap<>();
+  private final Map<String, Long> expires = new HashMap<>();
+  private final Random random = new Random(0);
+  private boolean listsChanged;
+  private boolean closed;
+  private boolean inTransaction;
+
+  synchronized Object execute(List<String> command) {
+    try {
+      return dispatch(command.get(0).toUpperCase(Locale.ROOT), command);
+    } finally {
+      if (listsChanged) {
+        listsChanged = false;
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * The commands of a MULTI/EXEC block with nothing else running in between. A failing command
+   * has its error as its reply, the others still run. Blocking commands don't block, like in
+   * Redis: waiting would release the keyspace in the middle of the transaction.
+   */
+  synchronized List<Object> executeAll(List<List<String>> commands) {
+    List<Object> replies = new ArrayList<>(commands.size());
+    inTransaction = true;
+    try {
+      for (List<String> command : commands) {
+        try {
+          replies.add(execute(command));
+        } catch (RedisError e) {
+          replies.add(e);
+        }
+      }
+    } finally {
+      inTransaction = false;
+    }
+    return replies;
+  }
+
+  synchronized void close() {
+    closed = true;
+    notifyAll();
+  }
+
+  private Object dispatch(String name, List<String> c) {
+    switch (name) {
+    // connection and server
+    case "PING":
+      return c.size() > 1 ? c.get(1) : new Status("PONG");
+    case "ECHO":
+      return arg(c, 1);
+    case "SELECT":
+      if (!"0".equals(arg(c, 1))) {
+        throw new RedisError("ERR DB index is out of range");
+      }
+      return Status.OK;
+    case "CLIENT":
+      return "GETNAME".equalsIgnoreCase(arg(c, 1)) ? null : Status.OK;
+    case "COMMAND":
+      return Collections.emptyList();
+    case "INFO":
+      return "# Server\r\nredis_version:6.2.0\r\nredis_mode:standalone\r\n";
+    case "FLUSHALL":
+    case "FLUSHDB":
+      data.clear();
+      expires.clear();
+      return Status.OK;
+    case "DBSIZE":
+      expireAll();
+      return (long) data.size();
+
+    // keys
+    case "DEL":
+    case "UNLINK":
+      return del(c.subList(1, c.size()));
+    case "EXISTS":
+      return exists(c.subList(1, c.size()));
+    case "TYPE":
+      return new Status(type(lookup(arg(c, 1))));
+    case "KEYS":
+      return keys(arg(c, 1));
+    case "RENAME":
+      return rename(arg(c, 1), arg(c, 2));
+    case "EXPIRE":
+      return expire(arg(c, 1), integer(arg(c, 2)) * 1000);
+    case "PEXPIRE":
+      return expire(arg(c, 1), integer(arg(c, 2)));
+    case "PERSIST":
+      return lookup(arg(c, 1)) != null && expires.remove(arg(c, 1)) != null ? 1L : 0L;
+    case "TTL":
+      return ttl(arg(c, 1), 1000);
+    case "PTTL":
+      return ttl(arg(c, 1), 1);
+
+    // strings
+    case "GET":
+      return string(arg(c, 1));
+    case "SET":
+      return set(c);
+    case "SETEX":
+      return setWithExpiry(arg(c, 1), arg(c, 3), integer(arg(c, 2)) * 1000);
+    case "PSETEX":
+      return setWithExpiry(arg(c, 1), arg(c, 3), integer(arg(c, 2)));
+    case "INCR":
+      return incrBy(arg(c, 1), 1);
+    case "INCRBY":
+      return incrBy(arg(c, 1), integer(arg(c, 2)));
+
+    // lists
+    case "LPUSH":
+      return push(arg(c, 1), c.subList(2, c.size()), true);
+    case "RPUSH":
+      return push(arg(c, 1), c.subList(2, c.size()), false);
+    case "LPOP":
+      return pop(c, true);
+    case "RPOP":
+      return pop(c, false);
+    case "LLEN":
+      return (long) size(list(arg(c, 1)));
+    case "LRANGE":
+      return lrange(arg(c, 1), integer(arg(c, 2)), integer(arg(c, 3)));
+    case "LINDEX":
+      return lindex(arg(c, 1), integer(arg(c, 2)));
+    case "LSET":
+      return lset(arg(c, 1), integer(arg(c, 2)), arg(c, 3));
+    case "LREM":
+      return lrem(arg(c, 1), integer(arg(c, 2)), arg(c, 3));
+    case "LTRIM":
+      return ltrim(arg(c, 1), integer(arg(c, 2)), integer(arg(c, 3)));
+    case "LMOVE":
+      return lmove(arg(c, 1), arg(c, 2), left(arg(c, 3)), left(arg(c, 4)));
+    case "RPOPLPUSH":
+      return lmove(arg(c, 1), arg(c, 2), false, true);
+    case "BLMOVE":
+      return blmove(arg(c, 1), arg(c, 2), left(arg(c, 3)), left(arg(c, 4)), timeout(arg(c, 5)));
+    case "BRPOPLPUSH":
+      return blmove(arg(c, 1), arg(c, 2), false, true, timeout(arg(c, 3)));
+    case "BLPOP":
+      return bpop(c.subList(1, c.size() - 1), true, timeout(c.get(c.size() - 1)));
+    case "BRPOP":
+      return bpop(c.subList(1, c.size() - 1), false, timeout(c.get(c.size() - 1)));
+
+    // sets
+    case "SADD":
+      return sadd(arg(c, 1), c.subList(2, c.size()));
+    case "SREM":
+      return srem(arg(c, 1), c.subList(2, c.size()));
+    case "SMEMBERS":
+      return new ArrayList<>(orEmpty(set(arg(c, 1))));
+    case "SCARD":
+      return (long) size(set(arg(c, 1)));
+    case "SISMEMBER":
+      return orEmpty(set(arg(c, 1))).contains(arg(c, 2)) ? 1L : 0L;
+    case "SMISMEMBER":
+      return smismember(arg(c, 1), c.subList(2, c.size()));
+    case "SMOVE":
+      return smove(arg(c, 1), arg(c, 2), arg(c, 3));
+    case "SPOP":
+      return spop(c);
+    case "SRANDMEMBER":
+      return srandmember(c);
+    case "SSCAN":
+      return scan(new ArrayList<>(orEmpty(set(arg(c, 1)))), c, false);
+    case "SUNIONSTORE":
+      return sunionstore(arg(c, 1), c.subList(2, c.size()));
+
+    // sorted sets
+    case "ZADD":
+      return zadd(c);
+    case "ZINCRBY":
+      return zincrby(arg(c, 1), score(arg(c, 2)), arg(c, 3));
+    case "ZREM":
+      return zrem(arg(c, 1), c.subList(2, c.size()));
+    case "ZCARD":
+      return (long) orEmpty(zset(arg(c, 1))).size();
+    case "ZSCORE":
+      return zscore(arg(c, 1), arg(c, 2));
+    case "ZMSCORE":
+      return zmscore(arg(c, 1), c.subList(2, c.size()));
+    case "ZRANK":
+      return zrank(arg(c, 1), arg(c, 2), false);
+    case "ZREVRANK":
+      return zrank(arg(c, 1), arg(c, 2), true);
+    case "ZCOUNT":
+      return zcount(arg(c, 1), arg(c, 2), arg(c, 3));
+    case "ZRANGE":
+      return zrangeCommand(c, 1, false, false, true);
+    case "ZREVRANGE":
+      return zrangeCommand(c, 1, false, true, false);
+    case "ZRANGEBYSCORE":
+      return zrangeCommand(c, 1, true, false, false);
+    case "ZREVRANGEBYSCORE":
+      return zrangeCommand(c, 1, true, true, false);
+    case "ZRANGESTORE":
+      return zrangestore(c);
+    case "ZPOPMIN":
+      return zpop(c, true);
+    case "ZPOPMAX":
+      return zpop(c, false);
+    case "ZRANDMEMBER":
+      return zrandmember(c);
+    case "ZSCAN":
+      return scan(flatten(orEmpty(zset(arg(c, 1))).entries()), c, true);
+    case "ZINTER":
+      return combineCommand(c, 1, Combine.INTER, null);
+    case "ZUNION":
+      return combineCommand(c, 1, Combine.UNION, null);
+    case "ZDIFF":
+      return combineCommand(c, 1, Combine.DIFF, null);
+    case "ZINTERSTORE":
+      return combineCommand(c, 2, Combine.INTER, arg(c, 1));
+    case "ZUNIONSTORE":
+      return combineCommand(c, 2, Combine.UNION, arg(c, 1));
+    case "ZDIFFSTORE":
+      return combineCommand(c, 2, Combine.DIFF, arg(c, 1));
+
+    default:
+      throw new RedisError("ERR unknown command '" + c.get(0) + "'");
+    }
+  }
+
+  // keys
+
+  private Object lookup(String key) {
+    Long expiresAt = expires.get(key);
+    if (expiresAt != null && expiresAt <= System.currentTimeMillis()) {
+      expires.remove(key);
+      data.remove(key);
+    }
+    return data.get(key);
+  }
+
+  private void expireAll() {
+    new ArrayList<>(expires.keySet()).forEach(this::lookup);
+  }
+
+  private void delete(String key) {
+    data.remove(key);
+    expires.remove(key);
+  }
+
+  private long del(List<String> keys) {
+    long deleted = 0;
+    for (String key : keys) {
+      if (lookup(key) != null) {
+        delete(key);
+        deleted++;
+      }
+    }
+    return deleted;
+  }
+
+  private long exists(List<String> keys) {
+    return keys.stream().filter(key -> lookup(key) != null).count();
+  }
+
+  private static String type(Object value) {
+    if (value == null) {
+      return "none";
+    }
+    if (value instanceof String) {
+      return "string";
+    }
+    if (value instanceof LinkedList) {
+      return "list";
+    }
+    return value instanceof SortedSet ? "zset" : "set";
+  }
+
+  private List<String> keys(String pattern) {
+    expireAll();
+    Pattern regex = glob(pattern);
+    List<String> keys = new ArrayList<>();
+    for (String key : data.keySet()) {
+      if (regex.matcher(key).matches()) {
+        keys.add(key);
+      }
+    }
+    return keys;
+  }
+
+  private Status rename(String source, String destination) {
+    Object value = lookup(source);
+    if (value == null) {
+      throw new RedisError("ERR no such key");
+    }
+    Long expiresAt = expires.get(source);
+    delete(source);
+    delete(destination);
+    data.put(destination, value);
+    if (expiresAt != null) {
+      expires.put(destination, expiresAt);
+    }
+    return Status.OK;
+  }
+
+  private long expire(String key, long millis) {
+    if (lookup(key) == null) {
+      return 0;
+    }
+    if (millis <= 0) {
+      delete(key);
+    } else {
+      expires.put(key, System.currentTimeMillis() + millis);
+    }
+    return 1;
+  }
+
+  private long ttl(String key, long unit) {
+    if (lookup(key) == null) {
+      return -2;
+    }
+    Long expiresAt = expires.get(key);
+    return expiresAt == null ? -1 : Math.max(0, expiresAt - System.currentTimeMillis() + unit - 1) / unit;
+  }
+
+  // strings
+
+  private String string(String key) {
+    return typed(key, String.class);
+  }
+
+  private Object set(List<String> c) {
+    String key = arg(c, 1);
+    String value = arg(c, 2);
+    long millis = -1;
+    boolean nx = false;
+    boolean xx = false;
+    boolean keepTtl = false;
+    boolean get = false;
+    for (int i = 3; i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      switch (option) {
+      case "EX":
+        millis = integer(arg(c, ++i)) * 1000;
+        break;
+      case "PX":
+        millis = integer(arg(c, ++i));
+        break;
+      case "NX":
+        nx = true;
+        break;
+      case "XX":
+        xx = true;
+        break;
+      case "KEEPTTL":
+        keepTtl = true;
+        break;
+      case "GET":
+        get = true;
+        break;
+      default:
+        throw SYNTAX;
+      }
+    }
+    String previous = get ? string(key) : null;
+    boolean exists = lookup(key) != null;
+    if ((nx && exists) || (xx && !exists)) {
+      return get ? previous : null;
+    }
+    Long expiresAt = expires.get(key);
+    delete(key);
+    data.put(key, value);
+    if (millis > 0) {
+      expires.put(key, System.currentTimeMillis() + millis);
+    } else if (keepTtl && expiresAt != null) {
+      expires.put(key, expiresAt);
+    }
+    return get ? previous : Status.OK;
+  }
+
+  private Status setWithExpiry(String key, String value, long millis) {
+    if (millis <= 0) {
+      throw new RedisError("ERR invalid expire time in set");
+    }
+    delete(key);
+    data.put(key, value);
+    expires.put(key, System.currentTimeMillis() + millis);
+    return Status.OK;
+  }
+
+  private long incrBy(String key, long increment) {
+    String current = string(key);
+    long value = (current == null ? 0 : integer(current)) + increment;
+    data.put(key, Long.toString(value));
+    return value;
+  }
+
+  // lists
+
+  @SuppressWarnings("unchecked")
+  private LinkedList<String> list(String key) {
+    return typed(key, LinkedList.class);
+  }
+
+  private LinkedList<String> listForWrite(String key) {
+    LinkedList<String> list = list(key);
+    if (list == null) {
+      list = new LinkedList<>();
+      data.put(key, list);
+    }
+    return list;
+  }
+
+  private long push(String key, List<String> values, boolean left) {
+    if (values.isEmpty()) {
+      throw wrongArguments("push");
+    }
+    LinkedList<String> list = listForWrite(key);
+    for (String value : values) {
+      if (left) {
+        list.addFirst(value);
+      } else {
+        list.addLast(value);
+      }
+    }
+    listsChanged = true;
+    return list.size();
+  }
+
+  private Object pop(List<String> c, boolean left) {
+    String key = arg(c, 1);
+    LinkedList<String> list = list(key);
+    if (c.size() < 3) {
+      return list == null ? null : removeEnd(key, list, left);
+    }
+    long count = integer(arg(c, 2));
+    if (count < 0) {
+      throw new RedisError("ERR value is out of range, must be positive");
+    }
+    List<String> popped = new ArrayList<>();
+    while (list != null && !list.isEmpty() && popped.size() < count) {
+      popped.add(removeEnd(key, list, left));
+    }
+    return popped;
+  }
+
+  private String removeEnd(String key, LinkedList<String> list, boolean left) {
+    String value = left ? list.removeFirst() : list.removeLast();
+    if (list.isEmpty()) {
+      delete(key);
+    }
+    return value;
+  }
+
+  private List<String> lrange(String key, long start, long stop) {
+    LinkedList<String> list = list(key);
+    if (list == null) {
+      return Collections.emptyList();
+    }
+    int[] range = range(start, stop, list.size());
+    return range == null ? Collections.emptyList() : new ArrayList<>(list.subList(range[0], range[1] + 1));
+  }
+
+  private String lindex(String key, long index) {
+    LinkedList<String> list = list(key);
+    int size = size(list);
+    long position = index < 0 ? index + size : index;
+    return position < 0 || position >= size ? null : list.get((int) position);
+  }
+
+  private Status lset(String key, long index, String value) {
+    LinkedList<String> list = list(key);
+    if (list == null) {
+      throw new RedisError("ERR no such key");
+    }
+    long position = index < 0 ? index + list.size() : index;
+    if (position < 0 || position >= list.size()) {
+      throw new RedisError("ERR index out of range");
+    }
+    list.set((int) position, value);
+    return Status.OK;
+  }
+
+  private long lrem(String key, long count, String value) {
+    LinkedList<String> list = list(key);
+    if (list == null) {
+      return 0;
+    }
+    long removed = 0;
+    Iterator<String> elements = count < 0 ? list.descendingIterator() : list.iterator();
+    while (elements.hasNext() && (count == 0 || removed < Math.abs(count))) {
+      if (elements.next().equals(value)) {
+        elements.remove();
+        removed++;
+      }
+    }
+    if (list.isEmpty()) {
+      delete(key);
+    }
+    return removed;
+  }
+
+  private Status ltrim(String key, long start, long stop) {
+    LinkedList<String> list = list(key);
+    if (list == null) {
+      return Status.OK;
+    }
+    int[] range = range(start, stop, list.size());
+    if (range == null) {
+      delete(key);
+    } else {
+      List<String> kept = new ArrayList<>(list.subList(range[0], range[1] + 1));
+      list.clear();
+      list.addAll(kept);
+    }
+    return Status.OK;
+  }
+
+  private String lmove(String source, String destination, boolean fromLeft, boolean toLeft) {
+    LinkedList<String> from = list(source);
+    if (from == null) {
+      return null;
+    }
+    list(destination);
+    String value = removeEnd(source, from, fromLeft);
+    LinkedList<String> to = listForWrite(destination);
+    if (toLeft) {
+      to.addFirst(value);
+    } else {
+      to.addLast(value);
+    }
+    listsChanged = true;
+    return value;
+  }
+
+  private String blmove(String source, String destination, boolean fromLeft, boolean toLeft, long timeoutMillis) {
+    long deadline = deadline(timeoutMillis);
+    while (list(source) == null) {
+      if (!await(deadline)) {
+        return null;
+      }
+    }
+    return lmove(source, destination, fromLeft, toLeft);
+  }
+
+  private List<String> bpop(List<String> keys, boolean left, long timeoutMillis) {
+    long deadline = deadline(timeoutMillis);
+    while (true) {
+      for (String key : keys) {
+        LinkedList<String> list = list(key);
+        if (list != null) {
+          return List.of(key, removeEnd(key, list, left));
+        }
+      }
+      if (!await(deadline)) {
+        return null;
+      }
+    }
+  }
+
+  private static long deadline(long timeoutMillis) {
+    return timeoutMillis == 0 ? Long.MAX_VALUE : System.currentTimeMillis() + timeoutMillis;
+  }
+
+  /**
+   * Waits for a list to change, releasing the keyspace meanwhile.
+   *
+   * @return false once the deadline has passed
+   */
+  private boolean await(long deadline) {
+    long remaining = deadline - System.currentTimeMillis();
+    if (remaining <= 0 || closed || inTransaction) {
+      return false;
+    }
+    try {
+      // wake up regularly, expiring keys don't notify
+      wait(Math.min(remaining, 100));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+    return !closed;
+  }
+
+  private long timeout(String seconds) {
+    double value = score(seconds);
+    if (value < 0) {
+      throw new RedisError("ERR timeout is negative");
+    }
+    return (long) Math.ceil(value * 1000);
+  }
+
+  private static boolean left(String direction) {
+    switch (direction.toUpperCase(Locale.ROOT)) {
+    case "LEFT":
+      return true;
+    case "RIGHT":
+      return false;
+    default:
+      throw SYNTAX;
+    }
+  }
+
+  // sets
+
+  @SuppressWarnings("unchecked")
+  private Set<String> set(String key) {
+    Object value = lookup(key);
+    if (value == null) {
+      return null;
+    }
+    if (!(value instanceof LinkedHashSet)) {
+      throw WRONG_TYPE;
+    }
+    return (Set<String>) value;
+  }
+
+  private long sadd(String key, List<String> members) {
+    if (members.isEmpty()) {
+      throw wrongArguments("sadd");
+    }
+    Set<String> set = set(key);
+    if (set == null) {
+      set = new LinkedHashSet<>();
+      data.put(key, set);
+    }
+    long added = 0;
+    for (String member : members) {
+      if (set.add(member)) {
+        added++;
+      }
+    }
+    return added;
+  }
+
+  private long srem(String key, List<String> members) {
+    Set<String> set = set(key);
+    if (set == null) {
+      return 0;
+    }
+    long removed = members.stream().filter(set::remove).count();
+    if (set.isEmpty()) {
+      delete(key);
+    }
+    return removed;
+  }
+
+  private List<Long> smismember(String key, List<String> members) {
+    if (members.isEmpty()) {
+      throw wrongArguments("smismember");
+    }
+    Set<String> set = orEmpty(set(key));
+    List<Long> reply = new ArrayList<>(members.size());
+    for (String member : members) {
+      reply.add(set.contains(member) ? 1L : 0L);
+    }
+    return reply;
+  }
+
+  private long smove(String source, String destination, String member) {
+    Set<String> from = set(source);
+    set(destination);
+    if (from == null || !from.remove(member)) {
+      return 0;
+    }
+    if (from.isEmpty()) {
+      delete(source);
+    }
+    sadd(destination, List.of(member));
+    return 1;
+  }
+
+  private long sunionstore(String destination, List<String> keys) {
+    if (keys.isEmpty()) {
+      throw wrongArguments("sunionstore");
+    }
+    Set<String> union = new LinkedHashSet<>();
+    for (String key : keys) {
+      union.addAll(orEmpty(set(key)));
+    }
+    delete(destination);
+    if (!union.isEmpty()) {
+      data.put(destination, union);
+    }
+    return union.size();
+  }
+
+  private Object spop(List<String> c) {
+    String key = arg(c, 1);
+    Set<String> set = set(key);
+    if (c.size() < 3) {
+      if (set == null) {
+        return null;
+      }
+      return spop(key, set, 1).get(0);
+    }
+    long count = integer(arg(c, 2));
+    if (count < 0) {
+      throw new RedisError("ERR value is out of range, must be positive");
+    }
+    return set == null ? Collections.emptyList() : spop(key, set, count);
+  }
+
+  private List<String> spop(String key, Set<String> set, long count) {
+    List<String> members = new ArrayList<>(set);
+    Collections.shuffle(members, random);
+    List<String> popped = new ArrayList<>(members.subList(0, (int) Math.min(count, members.size())));
+    set.removeAll(popped);
+    if (set.isEmpty()) {
+      delete(key);
+    }
+    return popped;
+  }
+
+  private Object srandmember(List<String> c) {
+    List<String> members = new ArrayList<>(orEmpty(set(arg(c, 1))));
+    if (c.size() < 3) {
+      return members.isEmpty() ? null : members.get(random.nextInt(members.size()));
+    }
+    return randomMembers(members, integer(arg(c, 2)));
+  }
+
+  /**
+   * Distinct members for a positive count, independent draws for a negative one.
+   */
+  private <T> List<T> randomMembers(List<T> members, long count) {
+    if (members.isEmpty() || count == 0) {
+      return Collections.emptyList();
+    }
+    if (count < 0) {
+      List<T> drawn = new ArrayList<>((int) -count);
+      for (long i = 0; i < -count; i++) {
+        drawn.add(members.get(random.nextInt(members.size())));
+      }
+      return drawn;
+    }
+    List<T> shuffled = new ArrayList<>(members);
+    Collections.shuffle(shuffled, random);
+    return shuffled.subList(0, (int) Math.min(count, shuffled.size()));
+  }
+
+  // sorted sets
+
+  private SortedSet zset(String key) {
+    return typed(key, SortedSet.class);
+  }
+
+  private SortedSet zsetForWrite(String key) {
+    SortedSet zset = zset(key);
+    if (zset == null) {
+      zset = new SortedSet();
+      data.put(key, zset);
+    }
+    return zset;
+  }
+
+  private Object zadd(List<String> c) {
+    String key = arg(c, 1);
+    boolean nx = false;
+    boolean xx = false;
+    boolean gt = false;
+    boolean lt = false;
+    boolean ch = false;
+    boolean incr = false;
+    int i = 2;
+    for (; i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      if (option.equals("NX")) {
+        nx = true;
+      } else if (option.equals("XX")) {
+        xx = true;
+      } else if (option.equals("GT")) {
+        gt = true;
+      } else if (option.equals("LT")) {
+        lt = true;
+      } else if (option.equals("CH")) {
+        ch = true;
+      } else if (option.equals("INCR")) {
+        incr = true;
+      } else {
+        break;
+      }
+    }
+    int pairs = c.size() - i;
+    if (pairs == 0 || pairs % 2 != 0 || (incr && pairs != 2)) {
+      throw SYNTAX;
+    }
+    // validate every score before changing anything
+    double[] scores = new double[pairs / 2];
+    for (int pair = 0; pair < scores.length; pair++) {
+      scores[pair] = score(c.get(i + pair * 2));
+    }
+    zset(key);
+    long added = 0;
+    long changed = 0;
+    Double result = null;
+    for (int pair = 0; pair < scores.length; pair++) {
+      String member = c.get(i + pair * 2 + 1);
+      SortedSet zset = zset(key);
+      Double current = zset == null ? null : zset.score(member);
+      if ((nx && current != null) || (xx && current == null)) {
+        continue;
+      }
+      double score = incr && current != null ? current + scores[pair] : scores[pair];
+      if (current != null && ((gt && score <= current) || (lt && score >= current))) {
+        continue;
+      }
+      zsetForWrite(key).put(member, score);
+      result = score;
+      if (current == null) {
+        added++;
+      } else if (current != score) {
+        changed++;
+      }
+    }
+    if (incr) {
+      return result == null ? null : format(result);
+    }
+    return ch ? added + changed : added;
+  }
+
+  private String zincrby(String key, double increment, String member) {
+    SortedSet zset = zsetForWrite(key);
+    Double current = zset.score(member);
+    double score = (current == null ? 0 : current) + increment;
+    if (Double.isNaN(score)) {
+      throw new RedisError("ERR resulting score is not a number (NaN)");
+    }
+    zset.put(member, score);
+    return format(score);
+  }
+
+  private long zrem(String key, List<String> members) {
+    SortedSet zset = zset(key);
+    if (zset == null) {
+      return 0;
+    }
+    long removed = members.stream().filter(zset::remove).count();
+    if (zset.isEmpty()) {
+      delete(key);
+    }
+    return removed;
+  }
+
+  private String zscore(String key, String member) {
+    SortedSet zset = zset(key);
+    Double score = zset == null ? null : zset.score(member);
+    return score == null ? null : format(score);
+  }
+
+  private List<String> zmscore(String key, List<String> members) {
+    if (members.isEmpty()) {
+      throw wrongArguments("zmscore");
+    }
+    List<String> scores = new ArrayList<>(members.size());
+    for (String member : members) {
+      scores.add(zscore(key, member));
+    }
+    return scores;
+  }
+
+  private Long zrank(String key, String member, boolean rev) {
+    SortedSet zset = zset(key);
+    long rank = zset == null ? -1 : zset.rank(member);
+    if (rank < 0) {
+      return null;
+    }
+    return rev ? zset.size() - 1 - rank : rank;
+  }
+
+  private long zcount(String key, String min, String max) {
+    return scoreRange(orEmpty(zset(key)), bound(min), bound(max)).size();
+  }
+
+  /**
+   * ZRANGE and its older forms. {@code unified} accepts the 6.2 BYSCORE/REV/LIMIT options,
+   * otherwise the command name already fixed them.
+   */
+  private List<String> zrangeCommand(List<String> c, int first, boolean byScore, boolean rev, boolean unified) {
+    boolean withScores = false;
+    long offset = 0;
+    long count = -1;
+    boolean limit = false;
+    for (int i = first + 3; i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      if (option.equals("WITHSCORES")) {
+        withScores = true;
+      } else if (option.equals("LIMIT") && (unified || byScore)) {
+        offset = integer(arg(c, ++i));
+        count = integer(arg(c, ++i));
+        limit = true;
+      } else if (option.equals("BYSCORE") && unified) {
+        byScore = true;
+      } else if (option.equals("REV") && unified) {
+        rev = true;
+      } else {
+        throw SYNTAX;
+      }
+    }
+    if (limit && !byScore) {
+      throw new RedisError("ERR syntax error, LIMIT is only supported in combination with either BYSCORE or BYLEX");
+    }
+    List<SortedSet.Entry> entries = zrange(zset(arg(c, first)), arg(c, first + 1), arg(c, first + 2), byScore, rev,
+        offset, count);
+    return withScores ? flatten(entries) : members(entries);
+  }
+
+  private long zrangestore(List<String> c) {
+    boolean byScore = false;
+    boolean rev = false;
+    long offset = 0;
+    long count = -1;
+    for (int i = 5; i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      if (option.equals("BYSCORE")) {
+        byScore = true;
+      } else if (option.equals("REV")) {
+        rev = true;
+      } else if (option.equals("LIMIT")) {
+        offset = integer(arg(c, ++i));
+        count = integer(arg(c, ++i));
+      } else {
+        throw SYNTAX;
+      }
+    }
+    List<SortedSet.Entry> entries = zrange(zset(arg(c, 2)), arg(c, 3), arg(c, 4), byScore, rev, offset, count);
+    return store(arg(c, 1), entries);
+  }
+
+  /**
+   * With {@code rev} the range is given from the high end: {@code start} is the max score (or
+   * the first rank counted from the highest score).
+   */
+  private List<SortedSet.Entry> zrange(SortedSet zset, String start, String stop, boolean byScore, boolean rev,
+      long offset, long count) {
+    if (zset == null) {
+      return Collections.emptyList();
+    }
+    List<SortedSet.Entry> entries;
+    if (byScore) {
+      entries = scoreRange(zset, bound(rev ? stop : start), bound(rev ? start : stop));
+      if (rev) {
+        Collections.reverse(entries);
+      }
+      if (offset < 0 || offset >= entries.size()) {
+        return Collections.emptyList();
+      }
+      long end = count < 0 ? entries.size() : Math.min(entries.size(), offset + count);
+      return entries.subList((int) offset, (int) end);
+    }
+    entries = zset.entries();
+    if (rev) {
+      Collections.reverse(entries);
+    }
+    int[] range = range(integer(start), integer(stop), entries.size());
+    return range == null ? Collections.emptyList() : entries.subList(range[0], range[1] + 1);
+  }
+
+  private static List<SortedSet.Entry> scoreRange(SortedSet zset, double[] min, double[] max) {
+    List<SortedSet.Entry> entries = new ArrayList<>();
+    for (SortedSet.Entry entry : zset.entries()) {
+      boolean aboveMin = min[1] == 0 ? entry.score >= min[0] : entry.score > min[0];
+      boolean belowMax = max[1] == 0 ? entry.score <= max[0] : entry.score < max[0];
+      if (aboveMin && belowMax) {
+        entries.add(entry);
+      }
+    }
+    return entries;
+  }
+
+  private List<String> zpop(List<String> c, boolean min) {
+    String key = arg(c, 1);
+    long count = c.size() > 2 ? integer(arg(c, 2)) : 1;
+    SortedSet zset = zset(key);
+    List<SortedSet.Entry> popped = new ArrayList<>();
+    while (zset != null && !zset.isEmpty() && popped.size() < count) {
+      SortedSet.Entry entry = min ? zset.first() : zset.last();
+      zset.remove(entry.member);
+      popped.add(entry);
+    }
+    if (zset != null && zset.isEmpty()) {
+      delete(key);
+    }
+    return flatten(popped);
+  }
+
+  private Object zrandmember(List<String> c) {
+    List<SortedSet.Entry> entries = orEmpty(zset(arg(c, 1))).entries();
+    if (c.size() < 3) {
+      return entries.isEmpty() ? null : entries.get(random.nextInt(entries.size())).member;
+    }
+    boolean withScores = c.size() > 3;
+    if (withScores && !"WITHSCORES".equalsIgnoreCase(c.get(3))) {
+      throw SYNTAX;
+    }
+    List<SortedSet.Entry> drawn = randomMembers(entries, integer(arg(c, 2)));
+    return withScores ? flatten(drawn) : members(drawn);
+  }
+
+  private enum Combine {
+    INTER, UNION, DIFF
+  }
+
+  private Object combineCommand(List<String> c, int first, Combine combine, String destination) {
+    long keyCount = integer(arg(c, first));
+    if (keyCount <= 0) {
+      throw new RedisError("ERR at least 1 input key is needed");
+    }
+    if (first + 1 + keyCount > c.size()) {
+      throw SYNTAX;
+    }
+    List<String> keys = c.subList(first + 1, first + 1 + (int) keyCount);
+    double[] weights = new double[keys.size()];
+    Arrays.fill(weights, 1);
+    String aggregate = "SUM";
+    boolean withScores = false;
+    for (int i = first + 1 + keys.size(); i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      if (option.equals("WEIGHTS") && combine != Combine.DIFF) {
+        for (int w = 0; w < weights.length; w++) {
+          weights[w] = score(arg(c, ++i));
+        }
+      } else if (option.equals("AGGREGATE") && combine != Combine.DIFF) {
+        aggregate = arg(c, ++i).toUpperCase(Locale.ROOT);
+        if (!List.of("SUM", "MIN", "MAX").contains(aggregate)) {
+          throw SYNTAX;
+        }
+      } else if (option.equals("WITHSCORES") && destination == null) {
+        withScores = true;
+      } else {
+        throw SYNTAX;
+      }
+    }
+
+    Map<String, Double> result = null;
+    for (int i = 0; i < keys.size(); i++) {
+      Map<String, Double> input = input(keys.get(i));
+      if (i == 0) {
+        result = new LinkedHashMap<>();
+        for (Map.Entry<String, Double> entry : input.entrySet()) {
+          result.put(entry.getKey(), combine == Combine.DIFF ? entry.getValue() : weigh(entry.getValue(), weights[0]));
+        }
+        continue;
+      }
+      if (combine == Combine.DIFF) {
+        result.keySet().removeAll(input.keySet());
+      } else if (combine == Combine.INTER) {
+        result.keySet().retainAll(input.keySet());
+        for (Map.Entry<String, Double> entry : result.entrySet()) {
+          entry.setValue(aggregate(aggregate, entry.getValue(), weigh(input.get(entry.getKey()), weights[i])));
+        }
+      } else {
+        for (Map.Entry<String, Double> entry : input.entrySet()) {
+          double score = weigh(entry.getValue(), weights[i]);
+          String aggregation = aggregate;
+          result.merge(entry.getKey(), score, (current, added) -> aggregate(aggregation, current, added));
+        }
+      }
+    }
+
+    SortedSet combined = new SortedSet();
+    result.forEach(combined::put);
+    if (destination != null) {
+      return store(destination, combined.entries());
+    }
+    return withScores ? flatten(combined.entries()) : members(combined.entries());
+  }
+
+  /**
+   * The scores of a sorted set, or of a set with every member scored 1, as ZUNION/ZINTER
+   * accept both.
+   */
+  private Map<String, Double> input(String key) {
+    Object value = lookup(key);
+    Map<String, Double> scores = new LinkedHashMap<>();
+    if (value instanceof SortedSet) {
+      for (SortedSet.Entry entry : ((SortedSet) value).entries()) {
+        scores.put(entry.member, entry.score);
+      }
+    } else if (value instanceof LinkedHashSet) {
+      for (Object member : (Set<?>) value) {
+        scores.put((String) member, 1.0);
+      }
+    } else if (value != null) {
+      throw WRONG_TYPE;
+    }
+    return scores;
+  }
+
+  private static double weigh(double score, double weight) {
+    double weighted = score * weight;
+    // inf * 0
+    return Double.isNaN(weighted) ? 0 : weighted;
+  }
+
+  private static double aggregate(String aggregate, double current, double score) {
+    switch (aggregate) {
+    case "MIN":
+      return Math.min(current, score);
+    case "MAX":
+      return Math.max(current, score);
+    default:
+      double sum = current + score;
+      // inf + -inf
+      return Double.isNaN(sum) ? 0 : sum;
+    }
+  }
+
+  private long store(String destination, List<SortedSet.Entry> entries) {
+    delete(destination);
+    if (!entries.isEmpty()) {
+      SortedSet zset = new SortedSet();
+      for (SortedSet.Entry entry : entries) {
+        zset.put(entry.member, entry.score);
+      }
+      data.put(destination, zset);
+    }
+    return entries.size();
+  }
+
+  // scans
+
+  /**
+   * SSCAN/ZSCAN over a snapshot of the collection, the cursor is the position in it. For
+   * {@code pairs} the snapshot holds member, score pairs and the cursor counts pairs.
+   */
+  private List<Object> scan(List<String> snapshot, List<String> c, boolean pairs) {
+    long cursor = integer(arg(c, 2));
+    Pattern match = null;
+    long count = 10;
+    for (int i = 3; i < c.size(); i++) {
+      String option = c.get(i).toUpperCase(Locale.ROOT);
+      if (option.equals("MATCH")) {
+        match = glob(arg(c, ++i));
+      } else if (option.equals("COUNT")) {
+        count = integer(arg(c, ++i));
+        if (count < 1) {
+          throw SYNTAX;
+        }
+      } else {
+        throw SYNTAX;
+      }
+    }
+    int step = pairs ? 2 : 1;
+    int elements = snapshot.size() / step;
+    long end = Math.min(elements, cursor + count);
+    List<String> page = new ArrayList<>();
+    for (long i = cursor; i < end; i++) {
+      String member = snapshot.get((int) i * step);
+      if (match == null || match.matcher(member).matches()) {
+        page.addAll(snapshot.subList((int) i * step, (int) i * step + step));
+      }
+    }
+    return List.of(end >= elements ? "0" : Long.toString(end), page);
+  }
+
+  // helpers
+
+  private <T> T typed(String key, Class<T> type) {
+    Object value = lookup(key);
+    if (value != null && !type.isInstance(value)) {
+      throw WRONG_TYPE;
+    }
+    return type.cast(value);
+  }
+
+  private static String arg(List<String> c, int index) {
+    if (index >= c.size()) {
+      throw wrongArguments(c.get(0));
+    }
+    return c.get(index);
+  }
+
+  private static RedisError wrongArguments(String command) {
+    return new RedisError("ERR wrong number of arguments for '" + command.toLowerCase(Locale.ROOT) + "' command");
+  }
+
+  private static long integer(String value) {
+    try {
+      return Long.parseLong(value);
+    } catch (NumberFormatException e) {
+      throw NOT_AN_INTEGER;
+    }
+  }
+
+  private static double score(String value) {
+    switch (value.toLowerCase(Locale.ROOT)) {
+    case "inf":
+    case "+inf":
+      return Double.POSITIVE_INFINITY;
+    case "-inf":
+      return Double.NEGATIVE_INFINITY;
+    default:
+      try {
+        double score = Double.parseDouble(value);
+        if (Double.isNaN(score)) {
+          throw NOT_A_FLOAT;
+        }
+        return score;
+      } catch (NumberFormatException e) {
+        throw NOT_A_FLOAT;
+      }
+    }
+  }
+
+  /**
+   * A score range bound as {@code [value, exclusive ? 1 : 0]}.
+   */
+  private static double[] bound(String value) {
+    boolean exclusive = value.startsWith("(");
+    try {
+      return new double[] { score(exclusive ? value.substring(1) : value), exclusive ? 1 : 0 };
+    } catch (RedisError e) {
+      throw new RedisError("ERR min or max is not a float");
+    }
+  }
+
+  static String format(double score) {
+    if (Double.isInfinite(score)) {
+      return score > 0 ? "inf" : "-inf";
+    }
+    if (score == Math.rint(score) && Math.abs(score) < 1e15) {
+      return Long.toString((long) score);
+    }
+    return Double.toString(score);
+  }
+
+  /**
+   * Inclusive {@code [start, stop]} indexes of a rank range, null when it is empty.
+   */
+  private static int[] range(long start, long stop, int size) {
+    if (start < 0) {
+      start += size;
+    }
+    if (stop < 0) {
+      stop += size;
+    }
+    start = Math.max(0, start);
+    stop = Math.min(size - 1, stop);
+    if (start > stop || start >= size) {
+      return null;
+    }
+    return new int[] { (int) start, (int) stop };
+  }
+
+  private static List<String> members(List<SortedSet.Entry> entries) {
+    List<String> members = new ArrayList<>(entries.size());
+    for (SortedSet.Entry entry : entries) {
+      members.add(entry.member);
+    }
+    return members;
+  }
+
+  private static List<String> flatten(List<SortedSet.Entry> entries) {
+    List<String> flat = new ArrayList<>(entries.size() * 2);
+    for (SortedSet.Entry entry : entries) {
+      flat.add(entry.member);
+      flat.add(format(entry.score));
+    }
+    return flat;
+  }
+
+  private static int size(Collection<?> collection) {
+    return collection == null ? 0 : collection.size();
+  }
+
+  private static Set<String> orEmpty(Set<String> set) {
+    return set == null ? Collections.emptySet() : set;
+  }
+
+  private static SortedSet orEmpty(SortedSet zset) {
+    return zset == null ? new SortedSet() : zset;
+  }
+
+  private static Pattern glob(String pattern) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char ch = pattern.charAt(i);
+      switch (ch) {
+      case '*':
+        regex.append(".*");
+        break;
+      case '?':
+        regex.append('.');
+        break;
+      case '[':
+        int end = pattern.indexOf(']', i + 1);
+        if (end < 0) {
+          regex.append("\\[");
+        } else {
+          String set = pattern.substring(i + 1, end);
+          boolean negate = set.startsWith("^");
+          regex.append(negate ? "[^" : "[").append((negate ? set.substring(1) : set).replace("\\", "\\\\")
+              .replace("[", "\\[")).append(']');
+          i = end;
+        }
+        break;
+      case '\\':
+        if (i + 1 < pattern.length()) {
+          regex.append(Pattern.quote(String.valueOf(pattern.charAt(++i))));
+        }
+        break;
+      default:
+        regex.append(Pattern.quote(String.valueOf(ch)));
+      }
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+}
@@ -0,0 +1,90 @@
+package com.redis.redis.sixtwo.embedded;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * A sorted set ordered like Redis orders one: by score, then by member bytes.
+ */
+final class SortedSet {
+
+  static final class Entry implements Comparable<Entry> {
+
+    final String member;
+    final double score;
+
+    Entry(String member, double score) {
+      this.member = member;
+      this.score = score;
+    }
+
+    @Override
+    public int compareTo(Entry other) {
+      int byScore = Double.compare(score, other.score);
+      // members are ISO-8859-1 decoded bytes, so this compares them unsigned like memcmp
+      return byScore != 0 ? byScore : member.compareTo(other.member);
+    }
+  }
+
+  private final Map<String, Double> scores = new HashMap<>();
+  private final TreeSet<Entry> order = new TreeSet<>();
+
+  /**
+   * @return whether the member is new
+   */
+  boolean put(String member, double score) {
+    Double previous = scores.put(member, score);
+    if (previous != null) {
+      order.remove(new Entry(member, previous));
+    }
+    order.add(new Entry(member, score));
+    return previous == null;
+  }
+
+  boolean remove(String member) {
+    Double previous = scores.remove(member);
+    if (previous == null) {
+      return false;
+    }
+    order.remove(new Entry(member, previous));
+    return true;
+  }
+
+  Double score(String member) {
+    return scores.get(member);
+  }
+
+  int size() {
+    return scores.size();
+  }
+
+  boolean isEmpty() {
+    return scores.isEmpty();
+  }
+
+  /**
+   * All entries, lowest score first.
+   */
+  List<Entry> entries() {
+    return new ArrayList<>(order);
+  }
+
+  Entry first() {
+    return order.first();
+  }
+
+  Entry last() {
+    return order.last();
+  }
+
+  long rank(String member) {
+    Double score = scores.get(member);
+    if (score == null) {
+      return -1;
+    }
+    return order.headSet(new Entry(member, score)).size();
+  }
+}